@@ -0,0 +1,105 @@
+package segtrees;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks comparing range-add and range-sum on {@link FenwickTree} and {@link SegmentTree}
+ * built from the same data.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+@State(Scope.Benchmark)
+public class FenwickBenchmark {
+    private static final int OPS = 1 << 16;
+
+    static class InvertibleSumCombiner extends SegmentTreeBenchmark.SumCombiner {
+        @Override
+        public boolean isInvertible() {
+            return true;
+        }
+
+        @Override
+        public Long inverse(Long value) {
+            return -value;
+        }
+    }
+
+    static class AdditiveAddUpdater extends SegmentTreeBenchmark.AddUpdater {
+        @Override
+        public boolean isAdditive() {
+            return true;
+        }
+    }
+
+    @Param({"1000", "1000000", "10000000"})
+    int n;
+
+    @Param({"short", "uniform"})
+    String ranges;
+
+    FenwickTree<Long, Long> fenwick;
+    SegmentTree<Long, Long> tree;
+    final int[] ls = new int[OPS];
+    final int[] rs = new int[OPS];
+    final Long[] updates = new Long[OPS];
+    int cursor;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random rnd = new Random(1);
+        Long[] values = SegmentTreeBenchmark.randomArray(n, rnd);
+        fenwick = new FenwickTree<>(values, new InvertibleSumCombiner(), new AdditiveAddUpdater());
+        tree = new SegmentTree<>(values, new SegmentTreeBenchmark.SumCombiner(), new SegmentTreeBenchmark.AddUpdater());
+        for (int i = 0; i < OPS; i++) {
+            int l = rnd.nextInt(n);
+            ls[i] = l;
+            rs[i] = ranges.equals("short") ? Math.min(n, l + 1 + rnd.nextInt(64)) : rnd.nextInt(n - l) + l + 1;
+            updates[i] = (long) rnd.nextInt(1000);
+        }
+    }
+
+    private int next() {
+        return cursor = (cursor + 1) & (OPS - 1);
+    }
+
+    @Benchmark
+    public Long fenwickQuery() {
+        int i = next();
+        return fenwick.query(ls[i], rs[i]);
+    }
+
+    @Benchmark
+    public Long segmentTreeQuery() {
+        int i = next();
+        return tree.query(ls[i], rs[i]);
+    }
+
+    @Benchmark
+    public void fenwickUpdate() {
+        int i = next();
+        fenwick.update(ls[i], rs[i], updates[i]);
+    }
+
+    @Benchmark
+    public void segmentTreeUpdate() {
+        int i = next();
+        tree.update(ls[i], rs[i], updates[i]);
+    }
+}
@@ -0,0 +1,284 @@
+package segtrees;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks for {@link SegmentTree} construction, queries and updates.
+ * Run with {@code ./gradlew jmh}; allocation rates are reported by the {@code gc} profiler.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+public class SegmentTreeBenchmark {
+    private static final int OPS = 1 << 16;
+    private static final int BATCH = 1 << 10;
+
+    static class SumCombiner implements Combiner<Long> {
+        @Override
+        public Long combine(Long left, Long right) {
+            return left + right;
+        }
+
+        @Override
+        public Long neutral() {
+            return 0L;
+        }
+    }
+
+    static class AddUpdater implements Updater<Long, Long> {
+        @Override
+        public Long applyUpdate(Long value, Long update, int rangeSize) {
+            return value + update * rangeSize;
+        }
+
+        @Override
+        public Long composeUpdates(Long current, Long next) {
+            return current + next;
+        }
+
+        @Override
+        public Long neutralUpdate() {
+            return 0L;
+        }
+    }
+
+    static class MinCombiner implements Combiner<Long> {
+        @Override
+        public Long combine(Long left, Long right) {
+            return Math.min(left, right);
+        }
+
+        @Override
+        public Long neutral() {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    static class AssignUpdater implements Updater<Long, Long> {
+        @Override
+        public Long applyUpdate(Long value, Long update, int rangeSize) {
+            return update == Long.MAX_VALUE ? value : update;
+        }
+
+        @Override
+        public Long composeUpdates(Long current, Long next) {
+            return next == Long.MAX_VALUE ? current : next;
+        }
+
+        @Override
+        public Long neutralUpdate() {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    static Combiner<Long> combiner(String ops) {
+        return ops.equals("sumAdd") ? new SumCombiner() : new MinCombiner();
+    }
+
+    static Updater<Long, Long> updater(String ops) {
+        return ops.equals("sumAdd") ? new AddUpdater() : new AssignUpdater();
+    }
+
+    static Long[] randomArray(int n, Random rnd) {
+        Long[] arr = new Long[n];
+        for (int i = 0; i < n; i++) {
+            arr[i] = (long) rnd.nextInt(1000);
+        }
+        return arr;
+    }
+
+    @State(Scope.Benchmark)
+    public static class BuildState {
+        @Param({"1000", "100000", "10000000", "100000000"})
+        int n;
+
+        @Param({"sumAdd", "minAssign"})
+        String ops;
+
+        Long[] arr;
+        Combiner<Long> combiner;
+        Updater<Long, Long> updater;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            arr = randomArray(n, new Random(1));
+            combiner = combiner(ops);
+            updater = updater(ops);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class OpState {
+        @Param({"1000", "100000", "10000000", "100000000"})
+        int n;
+
+        @Param({"sumAdd", "minAssign"})
+        String ops;
+
+        /**
+         * Range length distribution: a single position, up to 64 positions,
+         * a uniformly random range, or the whole array.
+         */
+        @Param({"point", "short", "uniform", "full"})
+        String ranges;
+
+        SegmentTree<Long, Long> tree;
+        final int[] ls = new int[OPS];
+        final int[] rs = new int[OPS];
+        final Long[] updates = new Long[OPS];
+        int cursor;
+        int[] batchLs;
+        int[] batchRs;
+        Long[] batchUpdates;
+        final Long[] batchOut = new Long[BATCH];
+
+        @Setup(Level.Trial)
+        public void setup() {
+            Random rnd = new Random(2);
+            tree = new SegmentTree<>(randomArray(n, rnd), combiner(ops), updater(ops));
+            for (int i = 0; i < OPS; i++) {
+                int l;
+                int r;
+                switch (ranges) {
+                    case "point":
+                        l = rnd.nextInt(n);
+                        r = l + 1;
+                        break;
+                    case "short":
+                        l = rnd.nextInt(n);
+                        r = Math.min(n, l + 1 + rnd.nextInt(64));
+                        break;
+                    case "uniform":
+                        l = rnd.nextInt(n);
+                        r = rnd.nextInt(n - l) + l + 1;
+                        break;
+                    case "full":
+                        l = 0;
+                        r = n;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown range distribution: " + ranges);
+                }
+                ls[i] = l;
+                rs[i] = r;
+                updates[i] = (long) rnd.nextInt(1000);
+            }
+            batchLs = Arrays.copyOf(ls, BATCH);
+            batchRs = Arrays.copyOf(rs, BATCH);
+            batchUpdates = Arrays.copyOf(updates, BATCH);
+        }
+
+        int next() {
+            return cursor = (cursor + 1) & (OPS - 1);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class MixedState extends OpState {
+        /**
+         * Fraction of reads among the operations.
+         */
+        @Param({"0.5", "0.9", "0.99"})
+        double readRatio;
+
+        final boolean[] reads = new boolean[OPS];
+
+        @Setup(Level.Trial)
+        public void setupReads() {
+            Random rnd = new Random(3);
+            for (int i = 0; i < OPS; i++) {
+                reads[i] = rnd.nextDouble() < readRatio;
+            }
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public SegmentTree<Long, Long> buildFromArray(BuildState s) {
+        return new SegmentTree<>(s.arr, s.combiner, s.updater);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public SegmentTree<Long, Long> buildFromArrayParallel(BuildState s) {
+        return new SegmentTree<>(s.arr, s.combiner, s.updater, ForkJoinPool.commonPool());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public SegmentTree<Long, Long> buildEmpty(BuildState s) {
+        return new SegmentTree<>(s.n, s.combiner, s.updater);
+    }
+
+    @Benchmark
+    public Long query(OpState s) {
+        int i = s.next();
+        return s.tree.query(s.ls[i], s.rs[i]);
+    }
+
+    @Benchmark
+    public void update(OpState s) {
+        int i = s.next();
+        s.tree.update(s.ls[i], s.rs[i], s.updates[i]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public Long[] queryBatch(OpState s) {
+        s.tree.queryBatch(s.batchLs, s.batchRs, s.batchOut);
+        return s.batchOut;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void updateBatch(OpState s) {
+        s.tree.updateBatch(s.batchLs, s.batchRs, s.batchUpdates);
+    }
+
+    @Benchmark
+    public Long get(OpState s) {
+        int i = s.next();
+        return s.tree.get(s.ls[i]);
+    }
+
+    @Benchmark
+    public void set(OpState s) {
+        int i = s.next();
+        s.tree.set(s.ls[i], s.updates[i]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void setAll(OpState s) {
+        s.tree.setAll(s.batchLs, s.batchUpdates);
+    }
+
+    @Benchmark
+    public Long mixed(MixedState s) {
+        int i = s.next();
+        if (s.reads[i]) {
+            return s.tree.query(s.ls[i], s.rs[i]);
+        }
+        s.tree.update(s.ls[i], s.rs[i], s.updates[i]);
+        return null;
+    }
+}
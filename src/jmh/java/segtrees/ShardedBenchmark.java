@@ -0,0 +1,92 @@
+package segtrees;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks measuring the throughput of {@link ShardedSegmentTree} and {@link ConcurrentSegmentTree}
+ * under concurrent clients.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+@Threads(Threads.MAX)
+@State(Scope.Benchmark)
+public class ShardedBenchmark {
+    @Param({"100000", "10000000"})
+    int n;
+
+    /**
+     * Range length distribution: up to 64 positions or a uniformly random range.
+     */
+    @Param({"short", "uniform"})
+    String ranges;
+
+    ShardedSegmentTree<Long, Long> sharded;
+    ConcurrentSegmentTree<Long, Long> concurrent;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Long[] arr = SegmentTreeBenchmark.randomArray(n, new Random(1));
+        sharded = new ShardedSegmentTree<>(arr, new SegmentTreeBenchmark.SumCombiner(),
+                new SegmentTreeBenchmark.AddUpdater());
+        concurrent = new ConcurrentSegmentTree<>(arr, new SegmentTreeBenchmark.SumCombiner(),
+                new SegmentTreeBenchmark.AddUpdater());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sharded.close();
+    }
+
+    private int left() {
+        return ThreadLocalRandom.current().nextInt(n);
+    }
+
+    private int right(int l) {
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        return ranges.equals("short") ? Math.min(n, l + 1 + rnd.nextInt(64)) : l + 1 + rnd.nextInt(n - l);
+    }
+
+    @Benchmark
+    public Long shardedQuery() {
+        int l = left();
+        return sharded.query(l, right(l));
+    }
+
+    @Benchmark
+    public void shardedUpdate() {
+        int l = left();
+        sharded.update(l, right(l), 1L);
+    }
+
+    @Benchmark
+    public Long concurrentQuery() {
+        int l = left();
+        return concurrent.query(l, right(l));
+    }
+
+    @Benchmark
+    public void concurrentUpdate() {
+        int l = left();
+        concurrent.update(l, right(l), 1L);
+    }
+}
@@ -0,0 +1,110 @@
+package segtrees;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks comparing sum/add queries and updates on {@link SegmentTree} and on a tree from
+ * {@link TreeSpecializer}, after both have also been used with min/assign and a third pair so that
+ * the generic call sites are megamorphic.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+@State(Scope.Benchmark)
+public class SpecializerBenchmark {
+    private static final int OPS = 1 << 16;
+
+    static class MaxCombiner implements Combiner<Long> {
+        @Override
+        public Long combine(Long left, Long right) {
+            return Math.max(left, right);
+        }
+
+        @Override
+        public Long neutral() {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    @Param({"1000", "1000000"})
+    int n;
+
+    SegmentTree<Long, Long> tree;
+    RangeStructure<Long, Long> specialized;
+    final int[] ls = new int[OPS];
+    final int[] rs = new int[OPS];
+    final Long[] updates = new Long[OPS];
+    int cursor;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random rnd = new Random(1);
+        Long[] values = SegmentTreeBenchmark.randomArray(n, rnd);
+        for (int i = 0; i < OPS; i++) {
+            int l = rnd.nextInt(n);
+            ls[i] = l;
+            rs[i] = rnd.nextInt(n - l) + l + 1;
+            updates[i] = (long) rnd.nextInt(1000);
+        }
+        pollute(new SegmentTree<>(values, new SegmentTreeBenchmark.MinCombiner(), new SegmentTreeBenchmark.AssignUpdater()));
+        pollute(new SegmentTree<>(values, new MaxCombiner(), new SegmentTreeBenchmark.AddUpdater()));
+        pollute(TreeSpecializer.create(values, new SegmentTreeBenchmark.MinCombiner(), new SegmentTreeBenchmark.AssignUpdater()));
+        pollute(TreeSpecializer.create(values, new MaxCombiner(), new SegmentTreeBenchmark.AddUpdater()));
+        tree = new SegmentTree<>(values, new SegmentTreeBenchmark.SumCombiner(), new SegmentTreeBenchmark.AddUpdater());
+        specialized = TreeSpecializer.create(values, new SegmentTreeBenchmark.SumCombiner(), new SegmentTreeBenchmark.AddUpdater());
+    }
+
+    /**
+     * Runs enough operations on another pair to record it in the profiles of the tree's call sites.
+     */
+    private void pollute(RangeStructure<Long, Long> other) {
+        for (int i = 0; i < OPS; i++) {
+            other.update(ls[i], rs[i], updates[i]);
+            other.query(ls[i], rs[i]);
+        }
+    }
+
+    private int next() {
+        return cursor = (cursor + 1) & (OPS - 1);
+    }
+
+    @Benchmark
+    public Long genericQuery() {
+        int i = next();
+        return tree.query(ls[i], rs[i]);
+    }
+
+    @Benchmark
+    public Long specializedQuery() {
+        int i = next();
+        return specialized.query(ls[i], rs[i]);
+    }
+
+    @Benchmark
+    public void genericUpdate() {
+        int i = next();
+        tree.update(ls[i], rs[i], updates[i]);
+    }
+
+    @Benchmark
+    public void specializedUpdate() {
+        int i = next();
+        specialized.update(ls[i], rs[i], updates[i]);
+    }
+}
@@ -0,0 +1,114 @@
+package segtrees;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks comparing read-only queries on {@link StaticLongRangeIndex}
+ * with {@link LongSegmentTree} and {@link SegmentTree} built from the same data.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+@State(Scope.Benchmark)
+public class StaticIndexBenchmark {
+    private static final int OPS = 1 << 16;
+
+    static class LongSumCombiner implements LongCombiner {
+        @Override
+        public long combine(long left, long right) {
+            return left + right;
+        }
+
+        @Override
+        public long neutral() {
+            return 0L;
+        }
+    }
+
+    static class LongAddUpdater implements LongUpdater {
+        @Override
+        public long applyUpdate(long value, long update, int rangeSize) {
+            return value + update * rangeSize;
+        }
+
+        @Override
+        public long composeUpdates(long current, long next) {
+            return current + next;
+        }
+
+        @Override
+        public long neutralUpdate() {
+            return 0L;
+        }
+    }
+
+    @Param({"1000", "1000000", "10000000"})
+    int n;
+
+    @Param({"short", "uniform"})
+    String ranges;
+
+    StaticLongRangeIndex index;
+    LongSegmentTree longTree;
+    SegmentTree<Long, Long> tree;
+    final int[] ls = new int[OPS];
+    final int[] rs = new int[OPS];
+    int cursor;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random rnd = new Random(1);
+        long[] values = new long[n];
+        Long[] boxed = new Long[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = rnd.nextInt(1000);
+            boxed[i] = values[i];
+        }
+        index = new StaticLongRangeIndex(values, new LongSumCombiner());
+        longTree = new LongSegmentTree(values, new LongSumCombiner(), new LongAddUpdater());
+        tree = new SegmentTree<>(boxed, new SegmentTreeBenchmark.SumCombiner(), new SegmentTreeBenchmark.AddUpdater());
+        for (int i = 0; i < OPS; i++) {
+            int l = rnd.nextInt(n);
+            ls[i] = l;
+            rs[i] = ranges.equals("short") ? Math.min(n, l + 1 + rnd.nextInt(64)) : rnd.nextInt(n - l) + l + 1;
+        }
+    }
+
+    private int next() {
+        return cursor = (cursor + 1) & (OPS - 1);
+    }
+
+    @Benchmark
+    public long staticIndex() {
+        int i = next();
+        return index.query(ls[i], rs[i]);
+    }
+
+    @Benchmark
+    public long longSegmentTree() {
+        int i = next();
+        return longTree.query(ls[i], rs[i]);
+    }
+
+    @Benchmark
+    public Long segmentTree() {
+        int i = next();
+        return tree.query(ls[i], rs[i]);
+    }
+}
@@ -0,0 +1,251 @@
+package segtrees;
+
+import java.util.Arrays;
+
+/**
+ * A segment tree with lazy propagation that grows as values are appended, for time series.
+ * Positions are logical time indices: the first appended value has index 0, the next one 1, and so on.
+ * Without a window the capacity doubles when it runs out; the old tree becomes the left half of the new one
+ * and is copied level by level instead of being rebuilt, so {@link #append(Object)} costs amortized O(log n).
+ * With a window only the last {@code window} values are kept in a ring buffer of fixed capacity,
+ * and older indices are evicted as new values are appended, so memory stays bounded.
+ * The layout is the same as in {@link IterativeSegmentTree}: {@code tree[node]} is always up to date
+ * and {@code lazy[node]} holds an update still pending for the children of the node.
+ * @param <T> the type of the values stored in the tree
+ * @param <U> the type of the updates to be applied
+ */
+public class AppendableSegmentTree<T, U> {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private T[] tree;
+    private U[] lazy;
+    private int size;
+    private int log;
+    private long count;
+    private final int window;
+    private final Combiner<T> combiner;
+    private final Updater<T, U> updater;
+
+    /**
+     * Constructs an empty tree that keeps every appended value.
+     * @param combiner the combiner for aggregating values
+     * @param updater the updater for applying updates
+     */
+    public AppendableSegmentTree(Combiner<T> combiner, Updater<T, U> updater) {
+        this(0, INITIAL_CAPACITY, combiner, updater);
+    }
+
+    /**
+     * Constructs an empty tree that keeps only the last {@code window} appended values.
+     * @param window the number of most recent values to keep
+     * @param combiner the combiner for aggregating values
+     * @param updater the updater for applying updates
+     */
+    public AppendableSegmentTree(int window, Combiner<T> combiner, Updater<T, U> updater) {
+        this(window, window, combiner, updater);
+        if (window <= 0) {
+            throw new IllegalArgumentException("Window must be positive: " + window);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private AppendableSegmentTree(int window, int capacity, Combiner<T> combiner, Updater<T, U> updater) {
+        this.window = window;
+        this.combiner = combiner;
+        this.updater = updater;
+        while ((1 << log) < capacity) {
+            log++;
+        }
+        this.size = 1 << log;
+        this.tree = (T[]) new Object[2 * size];
+        this.lazy = (U[]) new Object[size];
+        Arrays.fill(tree, combiner.neutral());
+        Arrays.fill(lazy, updater.neutralUpdate());
+    }
+
+    /**
+     * Returns the number of values appended so far, which is also the index of the next appended value.
+     * @return the number of appended values
+     */
+    public long size() {
+        return count;
+    }
+
+    /**
+     * Returns the index of the oldest value still kept; it is 0 unless a window evicted older values.
+     * @return the index of the oldest kept value
+     */
+    public long firstIndex() {
+        return window == 0 ? 0 : Math.max(0, count - window);
+    }
+
+    /**
+     * Appends a value at index {@link #size()}, evicting the oldest value if the window is full.
+     * @param value the value to append
+     */
+    public void append(T value) {
+        if (window == 0 && count == size) {
+            grow();
+        }
+        int leaf = physical(count) + size;
+        for (int i = log; i >= 1; i--) {
+            pushDown(leaf >> i);
+        }
+        tree[leaf] = value;
+        for (int i = 1; i <= log; i++) {
+            pull(leaf >> i);
+        }
+        count++;
+    }
+
+    /**
+     * Doubles the capacity, moving the current tree into the left half of the new one.
+     * A node at depth d keeps its position within its level, which starts at 2^(d + 1) instead of 2^d.
+     */
+    @SuppressWarnings("unchecked")
+    private void grow() {
+        T[] newTree = (T[]) new Object[4 * size];
+        U[] newLazy = (U[]) new Object[2 * size];
+        Arrays.fill(newTree, combiner.neutral());
+        Arrays.fill(newLazy, updater.neutralUpdate());
+        for (int level = 1; level <= size; level <<= 1) {
+            System.arraycopy(tree, level, newTree, 2 * level, level);
+            if (level < size) {
+                System.arraycopy(lazy, level, newLazy, 2 * level, level);
+            }
+        }
+        tree = newTree;
+        lazy = newLazy;
+        size <<= 1;
+        log++;
+        pull(1);
+    }
+
+    private int physical(long index) {
+        return (int) (index & (size - 1));
+    }
+
+    private int nodeSize(int node) {
+        return size >> (31 - Integer.numberOfLeadingZeros(node));
+    }
+
+    private void pull(int node) {
+        tree[node] = combiner.combine(tree[2 * node], tree[2 * node + 1]);
+    }
+
+    private void applyAll(int node, U update) {
+        tree[node] = updater.applyUpdate(tree[node], update, nodeSize(node));
+        if (node < size) {
+            lazy[node] = updater.composeUpdates(lazy[node], update);
+        }
+    }
+
+    private void pushDown(int node) {
+        if (!lazy[node].equals(updater.neutralUpdate())) {
+            applyAll(2 * node, lazy[node]);
+            applyAll(2 * node + 1, lazy[node]);
+            lazy[node] = updater.neutralUpdate();
+        }
+    }
+
+    private void pushBorders(int l, int r) {
+        for (int i = log; i >= 1; i--) {
+            if (((l >> i) << i) != l) {
+                pushDown(l >> i);
+            }
+            if (((r >> i) << i) != r) {
+                pushDown((r - 1) >> i);
+            }
+        }
+    }
+
+    private void checkRange(long l, long r) {
+        if (l < firstIndex() || r > count) {
+            throw new IndexOutOfBoundsException("Range [" + l + ", " + r + ") out of bounds for kept indices ["
+                    + firstIndex() + ", " + count + ")");
+        }
+    }
+
+    /**
+     * Queries the aggregate value over the range [l, r) of logical indices.
+     * @param l the left boundary (inclusive), not less than {@link #firstIndex()}
+     * @param r the right boundary (exclusive), not greater than {@link #size()}
+     * @return the aggregate value over the range
+     * @throws IndexOutOfBoundsException if the range includes evicted or not yet appended indices
+     */
+    public T query(long l, long r) {
+        if (l >= r) {
+            return combiner.neutral();
+        }
+        checkRange(l, r);
+        int from = physical(l);
+        int to = physical(r - 1) + 1;
+        if (from < to) {
+            return queryPhysical(from, to);
+        }
+        return combiner.combine(queryPhysical(from, size), queryPhysical(0, to));
+    }
+
+    private T queryPhysical(int l, int r) {
+        l += size;
+        r += size;
+        pushBorders(l, r);
+        T left = combiner.neutral();
+        T right = combiner.neutral();
+        while (l < r) {
+            if ((l & 1) == 1) {
+                left = combiner.combine(left, tree[l++]);
+            }
+            if ((r & 1) == 1) {
+                right = combiner.combine(tree[--r], right);
+            }
+            l >>= 1;
+            r >>= 1;
+        }
+        return combiner.combine(left, right);
+    }
+
+    /**
+     * Applies an update over the range [l, r) of logical indices.
+     * @param l the left boundary (inclusive), not less than {@link #firstIndex()}
+     * @param r the right boundary (exclusive), not greater than {@link #size()}
+     * @param update the update to apply
+     * @throws IndexOutOfBoundsException if the range includes evicted or not yet appended indices
+     */
+    public void update(long l, long r, U update) {
+        if (l >= r) {
+            return;
+        }
+        checkRange(l, r);
+        int from = physical(l);
+        int to = physical(r - 1) + 1;
+        if (from < to) {
+            updatePhysical(from, to, update);
+        } else {
+            updatePhysical(from, size, update);
+            updatePhysical(0, to, update);
+        }
+    }
+
+    private void updatePhysical(int l, int r, U update) {
+        l += size;
+        r += size;
+        pushBorders(l, r);
+        for (int a = l, b = r; a < b; a >>= 1, b >>= 1) {
+            if ((a & 1) == 1) {
+                applyAll(a++, update);
+            }
+            if ((b & 1) == 1) {
+                applyAll(--b, update);
+            }
+        }
+        for (int i = 1; i <= log; i++) {
+            if (((l >> i) << i) != l) {
+                pull(l >> i);
+            }
+            if (((r >> i) << i) != r) {
+                pull((r - 1) >> i);
+            }
+        }
+    }
+}
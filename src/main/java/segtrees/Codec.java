@@ -0,0 +1,27 @@
+package segtrees;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Interface for writing values to and reading them from a binary snapshot.
+ * @param <V> the type of the values to be encoded
+ */
+public interface Codec<V> {
+    /**
+     * Writes a value.
+     * @param out the output to write to
+     * @param value the value to write
+     * @throws IOException if the value cannot be written
+     */
+    void write(DataOutput out, V value) throws IOException;
+
+    /**
+     * Reads a value written by {@link #write(DataOutput, Object)}.
+     * @param in the input to read from
+     * @return the value read
+     * @throws IOException if the value cannot be read
+     */
+    V read(DataInput in) throws IOException;
+}
@@ -18,4 +18,34 @@ public interface Combiner<T> {
      * @return the neutral element
      */
     T neutral();
-} 
\ No newline at end of file
+
+    /**
+     * Returns whether combining a value with itself yields the same value, as for min, max or gcd.
+     * Idempotent combiners may aggregate overlapping ranges, which {@link SparseTableTree} relies on.
+     * @return true if the combine operation is idempotent
+     */
+    default boolean isIdempotent() {
+        return false;
+    }
+
+    /**
+     * Returns whether every value has an inverse under the combine operation, as for sum or xor.
+     * Invertible combiners must also be commutative; {@link RangeStructure#create(Object[], Combiner, Updater)}
+     * then picks a {@link FenwickTree} for additive updaters.
+     * @return true if values can be inverted with {@link #inverse(Object)}
+     */
+    default boolean isInvertible() {
+        return false;
+    }
+
+    /**
+     * Returns the inverse of a value, so that combining them gives the neutral element.
+     * Only called if {@link #isInvertible()} returns true.
+     * @param value the value to invert
+     * @return the inverse of the value
+     * @throws UnsupportedOperationException if the combiner is not invertible
+     */
+    default T inverse(T value) {
+        throw new UnsupportedOperationException("Combiner is not invertible");
+    }
+}
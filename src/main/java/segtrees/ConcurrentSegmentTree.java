@@ -0,0 +1,162 @@
+package segtrees;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A thread-safe segment tree with lazy propagation.
+ * The positions are split into blocks, each backed by its own {@link SegmentTree} and {@link StampedLock}.
+ * Queries read the blocks optimistically without modifying them and take read locks only if a writer interfered,
+ * so readers scale with the number of threads. Updates write-lock only the blocks their range touches,
+ * in ascending order, so writers to disjoint blocks do not wait for each other.
+ * Every query and update is atomic with respect to the others.
+ * @param <T> the type of the values stored in the tree
+ * @param <U> the type of the updates to be applied
+ */
+public class ConcurrentSegmentTree<T, U> implements RangeStructure<T, U> {
+    private static final int DEFAULT_BLOCKS = 64;
+
+    private final SegmentTree<T, U>[] blocks;
+    private final StampedLock[] locks;
+    private final int n;
+    private final int blockSize;
+    private final Combiner<T> combiner;
+
+    /**
+     * Constructs a concurrent segment tree from an array of values.
+     * @param arr the input array
+     * @param combiner the combiner for aggregating values
+     * @param updater the updater for applying updates
+     */
+    public ConcurrentSegmentTree(T[] arr, Combiner<T> combiner, Updater<T, U> updater) {
+        this(arr, DEFAULT_BLOCKS, combiner, updater);
+    }
+
+    /**
+     * Constructs a concurrent segment tree from an array of values.
+     * @param arr the input array
+     * @param blockCount the maximum number of independently locked blocks
+     * @param combiner the combiner for aggregating values
+     * @param updater the updater for applying updates
+     */
+    public ConcurrentSegmentTree(T[] arr, int blockCount, Combiner<T> combiner, Updater<T, U> updater) {
+        if (blockCount <= 0) {
+            throw new IllegalArgumentException("Block count must be positive: " + blockCount);
+        }
+        this.n = arr.length;
+        this.combiner = combiner;
+        this.blockSize = Math.max(1, (n + blockCount - 1) / blockCount);
+        int count = (n + blockSize - 1) / blockSize;
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        SegmentTree<T, U>[] created = new SegmentTree[count];
+        this.blocks = created;
+        this.locks = new StampedLock[count];
+        for (int i = 0; i < count; i++) {
+            int from = i * blockSize;
+            blocks[i] = new SegmentTree<>(Arrays.copyOfRange(arr, from, Math.min(n, from + blockSize)), combiner, updater);
+            locks[i] = new StampedLock();
+        }
+    }
+
+    /**
+     * Constructs an empty concurrent segment tree of size n with default values.
+     * @param n the size of the tree
+     * @param combiner the combiner for aggregating values
+     * @param updater the updater for applying updates
+     */
+    @SuppressWarnings("unchecked")
+    public ConcurrentSegmentTree(int n, Combiner<T> combiner, Updater<T, U> updater) {
+        this((T[]) filled(n, combiner.neutral()), DEFAULT_BLOCKS, combiner, updater);
+    }
+
+    private static Object[] filled(int n, Object value) {
+        Object[] arr = new Object[n];
+        Arrays.fill(arr, value);
+        return arr;
+    }
+
+    /**
+     * Queries the aggregate value over the range [l, r).
+     * @param l the left boundary (inclusive)
+     * @param r the right boundary (exclusive)
+     * @return the aggregate value over the range
+     */
+    @Override
+    public T query(int l, int r) {
+        if (l >= r) {
+            return combiner.neutral();
+        }
+        int first = l / blockSize;
+        int last = (r - 1) / blockSize;
+        long[] stamps = new long[last - first + 1];
+        boolean valid = true;
+        for (int b = first; b <= last && valid; b++) {
+            stamps[b - first] = locks[b].tryOptimisticRead();
+            valid = stamps[b - first] != 0;
+        }
+        if (valid) {
+            try {
+                T result = queryBlocks(l, r, first, last);
+                for (int b = first; b <= last && valid; b++) {
+                    valid = locks[b].validate(stamps[b - first]);
+                }
+                if (valid) {
+                    return result;
+                }
+            } catch (RuntimeException e) {
+                // A concurrent writer left the arrays in an intermediate state; retry under read locks.
+            }
+        }
+        for (int b = first; b <= last; b++) {
+            stamps[b - first] = locks[b].readLock();
+        }
+        try {
+            return queryBlocks(l, r, first, last);
+        } finally {
+            for (int b = last; b >= first; b--) {
+                locks[b].unlockRead(stamps[b - first]);
+            }
+        }
+    }
+
+    private T queryBlocks(int l, int r, int first, int last) {
+        T result = combiner.neutral();
+        for (int b = first; b <= last; b++) {
+            int from = b * blockSize;
+            int to = Math.min(n, from + blockSize);
+            T part = blocks[b].queryReadOnly(Math.max(l, from) - from, Math.min(r, to) - from);
+            result = combiner.combine(result, part);
+        }
+        return result;
+    }
+
+    /**
+     * Applies an update over the range [l, r).
+     * @param l the left boundary (inclusive)
+     * @param r the right boundary (exclusive)
+     * @param update the update to apply
+     */
+    @Override
+    public void update(int l, int r, U update) {
+        if (l >= r) {
+            return;
+        }
+        int first = l / blockSize;
+        int last = (r - 1) / blockSize;
+        long[] stamps = new long[last - first + 1];
+        for (int b = first; b <= last; b++) {
+            stamps[b - first] = locks[b].writeLock();
+        }
+        try {
+            for (int b = first; b <= last; b++) {
+                int from = b * blockSize;
+                int to = Math.min(n, from + blockSize);
+                blocks[b].update(Math.max(l, from) - from, Math.min(r, to) - from, update);
+            }
+        } finally {
+            for (int b = last; b >= first; b--) {
+                locks[b].unlockWrite(stamps[b - first]);
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package segtrees;
+
+/**
+ * Interface for combining primitive double values in the segment tree.
+ */
+public interface DoubleCombiner {
+    /**
+     * Combines two values into a single value.
+     * @param left the left value
+     * @param right the right value
+     * @return the combined value
+     */
+    double combine(double left, double right);
+
+    /**
+     * Returns the neutral element for the combine operation.
+     * @return the neutral element
+     */
+    double neutral();
+}
@@ -0,0 +1,314 @@
+package segtrees;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntToDoubleFunction;
+import java.util.stream.DoubleStream;
+import java.util.zip.CRC32;
+
+/**
+ * A segment tree with lazy propagation over primitive double values.
+ * Values and updates are kept in {@code double[]} arrays, so queries and updates do not allocate.
+ */
+public class DoubleSegmentTree {
+    private static final int PARALLEL_THRESHOLD = 1 << 13;
+
+    private final double[] tree;
+    private final double[] lazy;
+    private final int n;
+    private final DoubleCombiner combiner;
+    private final DoubleUpdater updater;
+    private final double neutralUpdate;
+
+    /**
+     * Constructs a segment tree from an array of values.
+     * @param arr the input array
+     * @param combiner the combiner for aggregating values
+     * @param updater the updater for applying updates
+     */
+    public DoubleSegmentTree(double[] arr, DoubleCombiner combiner, DoubleUpdater updater) {
+        this.n = arr.length;
+        this.combiner = combiner;
+        this.updater = updater;
+        this.neutralUpdate = updater.neutralUpdate();
+        this.tree = new double[4 * n];
+        this.lazy = new double[4 * n];
+        Arrays.fill(lazy, neutralUpdate);
+        build(arr, 1, 0, n - 1);
+    }
+
+    /**
+     * Constructs an empty segment tree of size n with default values.
+     * @param n the size of the tree
+     * @param combiner the combiner for aggregating values
+     * @param updater the updater for applying updates
+     */
+    public DoubleSegmentTree(int n, DoubleCombiner combiner, DoubleUpdater updater) {
+        this.n = n;
+        this.combiner = combiner;
+        this.updater = updater;
+        this.neutralUpdate = updater.neutralUpdate();
+        this.tree = new double[4 * n];
+        this.lazy = new double[4 * n];
+        Arrays.fill(lazy, neutralUpdate);
+        Arrays.fill(tree, combiner.neutral());
+    }
+
+    /**
+     * Constructs a segment tree from an array of values, building independent subtrees in parallel.
+     * @param arr the input array
+     * @param combiner the combiner for aggregating values
+     * @param updater the updater for applying updates
+     * @param pool the pool to build the tree on
+     */
+    public DoubleSegmentTree(double[] arr, DoubleCombiner combiner, DoubleUpdater updater, ForkJoinPool pool) {
+        this.n = arr.length;
+        this.combiner = combiner;
+        this.updater = updater;
+        this.neutralUpdate = updater.neutralUpdate();
+        this.tree = new double[4 * n];
+        this.lazy = new double[4 * n];
+        if (n > 0) {
+            pool.invoke(new BuildTask(i -> arr[i], 1, 0, n - 1));
+        }
+    }
+
+    /**
+     * Constructs a segment tree from the values of an ordered stream.
+     * The values are collected, in parallel if the stream is parallel, and the tree is built in parallel.
+     * @param values the input values in index order
+     * @param combiner the combiner for aggregating values
+     * @param updater the updater for applying updates
+     * @param pool the pool to collect the values and build the tree on
+     */
+    public DoubleSegmentTree(DoubleStream values, DoubleCombiner combiner, DoubleUpdater updater, ForkJoinPool pool) {
+        this(pool.submit(values::toArray).join(), combiner, updater, pool);
+    }
+
+    private void build(double[] arr, int node, int start, int end) {
+        if (start == end) {
+            tree[node] = arr[start];
+        } else {
+            int mid = (start + end) / 2;
+            build(arr, 2 * node, start, mid);
+            build(arr, 2 * node + 1, mid + 1, end);
+            tree[node] = combiner.combine(tree[2 * node], tree[2 * node + 1]);
+        }
+    }
+
+    private void build(IntToDoubleFunction leaves, int node, int start, int end) {
+        lazy[node] = neutralUpdate;
+        if (start == end) {
+            tree[node] = leaves.applyAsDouble(start);
+        } else {
+            int mid = (start + end) / 2;
+            build(leaves, 2 * node, start, mid);
+            build(leaves, 2 * node + 1, mid + 1, end);
+            tree[node] = combiner.combine(tree[2 * node], tree[2 * node + 1]);
+        }
+    }
+
+    /**
+     * Builds the subtree of a node, forking the two child subtrees while they are larger than the threshold.
+     */
+    @SuppressWarnings("serial")
+    private final class BuildTask extends RecursiveAction {
+        private final IntToDoubleFunction leaves;
+        private final int node;
+        private final int start;
+        private final int end;
+
+        BuildTask(IntToDoubleFunction leaves, int node, int start, int end) {
+            this.leaves = leaves;
+            this.node = node;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start < PARALLEL_THRESHOLD) {
+                build(leaves, node, start, end);
+                return;
+            }
+            int mid = (start + end) / 2;
+            invokeAll(new BuildTask(leaves, 2 * node, start, mid), new BuildTask(leaves, 2 * node + 1, mid + 1, end));
+            lazy[node] = neutralUpdate;
+            tree[node] = combiner.combine(tree[2 * node], tree[2 * node + 1]);
+        }
+    }
+
+    /**
+     * Replaces all values with the values of the array and drops pending updates.
+     * The existing storage is reused and the tree is rebuilt in parallel on the common pool.
+     * @param arr the new values; its length must equal the size of the tree
+     */
+    public void assignAll(double[] arr) {
+        assignAll(arr, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Replaces all values with the values of the array and drops pending updates.
+     * The existing storage is reused and the tree is rebuilt in parallel.
+     * @param arr the new values; its length must equal the size of the tree
+     * @param pool the pool to rebuild the tree on
+     */
+    public void assignAll(double[] arr, ForkJoinPool pool) {
+        if (arr.length != n) {
+            throw new IllegalArgumentException("Expected " + n + " values, got " + arr.length);
+        }
+        if (n > 0) {
+            pool.invoke(new BuildTask(i -> arr[i], 1, 0, n - 1));
+        }
+    }
+
+    /**
+     * Sets every position to the value and drops pending updates.
+     * The existing storage is reused and the tree is rebuilt in parallel on the common pool.
+     * @param value the new value of every position
+     */
+    public void fill(double value) {
+        if (n > 0) {
+            ForkJoinPool.commonPool().invoke(new BuildTask(i -> value, 1, 0, n - 1));
+        }
+    }
+
+    /**
+     * Writes the tree, including pending updates, to a binary snapshot.
+     * Only the nodes in use are written, streamed through a direct buffer, and the snapshot can be restored
+     * with {@link #load(Path, DoubleCombiner, DoubleUpdater)} without rebuilding the tree.
+     * @param path the file to write; an existing file is overwritten
+     * @throws IOException if the file cannot be written
+     */
+    public void save(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(Snapshots.BUFFER_SIZE);
+            CRC32 crc = new CRC32();
+            Snapshots.writeHeader(channel, buffer, crc, Snapshots.DOUBLE, n);
+            buffer.putDouble(combiner.neutral()).putDouble(neutralUpdate);
+            if (n > 0) {
+                save(channel, buffer, crc, 1, 0, n - 1);
+            }
+            Snapshots.write(channel, buffer, crc);
+            Snapshots.writeChecksum(channel, buffer, crc);
+        }
+    }
+
+    private void save(FileChannel channel, ByteBuffer buffer, CRC32 crc, int node, int start, int end)
+            throws IOException {
+        Snapshots.reserve(channel, buffer, crc, 2 * Double.BYTES).putDouble(tree[node]).putDouble(lazy[node]);
+        if (start != end) {
+            int mid = (start + end) / 2;
+            save(channel, buffer, crc, 2 * node, start, mid);
+            save(channel, buffer, crc, 2 * node + 1, mid + 1, end);
+        }
+    }
+
+    /**
+     * Reads a tree written by {@link #save(Path)}.
+     * The combiner and updater must have the same neutral elements as the ones of the saved tree.
+     * @param path the file to read
+     * @param combiner the combiner for aggregating values
+     * @param updater the updater for applying updates
+     * @return the restored tree
+     * @throws IOException if the file cannot be read, is not a snapshot of this kind of tree or is corrupted
+     */
+    public static DoubleSegmentTree load(Path path, DoubleCombiner combiner, DoubleUpdater updater) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(Snapshots.BUFFER_SIZE);
+            CRC32 crc = new CRC32();
+            int n = Snapshots.readHeader(channel, buffer, crc, Snapshots.DOUBLE, Double.BYTES, path);
+            ByteBuffer neutrals = Snapshots.read(channel, buffer, crc, 2 * Double.BYTES);
+            if (Double.compare(neutrals.getDouble(), combiner.neutral()) != 0
+                    || Double.compare(neutrals.getDouble(), updater.neutralUpdate()) != 0) {
+                throw new IllegalArgumentException("Combiner or updater does not match the one stored in " + path);
+            }
+            DoubleSegmentTree result = new DoubleSegmentTree(n, combiner, updater);
+            if (n > 0) {
+                result.load(channel, buffer, crc, 1, 0, n - 1);
+            }
+            Snapshots.checkChecksum(channel, buffer, crc, path);
+            return result;
+        }
+    }
+
+    private void load(FileChannel channel, ByteBuffer buffer, CRC32 crc, int node, int start, int end)
+            throws IOException {
+        ByteBuffer record = Snapshots.require(channel, buffer, crc, 2 * Double.BYTES);
+        tree[node] = record.getDouble();
+        lazy[node] = record.getDouble();
+        if (start != end) {
+            int mid = (start + end) / 2;
+            load(channel, buffer, crc, 2 * node, start, mid);
+            load(channel, buffer, crc, 2 * node + 1, mid + 1, end);
+        }
+    }
+
+    private void pushDown(int node, int start, int end) {
+        if (Double.compare(lazy[node], neutralUpdate) != 0) {
+            tree[node] = updater.applyUpdate(tree[node], lazy[node], end - start + 1);
+            if (start != end) {
+                lazy[2 * node] = updater.composeUpdates(lazy[2 * node], lazy[node]);
+                lazy[2 * node + 1] = updater.composeUpdates(lazy[2 * node + 1], lazy[node]);
+            }
+            lazy[node] = neutralUpdate;
+        }
+    }
+
+    /**
+     * Queries the aggregate value over the range [l, r).
+     * @param l the left boundary (inclusive)
+     * @param r the right boundary (exclusive)
+     * @return the aggregate value over the range
+     */
+    public double query(int l, int r) {
+        return query(1, 0, n - 1, l, r - 1);
+    }
+
+    private double query(int node, int start, int end, int l, int r) {
+        pushDown(node, start, end);
+        if (r < start || end < l) {
+            return combiner.neutral();
+        }
+        if (l <= start && end <= r) {
+            return tree[node];
+        }
+        int mid = (start + end) / 2;
+        double left = query(2 * node, start, mid, l, r);
+        double right = query(2 * node + 1, mid + 1, end, l, r);
+        return combiner.combine(left, right);
+    }
+
+    /**
+     * Applies an update over the range [l, r).
+     * @param l the left boundary (inclusive)
+     * @param r the right boundary (exclusive)
+     * @param update the update to apply
+     */
+    public void update(int l, int r, double update) {
+        update(1, 0, n - 1, l, r - 1, update);
+    }
+
+    private void update(int node, int start, int end, int l, int r, double update) {
+        pushDown(node, start, end);
+        if (r < start || end < l) {
+            return;
+        }
+        if (l <= start && end <= r) {
+            lazy[node] = updater.composeUpdates(lazy[node], update);
+            pushDown(node, start, end);
+            return;
+        }
+        int mid = (start + end) / 2;
+        update(2 * node, start, mid, l, r, update);
+        update(2 * node + 1, mid + 1, end, l, r, update);
+        tree[node] = combiner.combine(tree[2 * node], tree[2 * node + 1]);
+    }
+}
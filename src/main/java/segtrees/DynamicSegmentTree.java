@@ -0,0 +1,159 @@
+package segtrees;
+
+import java.util.Arrays;
+
+/**
+ * A sparse segment tree with lazy propagation over the positions {@code [0, n)} for a long n.
+ * Nodes are allocated only when an update first reaches them, and untouched subtrees hold
+ * {@link Combiner#neutral()}, so memory grows with the number of touched nodes rather than with n.
+ * Nodes are kept in growable parallel arrays indexed by node id; id 0 marks a missing child.
+ * A node's value already includes its own lazy tag; the tag is pending only for its children.
+ * Range sizes are passed to {@link Updater#applyUpdate(Object, Object, long)}.
+ * @param <T> the type of the values stored in the tree
+ * @param <U> the type of the updates to be applied
+ */
+public class DynamicSegmentTree<T, U> {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int ROOT = 1;
+
+    private int[] left;
+    private int[] right;
+    private T[] values;
+    private U[] lazy;
+    private int nodeCount;
+    private final long n;
+    private final Combiner<T> combiner;
+    private final Updater<T, U> updater;
+
+    /**
+     * Constructs an empty sparse segment tree of size n with default values.
+     * @param n the size of the tree
+     * @param combiner the combiner for aggregating values
+     * @param updater the updater for applying updates
+     */
+    @SuppressWarnings("unchecked")
+    public DynamicSegmentTree(long n, Combiner<T> combiner, Updater<T, U> updater) {
+        this.n = n;
+        this.combiner = combiner;
+        this.updater = updater;
+        this.left = new int[INITIAL_CAPACITY];
+        this.right = new int[INITIAL_CAPACITY];
+        this.values = (T[]) new Object[INITIAL_CAPACITY];
+        this.lazy = (U[]) new Object[INITIAL_CAPACITY];
+        nodeCount = ROOT;
+        newNode();
+    }
+
+    private int newNode() {
+        if (nodeCount == values.length) {
+            int capacity = 2 * values.length;
+            left = Arrays.copyOf(left, capacity);
+            right = Arrays.copyOf(right, capacity);
+            values = Arrays.copyOf(values, capacity);
+            lazy = Arrays.copyOf(lazy, capacity);
+        }
+        values[nodeCount] = combiner.neutral();
+        lazy[nodeCount] = updater.neutralUpdate();
+        return nodeCount++;
+    }
+
+    private int leftChild(int node) {
+        if (left[node] == 0) {
+            int child = newNode();
+            left[node] = child;
+        }
+        return left[node];
+    }
+
+    private int rightChild(int node) {
+        if (right[node] == 0) {
+            int child = newNode();
+            right[node] = child;
+        }
+        return right[node];
+    }
+
+    private void applyAll(int node, U update, long start, long end) {
+        values[node] = updater.applyUpdate(values[node], update, end - start + 1);
+        if (start != end) {
+            lazy[node] = updater.composeUpdates(lazy[node], update);
+        }
+    }
+
+    private void pushDown(int node, long start, long mid, long end) {
+        if (!lazy[node].equals(updater.neutralUpdate())) {
+            applyAll(leftChild(node), lazy[node], start, mid);
+            applyAll(rightChild(node), lazy[node], mid + 1, end);
+            lazy[node] = updater.neutralUpdate();
+        }
+    }
+
+    /**
+     * Returns the number of allocated nodes.
+     * @return the number of nodes
+     */
+    public int nodeCount() {
+        return nodeCount - ROOT;
+    }
+
+    /**
+     * Queries the aggregate value over the range [l, r).
+     * Queries never allocate nodes.
+     * @param l the left boundary (inclusive)
+     * @param r the right boundary (exclusive)
+     * @return the aggregate value over the range
+     */
+    public T query(long l, long r) {
+        return query(ROOT, 0, n - 1, l, r - 1, updater.neutralUpdate());
+    }
+
+    private T query(int node, long start, long end, long l, long r, U pending) {
+        if (r < start || end < l) {
+            return combiner.neutral();
+        }
+        boolean neutralPending = pending.equals(updater.neutralUpdate());
+        if (node == 0) {
+            // An untouched subtree: every position is neutral, with the same pending update.
+            long size = Math.min(end, r) - Math.max(start, l) + 1;
+            return neutralPending ? combiner.neutral() : updater.applyUpdate(combiner.neutral(), pending, size);
+        }
+        if (l <= start && end <= r) {
+            return neutralPending ? values[node] : updater.applyUpdate(values[node], pending, end - start + 1);
+        }
+        U childPending = neutralPending ? lazy[node] : updater.composeUpdates(lazy[node], pending);
+        long mid = start + (end - start) / 2;
+        T leftValue = query(left[node], start, mid, l, r, childPending);
+        T rightValue = query(right[node], mid + 1, end, l, r, childPending);
+        return combiner.combine(leftValue, rightValue);
+    }
+
+    /**
+     * Applies an update over the range [l, r).
+     * @param l the left boundary (inclusive)
+     * @param r the right boundary (exclusive)
+     * @param update the update to apply
+     */
+    public void update(long l, long r, U update) {
+        if (l < r) {
+            update(ROOT, 0, n - 1, l, r - 1, update);
+        }
+    }
+
+    private void update(int node, long start, long end, long l, long r, U update) {
+        if (l <= start && end <= r) {
+            applyAll(node, update, start, end);
+            return;
+        }
+        long mid = start + (end - start) / 2;
+        pushDown(node, start, mid, end);
+        if (l <= mid) {
+            update(leftChild(node), start, mid, l, r, update);
+        }
+        if (mid < r) {
+            update(rightChild(node), mid + 1, end, l, r, update);
+        }
+        T leftValue = left[node] == 0 ? combiner.neutral() : values[left[node]];
+        T rightValue = right[node] == 0 ? combiner.neutral() : values[right[node]];
+        values[node] = combiner.combine(leftValue, rightValue);
+    }
+}
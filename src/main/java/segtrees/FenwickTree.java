@@ -0,0 +1,134 @@
+package segtrees;
+
+import java.util.Arrays;
+
+/**
+ * A range-update, range-query structure built from two Fenwick trees of n + 1 slots each.
+ * The combiner must be invertible and commutative, as for sum or xor, and the updater must be additive.
+ * An update of a per-position delta d over [l, r) adds d to the slopes and {@code l * d} to the offsets
+ * at l, and cancels both at r; the aggregate of the prefix [0, i) is then {@code i * slopes(i) - offsets(i)},
+ * where slopes(i) and offsets(i) are Fenwick prefix aggregates.
+ * Both operations walk O(log n) slots in tight loops, without the recursion and lazy tags of {@link SegmentTree}.
+ * @param <T> the type of the values stored in the tree
+ * @param <U> the type of the updates to be applied
+ */
+public class FenwickTree<T, U> implements RangeStructure<T, U> {
+    private final T[] slopes;
+    private final T[] offsets;
+    private final int n;
+    private final Combiner<T> combiner;
+    private final Updater<T, U> updater;
+
+    /**
+     * Constructs a Fenwick tree from an array of values in O(n).
+     * @param arr the input array
+     * @param combiner the invertible, commutative combiner for aggregating values
+     * @param updater the additive updater for applying updates
+     * @throws IllegalArgumentException if the combiner is not invertible or the updater is not additive
+     */
+    public FenwickTree(T[] arr, Combiner<T> combiner, Updater<T, U> updater) {
+        this(arr.length, combiner, updater);
+        for (int i = 0; i < n; i++) {
+            offsets[i + 1] = combiner.inverse(arr[i]);
+        }
+        for (int i = 1; i <= n; i++) {
+            int parent = i + (i & -i);
+            if (parent <= n) {
+                offsets[parent] = combiner.combine(offsets[parent], offsets[i]);
+            }
+        }
+    }
+
+    /**
+     * Constructs an empty Fenwick tree of size n with default values.
+     * @param n the size of the tree
+     * @param combiner the invertible, commutative combiner for aggregating values
+     * @param updater the additive updater for applying updates
+     * @throws IllegalArgumentException if the combiner is not invertible or the updater is not additive
+     */
+    @SuppressWarnings("unchecked")
+    public FenwickTree(int n, Combiner<T> combiner, Updater<T, U> updater) {
+        if (!combiner.isInvertible() || !updater.isAdditive()) {
+            throw new IllegalArgumentException("Fenwick trees require an invertible combiner and an additive updater");
+        }
+        this.n = n;
+        this.combiner = combiner;
+        this.updater = updater;
+        this.slopes = (T[]) new Object[n + 1];
+        this.offsets = (T[]) new Object[n + 1];
+        Arrays.fill(slopes, combiner.neutral());
+        Arrays.fill(offsets, combiner.neutral());
+    }
+
+    /**
+     * Combines {@code delta} into the slots that cover position i.
+     */
+    private void add(T[] bit, int i, T delta) {
+        for (int j = i + 1; j <= n; j += j & -j) {
+            bit[j] = combiner.combine(bit[j], delta);
+        }
+    }
+
+    /**
+     * Returns the aggregate of the slots that cover the positions [0, i).
+     */
+    private T prefix(T[] bit, int i) {
+        T result = combiner.neutral();
+        for (int j = i; j > 0; j -= j & -j) {
+            result = combiner.combine(result, bit[j]);
+        }
+        return result;
+    }
+
+    private T prefix(int i) {
+        return combiner.combine(multiply(prefix(slopes, i), i), combiner.inverse(prefix(offsets, i)));
+    }
+
+    /**
+     * Combines the value with itself k times by repeated doubling.
+     */
+    private T multiply(T value, int k) {
+        T result = combiner.neutral();
+        while (k > 0) {
+            if ((k & 1) == 1) {
+                result = combiner.combine(result, value);
+            }
+            value = combiner.combine(value, value);
+            k >>= 1;
+        }
+        return result;
+    }
+
+    /**
+     * Queries the aggregate value over the range [l, r).
+     * @param l the left boundary (inclusive)
+     * @param r the right boundary (exclusive)
+     * @return the aggregate value over the range
+     */
+    @Override
+    public T query(int l, int r) {
+        if (l >= r) {
+            return combiner.neutral();
+        }
+        return combiner.combine(prefix(r), combiner.inverse(prefix(l)));
+    }
+
+    /**
+     * Applies an update over the range [l, r).
+     * @param l the left boundary (inclusive)
+     * @param r the right boundary (exclusive)
+     * @param update the update to apply
+     */
+    @Override
+    public void update(int l, int r, U update) {
+        if (l >= r) {
+            return;
+        }
+        T neutral = combiner.neutral();
+        T delta = updater.applyUpdate(neutral, update, 1);
+        add(slopes, l, delta);
+        add(slopes, r, combiner.inverse(delta));
+        add(offsets, l, updater.applyUpdate(neutral, update, l));
+        add(offsets, r, combiner.inverse(updater.applyUpdate(neutral, update, r)));
+    }
+}
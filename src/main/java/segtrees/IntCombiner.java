@@ -0,0 +1,20 @@
+package segtrees;
+
+/**
+ * Interface for combining primitive int values in the segment tree.
+ */
+public interface IntCombiner {
+    /**
+     * Combines two values into a single value.
+     * @param left the left value
+     * @param right the right value
+     * @return the combined value
+     */
+    int combine(int left, int right);
+
+    /**
+     * Returns the neutral element for the combine operation.
+     * @return the neutral element
+     */
+    int neutral();
+}
@@ -0,0 +1,29 @@
+package segtrees;
+
+/**
+ * Interface for updating primitive int values in the segment tree.
+ */
+public interface IntUpdater {
+    /**
+     * Applies an update to a value over a range.
+     * @param value the current value
+     * @param update the update to apply
+     * @param rangeSize the size of the range this value represents
+     * @return the updated value
+     */
+    int applyUpdate(int value, int update, int rangeSize);
+
+    /**
+     * Composes two updates into a single update.
+     * @param current the current update
+     * @param next the next update to compose
+     * @return the composed update
+     */
+    int composeUpdates(int current, int next);
+
+    /**
+     * Returns the neutral update element.
+     * @return the neutral update
+     */
+    int neutralUpdate();
+}
@@ -0,0 +1,154 @@
+package segtrees;
+
+import java.util.Arrays;
+
+/**
+ * A non-recursive segment tree with lazy propagation.
+ * Leaves are stored at {@code [size, 2 * size)}, where size is the smallest power of two not less than n,
+ * and the tree is walked bottom-up, so it needs about half the memory of {@link SegmentTree}.
+ * Unlike {@link SegmentTree}, {@code tree[node]} is always up to date and {@code lazy[node]}
+ * holds an update still pending for the children of the node.
+ * @param <T> the type of the values stored in the tree
+ * @param <U> the type of the updates to be applied
+ */
+public class IterativeSegmentTree<T, U> implements RangeStructure<T, U> {
+    private final T[] tree;
+    private final U[] lazy;
+    private final int n;
+    private final int size;
+    private final int log;
+    private final Combiner<T> combiner;
+    private final Updater<T, U> updater;
+
+    /**
+     * Constructs a segment tree from an array of values.
+     * @param arr the input array
+     * @param combiner the combiner for aggregating values
+     * @param updater the updater for applying updates
+     */
+    public IterativeSegmentTree(T[] arr, Combiner<T> combiner, Updater<T, U> updater) {
+        this(arr.length, combiner, updater);
+        System.arraycopy(arr, 0, tree, size, n);
+        for (int i = size - 1; i >= 1; i--) {
+            pull(i);
+        }
+    }
+
+    /**
+     * Constructs an empty segment tree of size n with default values.
+     * @param n the size of the tree
+     * @param combiner the combiner for aggregating values
+     * @param updater the updater for applying updates
+     */
+    @SuppressWarnings("unchecked")
+    public IterativeSegmentTree(int n, Combiner<T> combiner, Updater<T, U> updater) {
+        this.n = n;
+        this.combiner = combiner;
+        this.updater = updater;
+        int log = 0;
+        while ((1 << log) < n) {
+            log++;
+        }
+        this.log = log;
+        this.size = 1 << log;
+        this.tree = (T[]) new Object[2 * size];
+        this.lazy = (U[]) new Object[size];
+        Arrays.fill(tree, combiner.neutral());
+        Arrays.fill(lazy, updater.neutralUpdate());
+    }
+
+    private int nodeSize(int node) {
+        return size >> (31 - Integer.numberOfLeadingZeros(node));
+    }
+
+    private void pull(int node) {
+        tree[node] = combiner.combine(tree[2 * node], tree[2 * node + 1]);
+    }
+
+    private void applyAll(int node, U update) {
+        tree[node] = updater.applyUpdate(tree[node], update, nodeSize(node));
+        if (node < size) {
+            lazy[node] = updater.composeUpdates(lazy[node], update);
+        }
+    }
+
+    private void pushDown(int node) {
+        if (!lazy[node].equals(updater.neutralUpdate())) {
+            applyAll(2 * node, lazy[node]);
+            applyAll(2 * node + 1, lazy[node]);
+            lazy[node] = updater.neutralUpdate();
+        }
+    }
+
+    private void pushBorders(int l, int r) {
+        for (int i = log; i >= 1; i--) {
+            if (((l >> i) << i) != l) {
+                pushDown(l >> i);
+            }
+            if (((r >> i) << i) != r) {
+                pushDown((r - 1) >> i);
+            }
+        }
+    }
+
+    /**
+     * Queries the aggregate value over the range [l, r).
+     * @param l the left boundary (inclusive)
+     * @param r the right boundary (exclusive)
+     * @return the aggregate value over the range
+     */
+    @Override
+    public T query(int l, int r) {
+        if (l >= r) {
+            return combiner.neutral();
+        }
+        l += size;
+        r += size;
+        pushBorders(l, r);
+        T left = combiner.neutral();
+        T right = combiner.neutral();
+        while (l < r) {
+            if ((l & 1) == 1) {
+                left = combiner.combine(left, tree[l++]);
+            }
+            if ((r & 1) == 1) {
+                right = combiner.combine(tree[--r], right);
+            }
+            l >>= 1;
+            r >>= 1;
+        }
+        return combiner.combine(left, right);
+    }
+
+    /**
+     * Applies an update over the range [l, r).
+     * @param l the left boundary (inclusive)
+     * @param r the right boundary (exclusive)
+     * @param update the update to apply
+     */
+    @Override
+    public void update(int l, int r, U update) {
+        if (l >= r) {
+            return;
+        }
+        l += size;
+        r += size;
+        pushBorders(l, r);
+        for (int a = l, b = r; a < b; a >>= 1, b >>= 1) {
+            if ((a & 1) == 1) {
+                applyAll(a++, update);
+            }
+            if ((b & 1) == 1) {
+                applyAll(--b, update);
+            }
+        }
+        for (int i = 1; i <= log; i++) {
+            if (((l >> i) << i) != l) {
+                pull(l >> i);
+            }
+            if (((r >> i) << i) != r) {
+                pull((r - 1) >> i);
+            }
+        }
+    }
+}
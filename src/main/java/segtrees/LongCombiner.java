@@ -0,0 +1,20 @@
+package segtrees;
+
+/**
+ * Interface for combining primitive long values in the segment tree.
+ */
+public interface LongCombiner {
+    /**
+     * Combines two values into a single value.
+     * @param left the left value
+     * @param right the right value
+     * @return the combined value
+     */
+    long combine(long left, long right);
+
+    /**
+     * Returns the neutral element for the combine operation.
+     * @return the neutral element
+     */
+    long neutral();
+}
@@ -0,0 +1,23 @@
+package segtrees;
+
+/**
+ * A structure over the positions {@code [0, n)} of primitive long values that answers range queries
+ * and applies range updates.
+ */
+public interface LongRangeStructure {
+    /**
+     * Queries the aggregate value over the range [l, r).
+     * @param l the left boundary (inclusive)
+     * @param r the right boundary (exclusive)
+     * @return the aggregate value over the range
+     */
+    long query(int l, int r);
+
+    /**
+     * Applies an update over the range [l, r).
+     * @param l the left boundary (inclusive)
+     * @param r the right boundary (exclusive)
+     * @param update the update to apply
+     */
+    void update(int l, int r, long update);
+}
@@ -0,0 +1,293 @@
+package segtrees;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * A segment tree with lazy propagation over primitive long values, stored off-heap in a memory-mapped file.
+ * Every node is a fixed-width record of its value and its lazy tag, and nodes are addressed by long indices,
+ * so the tree is not limited by the heap size or by the length of a Java array.
+ * The file can be reopened with {@link #open(Path, LongCombiner, LongUpdater)} without rebuilding the tree.
+ */
+public class MappedLongSegmentTree implements Closeable {
+    private static final int MAGIC = 0x53454754;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int NODE_SIZE = 16;
+    private static final int CHUNK_SHIFT = 30;
+    private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] chunks;
+    private final long n;
+    private final long size;
+    private final LongCombiner combiner;
+    private final LongUpdater updater;
+    private final long neutralUpdate;
+
+    private MappedLongSegmentTree(FileChannel channel, long n, LongCombiner combiner, LongUpdater updater)
+            throws IOException {
+        this.channel = channel;
+        this.n = n;
+        this.combiner = combiner;
+        this.updater = updater;
+        this.neutralUpdate = updater.neutralUpdate();
+        this.size = leafCount(n);
+        long fileSize = fileSize(n);
+        this.chunks = new MappedByteBuffer[(int) ((fileSize + CHUNK_MASK) >>> CHUNK_SHIFT)];
+        for (int i = 0; i < chunks.length; i++) {
+            long position = (long) i << CHUNK_SHIFT;
+            chunks[i] = channel.map(FileChannel.MapMode.READ_WRITE, position, Math.min(CHUNK_MASK + 1, fileSize - position));
+            chunks[i].order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    /**
+     * Returns the number of leaves of a tree of n values: the smallest power of two not below n.
+     */
+    private static long leafCount(long n) {
+        long size = 1;
+        while (size < n) {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    /**
+     * Returns the length of the file that stores a tree of n values: the header and 2 * leafCount(n) nodes.
+     */
+    private static long fileSize(long n) {
+        return HEADER_SIZE + 2 * leafCount(n) * NODE_SIZE;
+    }
+
+    /**
+     * Creates a new file-backed segment tree of size n filled with neutral values.
+     * @param path the file to store the tree in; an existing file is overwritten
+     * @param n the size of the tree
+     * @param combiner the combiner for aggregating values
+     * @param updater the updater for applying updates
+     * @return the created tree
+     * @throws IOException if the file cannot be created or mapped
+     */
+    public static MappedLongSegmentTree create(Path path, long n, LongCombiner combiner, LongUpdater updater)
+            throws IOException {
+        long neutral = combiner.neutral();
+        return create(path, n, i -> neutral, combiner, updater);
+    }
+
+    /**
+     * Creates a new file-backed segment tree of size n with the given initial values.
+     * @param path the file to store the tree in; an existing file is overwritten
+     * @param n the size of the tree
+     * @param values the initial value of every position
+     * @param combiner the combiner for aggregating values
+     * @param updater the updater for applying updates
+     * @return the created tree
+     * @throws IOException if the file cannot be created or mapped
+     */
+    public static MappedLongSegmentTree create(Path path, long n, LongUnaryOperator values,
+                                               LongCombiner combiner, LongUpdater updater) throws IOException {
+        if (n < 0 || n > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Size must be between 0 and " + Integer.MAX_VALUE + ": " + n);
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            MappedLongSegmentTree tree = new MappedLongSegmentTree(channel, n, combiner, updater);
+            tree.writeHeader();
+            tree.build(values, 1, 0, tree.size - 1);
+            return tree;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens a file-backed segment tree previously written by {@code create}.
+     * The combiner and updater must have the same neutral elements as the ones the tree was created with.
+     * @param path the file the tree is stored in
+     * @param combiner the combiner for aggregating values
+     * @param updater the updater for applying updates
+     * @return the opened tree
+     * @throws IOException if the file cannot be read, is not a segment tree file or is truncated or corrupted
+     */
+    public static MappedLongSegmentTree open(Path path, LongCombiner combiner, LongUpdater updater)
+            throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long length = channel.size();
+            if (length < HEADER_SIZE) {
+                throw new IOException("Not a segment tree file: " + path);
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IOException("Not a segment tree file: " + path);
+            }
+            long n = header.getLong(8);
+            if (n < 0 || n > Integer.MAX_VALUE) {
+                throw new IOException("Invalid tree size " + n + " in " + path);
+            }
+            // Mapping a shorter file read-write would silently extend it with zeros.
+            if (length != fileSize(n)) {
+                throw new IOException("Segment tree file " + path + " has " + length + " bytes, expected "
+                        + fileSize(n) + " for " + n + " values");
+            }
+            if (header.getLong(16) != combiner.neutral() || header.getLong(24) != updater.neutralUpdate()) {
+                throw new IllegalArgumentException("Combiner or updater does not match the one stored in " + path);
+            }
+            return new MappedLongSegmentTree(channel, n, combiner, updater);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void writeHeader() {
+        MappedByteBuffer header = chunks[0];
+        header.putInt(0, MAGIC);
+        header.putInt(4, VERSION);
+        header.putLong(8, n);
+        header.putLong(16, combiner.neutral());
+        header.putLong(24, neutralUpdate);
+    }
+
+    private long value(long node) {
+        long offset = HEADER_SIZE + node * NODE_SIZE;
+        return chunks[(int) (offset >>> CHUNK_SHIFT)].getLong((int) (offset & CHUNK_MASK));
+    }
+
+    private void setValue(long node, long value) {
+        long offset = HEADER_SIZE + node * NODE_SIZE;
+        chunks[(int) (offset >>> CHUNK_SHIFT)].putLong((int) (offset & CHUNK_MASK), value);
+    }
+
+    private long lazy(long node) {
+        long offset = HEADER_SIZE + node * NODE_SIZE + 8;
+        return chunks[(int) (offset >>> CHUNK_SHIFT)].getLong((int) (offset & CHUNK_MASK));
+    }
+
+    private void setLazy(long node, long update) {
+        long offset = HEADER_SIZE + node * NODE_SIZE + 8;
+        chunks[(int) (offset >>> CHUNK_SHIFT)].putLong((int) (offset & CHUNK_MASK), update);
+    }
+
+    /**
+     * Returns the number of real positions in [start, end]; the padding up to a power of two is not counted.
+     */
+    private int rangeSize(long start, long end) {
+        return (int) (Math.min(end, n - 1) - start + 1);
+    }
+
+    private void build(LongUnaryOperator values, long node, long start, long end) {
+        setLazy(node, neutralUpdate);
+        if (start == end) {
+            setValue(node, start < n ? values.applyAsLong(start) : combiner.neutral());
+        } else {
+            long mid = (start + end) / 2;
+            build(values, 2 * node, start, mid);
+            build(values, 2 * node + 1, mid + 1, end);
+            setValue(node, combiner.combine(value(2 * node), value(2 * node + 1)));
+        }
+    }
+
+    private void pushDown(long node, long start, long end) {
+        long update = lazy(node);
+        if (update != neutralUpdate) {
+            setValue(node, updater.applyUpdate(value(node), update, rangeSize(start, end)));
+            if (start != end) {
+                long mid = (start + end) / 2;
+                setLazy(2 * node, updater.composeUpdates(lazy(2 * node), update));
+                // Nodes that cover only padding keep their neutral value.
+                if (mid + 1 < n) {
+                    setLazy(2 * node + 1, updater.composeUpdates(lazy(2 * node + 1), update));
+                }
+            }
+            setLazy(node, neutralUpdate);
+        }
+    }
+
+    /**
+     * Returns the size of the tree.
+     * @return the number of positions
+     */
+    public long size() {
+        return n;
+    }
+
+    /**
+     * Queries the aggregate value over the range [l, r).
+     * @param l the left boundary (inclusive)
+     * @param r the right boundary (exclusive)
+     * @return the aggregate value over the range
+     */
+    public long query(long l, long r) {
+        return query(1, 0, size - 1, l, r - 1);
+    }
+
+    private long query(long node, long start, long end, long l, long r) {
+        if (r < start || end < l) {
+            return combiner.neutral();
+        }
+        pushDown(node, start, end);
+        if (l <= start && end <= r) {
+            return value(node);
+        }
+        long mid = (start + end) / 2;
+        long left = query(2 * node, start, mid, l, r);
+        long right = query(2 * node + 1, mid + 1, end, l, r);
+        return combiner.combine(left, right);
+    }
+
+    /**
+     * Applies an update over the range [l, r).
+     * @param l the left boundary (inclusive)
+     * @param r the right boundary (exclusive)
+     * @param update the update to apply
+     */
+    public void update(long l, long r, long update) {
+        update(1, 0, size - 1, l, r - 1, update);
+    }
+
+    private void update(long node, long start, long end, long l, long r, long update) {
+        pushDown(node, start, end);
+        if (r < start || end < l) {
+            return;
+        }
+        if (l <= start && end <= r) {
+            setLazy(node, updater.composeUpdates(lazy(node), update));
+            pushDown(node, start, end);
+            return;
+        }
+        long mid = (start + end) / 2;
+        update(2 * node, start, mid, l, r, update);
+        update(2 * node + 1, mid + 1, end, l, r, update);
+        setValue(node, combiner.combine(value(2 * node), value(2 * node + 1)));
+    }
+
+    /**
+     * Writes all changes to the underlying file.
+     */
+    public void force() {
+        for (MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+    }
+
+    /**
+     * Writes all changes to the underlying file and closes it.
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+}
@@ -0,0 +1,232 @@
+package segtrees;
+
+/**
+ * A segment tree over primitive long values that keeps the sum, the minimum and the maximum of every node
+ * with range-add updates.
+ * Each aggregate is stored in its own {@code long[]} array and one add tag per node shifts all of them, so a query
+ * for any subset of the aggregates is answered in a single descent that only reads the arrays it needs and does not
+ * allocate. The count of a range is its length and is not stored.
+ * A node's aggregates already include its own add tag; the tag is pending only for its children and is never
+ * pushed down, so queries do not modify the tree.
+ */
+public class MultiAggregateTree {
+    /**
+     * Selects the sum in {@link #query(int, int, int, Result)}.
+     */
+    public static final int SUM = 1;
+    /**
+     * Selects the minimum in {@link #query(int, int, int, Result)}.
+     */
+    public static final int MIN = 2;
+    /**
+     * Selects the maximum in {@link #query(int, int, int, Result)}.
+     */
+    public static final int MAX = 4;
+    /**
+     * Selects the count in {@link #query(int, int, int, Result)}.
+     */
+    public static final int COUNT = 8;
+    /**
+     * Selects every aggregate.
+     */
+    public static final int ALL = SUM | MIN | MAX | COUNT;
+
+    private final long[] sum;
+    private final long[] min;
+    private final long[] max;
+    private final long[] add;
+    private final int n;
+
+    /**
+     * The aggregates of a range; a result can be reused across queries.
+     * Aggregates that were not selected keep the values of an empty range.
+     */
+    public static final class Result {
+        private long sum;
+        private long min;
+        private long max;
+        private long count;
+
+        /**
+         * Constructs the result of an empty range.
+         */
+        public Result() {
+            reset();
+        }
+
+        private void reset() {
+            sum = 0;
+            min = Long.MAX_VALUE;
+            max = Long.MIN_VALUE;
+            count = 0;
+        }
+
+        /**
+         * Returns the sum, or 0 for an empty range.
+         * @return the sum
+         */
+        public long getSum() {
+            return sum;
+        }
+
+        /**
+         * Returns the minimum, or {@link Long#MAX_VALUE} for an empty range.
+         * @return the minimum
+         */
+        public long getMin() {
+            return min;
+        }
+
+        /**
+         * Returns the maximum, or {@link Long#MIN_VALUE} for an empty range.
+         * @return the maximum
+         */
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * Returns the number of positions.
+         * @return the count
+         */
+        public long getCount() {
+            return count;
+        }
+    }
+
+    /**
+     * Constructs a tree from an array of values.
+     * @param arr the input array
+     */
+    public MultiAggregateTree(long[] arr) {
+        this.n = arr.length;
+        this.sum = new long[4 * n];
+        this.min = new long[4 * n];
+        this.max = new long[4 * n];
+        this.add = new long[4 * n];
+        if (n > 0) {
+            build(arr, 1, 0, n - 1);
+        }
+    }
+
+    /**
+     * Constructs a tree of size n with all values zero.
+     * @param n the size of the tree
+     */
+    public MultiAggregateTree(int n) {
+        this(new long[n]);
+    }
+
+    private void build(long[] arr, int node, int start, int end) {
+        if (start == end) {
+            sum[node] = arr[start];
+            min[node] = arr[start];
+            max[node] = arr[start];
+            return;
+        }
+        int mid = (start + end) / 2;
+        build(arr, 2 * node, start, mid);
+        build(arr, 2 * node + 1, mid + 1, end);
+        pullUp(node, end - start + 1);
+    }
+
+    private void pullUp(int node, int size) {
+        int l = 2 * node;
+        int r = l + 1;
+        sum[node] = sum[l] + sum[r] + add[node] * size;
+        min[node] = Math.min(min[l], min[r]) + add[node];
+        max[node] = Math.max(max[l], max[r]) + add[node];
+    }
+
+    /**
+     * Returns the number of values in the tree.
+     * @return the size of the tree
+     */
+    public int size() {
+        return n;
+    }
+
+    /**
+     * Adds x to every value in the range [l, r).
+     * @param l the left boundary (inclusive)
+     * @param r the right boundary (exclusive)
+     * @param x the value to add
+     */
+    public void add(int l, int r, long x) {
+        if (l < r) {
+            add(1, 0, n - 1, l, r - 1, x);
+        }
+    }
+
+    private void add(int node, int start, int end, int l, int r, long x) {
+        if (r < start || end < l) {
+            return;
+        }
+        if (l <= start && end <= r) {
+            sum[node] += x * (end - start + 1);
+            min[node] += x;
+            max[node] += x;
+            add[node] += x;
+            return;
+        }
+        int mid = (start + end) / 2;
+        add(2 * node, start, mid, l, r, x);
+        add(2 * node + 1, mid + 1, end, l, r, x);
+        pullUp(node, end - start + 1);
+    }
+
+    /**
+     * Queries every aggregate over the range [l, r).
+     * @param l the left boundary (inclusive)
+     * @param r the right boundary (exclusive)
+     * @return a new result with the aggregates over the range
+     */
+    public Result query(int l, int r) {
+        Result result = new Result();
+        query(l, r, ALL, result);
+        return result;
+    }
+
+    /**
+     * Queries the selected aggregates over the range [l, r) into a result, overwriting its previous contents.
+     * @param l the left boundary (inclusive)
+     * @param r the right boundary (exclusive)
+     * @param aggregates the aggregates to compute, a combination of {@link #SUM}, {@link #MIN}, {@link #MAX}
+     *                   and {@link #COUNT}
+     * @param result the result to fill
+     */
+    public void query(int l, int r, int aggregates, Result result) {
+        result.reset();
+        if (l >= r) {
+            return;
+        }
+        if ((aggregates & COUNT) != 0) {
+            result.count = r - l;
+        }
+        if ((aggregates & (SUM | MIN | MAX)) != 0) {
+            query(1, 0, n - 1, l, r - 1, 0, aggregates, result);
+        }
+    }
+
+    private void query(int node, int start, int end, int l, int r, long pending, int aggregates, Result result) {
+        if (r < start || end < l) {
+            return;
+        }
+        if (l <= start && end <= r) {
+            if ((aggregates & SUM) != 0) {
+                result.sum += sum[node] + pending * (end - start + 1);
+            }
+            if ((aggregates & MIN) != 0) {
+                result.min = Math.min(result.min, min[node] + pending);
+            }
+            if ((aggregates & MAX) != 0) {
+                result.max = Math.max(result.max, max[node] + pending);
+            }
+            return;
+        }
+        int mid = (start + end) / 2;
+        long childPending = pending + add[node];
+        query(2 * node, start, mid, l, r, childPending, aggregates, result);
+        query(2 * node + 1, mid + 1, end, l, r, childPending, aggregates, result);
+    }
+}
@@ -0,0 +1,289 @@
+package segtrees;
+
+import java.util.Arrays;
+
+/**
+ * A persistent segment tree with lazy propagation.
+ * Every update copies only the O(log n) nodes on its path, including the children that receive pushed-down
+ * lazy tags, and produces a new version; all earlier versions stay readable.
+ * Nodes are kept in pooled parallel arrays indexed by node id, and a version is just the id of its root,
+ * so taking a snapshot costs O(1).
+ * A node's value already includes its own lazy tag; the tag is pending only for its children.
+ * @param <T> the type of the values stored in the tree
+ * @param <U> the type of the updates to be applied
+ */
+public class PersistentSegmentTree<T, U> {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] left;
+    private int[] right;
+    private T[] values;
+    private U[] lazy;
+    private int nodeCount;
+    private int[] roots;
+    private int versionCount;
+    private final int n;
+    private final Combiner<T> combiner;
+    private final Updater<T, U> updater;
+
+    /**
+     * Constructs a persistent segment tree whose version 0 holds the given array.
+     * @param arr the input array
+     * @param combiner the combiner for aggregating values
+     * @param updater the updater for applying updates
+     */
+    public PersistentSegmentTree(T[] arr, Combiner<T> combiner, Updater<T, U> updater) {
+        this(arr.length, combiner, updater, arr);
+    }
+
+    /**
+     * Constructs a persistent segment tree whose version 0 has n neutral values.
+     * @param n the size of the tree
+     * @param combiner the combiner for aggregating values
+     * @param updater the updater for applying updates
+     */
+    public PersistentSegmentTree(int n, Combiner<T> combiner, Updater<T, U> updater) {
+        this(n, combiner, updater, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private PersistentSegmentTree(int n, Combiner<T> combiner, Updater<T, U> updater, T[] arr) {
+        this.n = n;
+        this.combiner = combiner;
+        this.updater = updater;
+        int capacity = Math.max(INITIAL_CAPACITY, 2 * n);
+        this.left = new int[capacity];
+        this.right = new int[capacity];
+        this.values = (T[]) new Object[capacity];
+        this.lazy = (U[]) new Object[capacity];
+        this.roots = new int[INITIAL_CAPACITY];
+        roots[versionCount++] = n == 0 ? newNode(combiner.neutral(), -1, -1) : build(arr, 0, n - 1);
+    }
+
+    private int build(T[] arr, int start, int end) {
+        if (start == end) {
+            return newNode(arr == null ? combiner.neutral() : arr[start], -1, -1);
+        }
+        int mid = (start + end) / 2;
+        int l = build(arr, start, mid);
+        int r = build(arr, mid + 1, end);
+        return newNode(combiner.combine(values[l], values[r]), l, r);
+    }
+
+    private int newNode(T value, int l, int r) {
+        if (nodeCount == values.length) {
+            int capacity = 2 * values.length;
+            left = Arrays.copyOf(left, capacity);
+            right = Arrays.copyOf(right, capacity);
+            values = Arrays.copyOf(values, capacity);
+            lazy = Arrays.copyOf(lazy, capacity);
+        }
+        left[nodeCount] = l;
+        right[nodeCount] = r;
+        values[nodeCount] = value;
+        lazy[nodeCount] = updater.neutralUpdate();
+        return nodeCount++;
+    }
+
+    /**
+     * Returns a copy of the node with the update applied to its value and composed into its lazy tag.
+     */
+    private int applied(int node, U update, int start, int end) {
+        int copy = newNode(updater.applyUpdate(values[node], update, end - start + 1), left[node], right[node]);
+        if (start != end) {
+            lazy[copy] = updater.composeUpdates(lazy[node], update);
+        }
+        return copy;
+    }
+
+    /**
+     * Returns the number of versions; valid versions are {@code 0} to {@code versionCount() - 1}.
+     * @return the number of versions
+     */
+    public int versionCount() {
+        return versionCount;
+    }
+
+    /**
+     * Returns the latest version.
+     * @return the latest version
+     */
+    public int latestVersion() {
+        return versionCount - 1;
+    }
+
+    /**
+     * Queries the aggregate value over the range [l, r) as of the given version.
+     * @param version the version to query
+     * @param l the left boundary (inclusive)
+     * @param r the right boundary (exclusive)
+     * @return the aggregate value over the range
+     */
+    public T query(int version, int l, int r) {
+        return query(root(version), 0, n - 1, l, r - 1, updater.neutralUpdate());
+    }
+
+    private T query(int node, int start, int end, int l, int r, U pending) {
+        if (r < start || end < l) {
+            return combiner.neutral();
+        }
+        boolean neutralPending = pending.equals(updater.neutralUpdate());
+        if (l <= start && end <= r) {
+            return neutralPending ? values[node] : updater.applyUpdate(values[node], pending, end - start + 1);
+        }
+        U childPending = neutralPending ? lazy[node] : updater.composeUpdates(lazy[node], pending);
+        int mid = (start + end) / 2;
+        T leftValue = query(left[node], start, mid, l, r, childPending);
+        T rightValue = query(right[node], mid + 1, end, l, r, childPending);
+        return combiner.combine(leftValue, rightValue);
+    }
+
+    /**
+     * Applies an update over the range [l, r) to the given version and stores the result as a new version.
+     * The given version is left unchanged.
+     * @param version the version to update
+     * @param l the left boundary (inclusive)
+     * @param r the right boundary (exclusive)
+     * @param update the update to apply
+     * @return the new version
+     */
+    public int update(int version, int l, int r, U update) {
+        int root = update(root(version), 0, n - 1, l, r - 1, update);
+        if (versionCount == roots.length) {
+            roots = Arrays.copyOf(roots, 2 * roots.length);
+        }
+        roots[versionCount] = root;
+        return versionCount++;
+    }
+
+    private int update(int node, int start, int end, int l, int r, U update) {
+        if (r < start || end < l) {
+            return node;
+        }
+        if (l <= start && end <= r) {
+            return applied(node, update, start, end);
+        }
+        int mid = (start + end) / 2;
+        int leftChild = left[node];
+        int rightChild = right[node];
+        if (!lazy[node].equals(updater.neutralUpdate())) {
+            leftChild = applied(leftChild, lazy[node], start, mid);
+            rightChild = applied(rightChild, lazy[node], mid + 1, end);
+        }
+        leftChild = update(leftChild, start, mid, l, r, update);
+        rightChild = update(rightChild, mid + 1, end, l, r, update);
+        return newNode(combiner.combine(values[leftChild], values[rightChild]), leftChild, rightChild);
+    }
+
+    /**
+     * Returns the number of allocated nodes across all versions.
+     * @return the number of nodes
+     */
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Returns a read-only view of the given version.
+     * Nodes are never modified once created, so the view stays valid and can be queried from any thread
+     * without locks while this tree keeps being updated, provided it is published to them safely.
+     * @param version the version to view
+     * @return the view of the version
+     */
+    public Snapshot<T, U> snapshot(int version) {
+        return new Snapshot<>(this, root(version));
+    }
+
+    /**
+     * An immutable view of one version of a {@link PersistentSegmentTree}.
+     * It keeps the node arrays the tree had when the view was taken, so later growth of the tree does not affect it.
+     * @param <T> the type of the values stored in the tree
+     * @param <U> the type of the updates to be applied
+     */
+    public static final class Snapshot<T, U> {
+        private final int[] left;
+        private final int[] right;
+        private final T[] values;
+        private final U[] lazy;
+        private final int root;
+        private final int n;
+        private final Combiner<T> combiner;
+        private final Updater<T, U> updater;
+
+        private Snapshot(PersistentSegmentTree<T, U> tree, int root) {
+            this.left = tree.left;
+            this.right = tree.right;
+            this.values = tree.values;
+            this.lazy = tree.lazy;
+            this.root = root;
+            this.n = tree.n;
+            this.combiner = tree.combiner;
+            this.updater = tree.updater;
+        }
+
+        /**
+         * Returns the number of values in the view.
+         * @return the size of the view
+         */
+        public int size() {
+            return n;
+        }
+
+        /**
+         * Queries the aggregate value over the range [l, r).
+         * @param l the left boundary (inclusive)
+         * @param r the right boundary (exclusive)
+         * @return the aggregate value over the range
+         */
+        public T query(int l, int r) {
+            return query(root, 0, n - 1, l, r - 1, updater.neutralUpdate());
+        }
+
+        private T query(int node, int start, int end, int l, int r, U pending) {
+            if (r < start || end < l) {
+                return combiner.neutral();
+            }
+            boolean neutralPending = pending.equals(updater.neutralUpdate());
+            if (l <= start && end <= r) {
+                return neutralPending ? values[node] : updater.applyUpdate(values[node], pending, end - start + 1);
+            }
+            U childPending = neutralPending ? lazy[node] : updater.composeUpdates(lazy[node], pending);
+            int mid = (start + end) / 2;
+            T leftValue = query(left[node], start, mid, l, r, childPending);
+            T rightValue = query(right[node], mid + 1, end, l, r, childPending);
+            return combiner.combine(leftValue, rightValue);
+        }
+
+        /**
+         * Returns the values of all positions, in order.
+         * @return a new array with the values
+         */
+        @SuppressWarnings("unchecked")
+        public T[] toArray() {
+            T[] out = (T[]) new Object[n];
+            if (n > 0) {
+                collect(root, 0, n - 1, updater.neutralUpdate(), out);
+            }
+            return out;
+        }
+
+        private void collect(int node, int start, int end, U pending, T[] out) {
+            boolean neutralPending = pending.equals(updater.neutralUpdate());
+            if (start == end) {
+                out[start] = neutralPending ? values[node] : updater.applyUpdate(values[node], pending, 1);
+                return;
+            }
+            U childPending = neutralPending ? lazy[node] : updater.composeUpdates(lazy[node], pending);
+            int mid = (start + end) / 2;
+            collect(left[node], start, mid, childPending, out);
+            collect(right[node], mid + 1, end, childPending, out);
+        }
+    }
+
+    private int root(int version) {
+        if (version < 0 || version >= versionCount) {
+            throw new IndexOutOfBoundsException("Version " + version + " out of bounds for " + versionCount + " versions");
+        }
+        return roots[version];
+    }
+}
@@ -0,0 +1,61 @@
+package segtrees;
+
+/**
+ * A structure over the positions {@code [0, n)} that answers range queries and applies range updates.
+ * Use {@link #create(Object[], Combiner, Updater)} to get the fastest engine for a combiner and an updater.
+ * @param <T> the type of the values stored in the structure
+ * @param <U> the type of the updates to be applied
+ */
+public interface RangeStructure<T, U> {
+    /**
+     * Queries the aggregate value over the range [l, r).
+     * @param l the left boundary (inclusive)
+     * @param r the right boundary (exclusive)
+     * @return the aggregate value over the range
+     */
+    T query(int l, int r);
+
+    /**
+     * Applies an update over the range [l, r).
+     * @param l the left boundary (inclusive)
+     * @param r the right boundary (exclusive)
+     * @param update the update to apply
+     */
+    void update(int l, int r, U update);
+
+    /**
+     * Creates a range structure from an array of values.
+     * Returns a {@link FenwickTree} if the combiner is invertible and the updater is additive,
+     * and a {@link SegmentTree} otherwise.
+     * @param arr the input array
+     * @param combiner the combiner for aggregating values
+     * @param updater the updater for applying updates
+     * @param <T> the type of the values stored in the structure
+     * @param <U> the type of the updates to be applied
+     * @return the created structure
+     */
+    static <T, U> RangeStructure<T, U> create(T[] arr, Combiner<T> combiner, Updater<T, U> updater) {
+        if (combiner.isInvertible() && updater.isAdditive()) {
+            return new FenwickTree<>(arr, combiner, updater);
+        }
+        return new SegmentTree<>(arr, combiner, updater);
+    }
+
+    /**
+     * Creates a range structure of size n with default values.
+     * Returns a {@link FenwickTree} if the combiner is invertible and the updater is additive,
+     * and a {@link SegmentTree} otherwise.
+     * @param n the size of the structure
+     * @param combiner the combiner for aggregating values
+     * @param updater the updater for applying updates
+     * @param <T> the type of the values stored in the structure
+     * @param <U> the type of the updates to be applied
+     * @return the created structure
+     */
+    static <T, U> RangeStructure<T, U> create(int n, Combiner<T> combiner, Updater<T, U> updater) {
+        if (combiner.isInvertible() && updater.isAdditive()) {
+            return new FenwickTree<>(n, combiner, updater);
+        }
+        return new SegmentTree<>(n, combiner, updater);
+    }
+}
@@ -1,18 +1,50 @@
 package segtrees;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.stream.StreamSupport;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
 
 /**
  * A generic segment tree implementation with lazy propagation.
  * @param <T> the type of the values stored in the tree
  * @param <U> the type of the updates to be applied
  */
-public class SegmentTree<T, U> {
+public class SegmentTree<T, U> implements RangeStructure<T, U> {
+    private static final int PARALLEL_THRESHOLD = 1 << 13;
+
     private final T[] tree;
     private final U[] lazy;
     private final int n;
     private final Combiner<T> combiner;
     private final Updater<T, U> updater;
+    private final U neutralUpdate;
+    private final boolean commutative;
+    private final boolean assignment;
+    private final boolean neutralByReference;
+    private SegmentTreeListener listener;
+    private long nodesVisited;
+    private long pushDowns;
+    private long composeCalls;
+    private long combineCalls;
 
     /**
      * Constructs a segment tree from an array of values.
@@ -25,9 +57,13 @@ public class SegmentTree<T, U> {
         this.n = arr.length;
         this.combiner = combiner;
         this.updater = updater;
+        this.neutralUpdate = updater.neutralUpdate();
+        this.commutative = updater.isCommutative();
+        this.assignment = updater.isAssignment();
+        this.neutralByReference = updater.isNeutralByReference();
         this.tree = (T[]) new Object[4 * n];
         this.lazy = (U[]) new Object[4 * n];
-        Arrays.fill(lazy, updater.neutralUpdate());
+        Arrays.fill(lazy, neutralUpdate);
         build(arr, 1, 0, n - 1);
     }
 
@@ -42,12 +78,53 @@ public class SegmentTree<T, U> {
         this.n = n;
         this.combiner = combiner;
         this.updater = updater;
+        this.neutralUpdate = updater.neutralUpdate();
+        this.commutative = updater.isCommutative();
+        this.assignment = updater.isAssignment();
+        this.neutralByReference = updater.isNeutralByReference();
         this.tree = (T[]) new Object[4 * n];
         this.lazy = (U[]) new Object[4 * n];
-        Arrays.fill(lazy, updater.neutralUpdate());
+        Arrays.fill(lazy, neutralUpdate);
         Arrays.fill(tree, combiner.neutral());
     }
 
+    /**
+     * Constructs a segment tree from an array of values, building independent subtrees in parallel.
+     * @param arr the input array
+     * @param combiner the combiner for aggregating values
+     * @param updater the updater for applying updates
+     * @param pool the pool to build the tree on
+     */
+    @SuppressWarnings("unchecked")
+    public SegmentTree(T[] arr, Combiner<T> combiner, Updater<T, U> updater, ForkJoinPool pool) {
+        this.n = arr.length;
+        this.combiner = combiner;
+        this.updater = updater;
+        this.neutralUpdate = updater.neutralUpdate();
+        this.commutative = updater.isCommutative();
+        this.assignment = updater.isAssignment();
+        this.neutralByReference = updater.isNeutralByReference();
+        this.tree = (T[]) new Object[4 * n];
+        this.lazy = (U[]) new Object[4 * n];
+        if (n > 0) {
+            pool.invoke(new BuildTask(i -> arr[i], 1, 0, n - 1));
+        }
+    }
+
+    /**
+     * Constructs a segment tree from the values of an ordered spliterator.
+     * The values are collected and the tree is built in parallel.
+     * @param values the input values in index order
+     * @param combiner the combiner for aggregating values
+     * @param updater the updater for applying updates
+     * @param pool the pool to collect the values and build the tree on
+     */
+    @SuppressWarnings("unchecked")
+    public SegmentTree(Spliterator<? extends T> values, Combiner<T> combiner, Updater<T, U> updater,
+                       ForkJoinPool pool) {
+        this((T[]) pool.submit(() -> StreamSupport.stream(values, true).toArray()).join(), combiner, updater, pool);
+    }
+
     private void build(T[] arr, int node, int start, int end) {
         if (start == end) {
             tree[node] = arr[start];
@@ -59,28 +136,266 @@ public class SegmentTree<T, U> {
         }
     }
 
+    private void build(IntFunction<? extends T> leaves, int node, int start, int end) {
+        lazy[node] = neutralUpdate;
+        if (start == end) {
+            tree[node] = leaves.apply(start);
+        } else {
+            int mid = (start + end) / 2;
+            build(leaves, 2 * node, start, mid);
+            build(leaves, 2 * node + 1, mid + 1, end);
+            tree[node] = combiner.combine(tree[2 * node], tree[2 * node + 1]);
+        }
+    }
+
+    /**
+     * Builds the subtree of a node, forking the two child subtrees while they are larger than the threshold.
+     */
+    @SuppressWarnings("serial")
+    private final class BuildTask extends RecursiveAction {
+        private final IntFunction<? extends T> leaves;
+        private final int node;
+        private final int start;
+        private final int end;
+
+        BuildTask(IntFunction<? extends T> leaves, int node, int start, int end) {
+            this.leaves = leaves;
+            this.node = node;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start < PARALLEL_THRESHOLD) {
+                build(leaves, node, start, end);
+                return;
+            }
+            int mid = (start + end) / 2;
+            invokeAll(new BuildTask(leaves, 2 * node, start, mid), new BuildTask(leaves, 2 * node + 1, mid + 1, end));
+            lazy[node] = neutralUpdate;
+            tree[node] = combiner.combine(tree[2 * node], tree[2 * node + 1]);
+        }
+    }
+
+    /**
+     * Replaces all values with the values of the array and drops pending updates.
+     * The existing storage is reused and the tree is rebuilt in parallel on the common pool.
+     * @param arr the new values; its length must equal the size of the tree
+     */
+    public void assignAll(T[] arr) {
+        assignAll(arr, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Replaces all values with the values of the array and drops pending updates.
+     * The existing storage is reused and the tree is rebuilt in parallel.
+     * @param arr the new values; its length must equal the size of the tree
+     * @param pool the pool to rebuild the tree on
+     */
+    public void assignAll(T[] arr, ForkJoinPool pool) {
+        if (arr.length != n) {
+            throw new IllegalArgumentException("Expected " + n + " values, got " + arr.length);
+        }
+        if (n > 0) {
+            pool.invoke(new BuildTask(i -> arr[i], 1, 0, n - 1));
+        }
+    }
+
+    /**
+     * Sets every position to the value and drops pending updates.
+     * The existing storage is reused and the tree is rebuilt in parallel on the common pool.
+     * @param value the new value of every position
+     */
+    public void fill(T value) {
+        if (n > 0) {
+            ForkJoinPool.commonPool().invoke(new BuildTask(i -> value, 1, 0, n - 1));
+        }
+    }
+
+    /**
+     * Writes the tree, including pending updates, to a binary snapshot.
+     * Only the nodes in use are written, in depth-first order, each as its value followed by its pending update.
+     * The snapshot can be restored with {@link #load(Path, Combiner, Updater, Codec, Codec)} without rebuilding the tree.
+     * @param path the file to write; an existing file is overwritten
+     * @param valueCodec the codec for the values
+     * @param updateCodec the codec for the updates
+     * @throws IOException if the file cannot be written
+     */
+    public void save(Path path, Codec<T> valueCodec, Codec<U> updateCodec) throws IOException {
+        try (OutputStream file = new BufferedOutputStream(Files.newOutputStream(path), Snapshots.BUFFER_SIZE)) {
+            CRC32 crc = new CRC32();
+            DataOutputStream out = new DataOutputStream(new CheckedOutputStream(file, crc));
+            out.writeInt(Snapshots.MAGIC);
+            out.writeInt(Snapshots.VERSION);
+            out.writeByte(Snapshots.GENERIC);
+            out.writeInt(n);
+            valueCodec.write(out, combiner.neutral());
+            updateCodec.write(out, neutralUpdate);
+            if (n > 0) {
+                save(out, valueCodec, updateCodec, 1, 0, n - 1);
+            }
+            out.flush();
+            new DataOutputStream(file).writeInt((int) crc.getValue());
+        }
+    }
+
+    private void save(DataOutput out, Codec<T> valueCodec, Codec<U> updateCodec, int node, int start, int end)
+            throws IOException {
+        valueCodec.write(out, tree[node]);
+        updateCodec.write(out, lazy[node]);
+        if (start != end) {
+            int mid = (start + end) / 2;
+            save(out, valueCodec, updateCodec, 2 * node, start, mid);
+            save(out, valueCodec, updateCodec, 2 * node + 1, mid + 1, end);
+        }
+    }
+
+    /**
+     * Reads a tree written by {@link #save(Path, Codec, Codec)}.
+     * The combiner and updater must have the same neutral elements as the ones of the saved tree,
+     * and the codecs must write at least one byte per value or update.
+     * @param path the file to read
+     * @param combiner the combiner for aggregating values
+     * @param updater the updater for applying updates
+     * @param valueCodec the codec for the values
+     * @param updateCodec the codec for the updates
+     * @param <T> the type of the values stored in the tree
+     * @param <U> the type of the updates to be applied
+     * @return the restored tree
+     * @throws IOException if the file cannot be read, is not a snapshot of this kind of tree or is corrupted
+     */
+    public static <T, U> SegmentTree<T, U> load(Path path, Combiner<T> combiner, Updater<T, U> updater,
+                                                Codec<T> valueCodec, Codec<U> updateCodec) throws IOException {
+        try (InputStream file = new BufferedInputStream(Files.newInputStream(path), Snapshots.BUFFER_SIZE)) {
+            CRC32 crc = new CRC32();
+            DataInputStream in = new DataInputStream(new CheckedInputStream(file, crc));
+            Snapshots.checkHeader(in.readInt(), in.readInt(), in.readByte(), Snapshots.GENERIC, path);
+            int n = Snapshots.checkSize(in.readInt(), path);
+            // Every leaf record holds at least one byte, so a larger size can only come from a corrupted header.
+            if (n > Files.size(path)) {
+                throw new IOException("Snapshot " + path + " is too short for " + n + " values");
+            }
+            if (!valueCodec.read(in).equals(combiner.neutral()) || !updateCodec.read(in).equals(updater.neutralUpdate())) {
+                throw new IllegalArgumentException("Combiner or updater does not match the one stored in " + path);
+            }
+            SegmentTree<T, U> result = new SegmentTree<>(n, combiner, updater);
+            if (n > 0) {
+                result.load(in, valueCodec, updateCodec, 1, 0, n - 1);
+            }
+            int expected = (int) crc.getValue();
+            if (new DataInputStream(file).readInt() != expected) {
+                throw new IOException("Snapshot checksum mismatch: " + path);
+            }
+            if (file.read() != -1) {
+                throw new IOException("Unexpected data after the end of snapshot: " + path);
+            }
+            return result;
+        }
+    }
+
+    private void load(DataInput in, Codec<T> valueCodec, Codec<U> updateCodec, int node, int start, int end)
+            throws IOException {
+        tree[node] = valueCodec.read(in);
+        lazy[node] = updateCodec.read(in);
+        if (start != end) {
+            int mid = (start + end) / 2;
+            load(in, valueCodec, updateCodec, 2 * node, start, mid);
+            load(in, valueCodec, updateCodec, 2 * node + 1, mid + 1, end);
+        }
+    }
+
+    /**
+     * Attaches a listener that is notified after every call of {@link #query(int, int)} and
+     * {@link #update(int, int, Object)} with the per-operation counters.
+     * Other operations, such as batches, point access and searches, are not reported.
+     * Counting is done only while a listener is attached.
+     * @param listener the listener, or null to detach the current one
+     */
+    public void setListener(SegmentTreeListener listener) {
+        this.listener = listener;
+    }
+
+    private long startOperation() {
+        nodesVisited = 0;
+        pushDowns = 0;
+        composeCalls = 0;
+        combineCalls = 0;
+        return System.nanoTime();
+    }
+
+    private void finishOperation(SegmentTreeListener.Operation operation, int l, int r, long started) {
+        long nanos = System.nanoTime() - started;
+        listener.onOperation(operation, l, r, nanos, nodesVisited, pushDowns, composeCalls, combineCalls);
+    }
+
+    private T combine(T left, T right) {
+        if (listener != null) {
+            combineCalls++;
+        }
+        return combiner.combine(left, right);
+    }
+
+    private boolean isNeutral(U update) {
+        return neutralByReference ? update == neutralUpdate : update.equals(neutralUpdate);
+    }
+
+    private U compose(U current, U next) {
+        if (isNeutral(next)) {
+            return current;
+        }
+        if (assignment || isNeutral(current)) {
+            return next;
+        }
+        if (listener != null) {
+            composeCalls++;
+        }
+        return updater.composeUpdates(current, next);
+    }
+
+    /**
+     * Returns the value of a node with its own pending update applied.
+     */
+    private T effective(int node, int start, int end) {
+        return isNeutral(lazy[node]) ? tree[node] : updater.applyUpdate(tree[node], lazy[node], end - start + 1);
+    }
+
     private void pushDown(int node, int start, int end) {
-        if (!lazy[node].equals(updater.neutralUpdate())) {
+        if (!isNeutral(lazy[node])) {
+            if (listener != null) {
+                pushDowns++;
+            }
             tree[node] = updater.applyUpdate(tree[node], lazy[node], end - start + 1);
             if (start != end) {
-                lazy[2 * node] = updater.composeUpdates(lazy[2 * node], lazy[node]);
-                lazy[2 * node + 1] = updater.composeUpdates(lazy[2 * node + 1], lazy[node]);
+                lazy[2 * node] = compose(lazy[2 * node], lazy[node]);
+                lazy[2 * node + 1] = compose(lazy[2 * node + 1], lazy[node]);
             }
-            lazy[node] = updater.neutralUpdate();
+            lazy[node] = neutralUpdate;
         }
     }
 
     /**
      * Queries the aggregate value over the range [l, r).
+     * If the updater is commutative, the query does not push pending updates down and leaves the tree unchanged.
      * @param l the left boundary (inclusive)
      * @param r the right boundary (exclusive)
      * @return the aggregate value over the range
      */
+    @Override
     public T query(int l, int r) {
-        return query(1, 0, n - 1, l, r - 1);
+        if (listener == null) {
+            return commutative ? queryReadOnly(l, r) : query(1, 0, n - 1, l, r - 1);
+        }
+        long started = startOperation();
+        T result = commutative ? queryReadOnly(l, r) : query(1, 0, n - 1, l, r - 1);
+        finishOperation(SegmentTreeListener.Operation.QUERY, l, r, started);
+        return result;
     }
 
     private T query(int node, int start, int end, int l, int r) {
+        if (listener != null) {
+            nodesVisited++;
+        }
         pushDown(node, start, end);
         if (r < start || end < l) {
             return combiner.neutral();
@@ -91,32 +406,495 @@ public class SegmentTree<T, U> {
         int mid = (start + end) / 2;
         T left = query(2 * node, start, mid, l, r);
         T right = query(2 * node + 1, mid + 1, end, l, r);
-        return combiner.combine(left, right);
+        return combine(left, right);
+    }
+
+    /**
+     * Queries the aggregate value over the range [l, r) without modifying the tree.
+     * Pending updates are applied on the fly instead of being pushed down,
+     * so several threads may call this method on the same tree at once.
+     * @param l the left boundary (inclusive)
+     * @param r the right boundary (exclusive)
+     * @return the aggregate value over the range
+     */
+    T queryReadOnly(int l, int r) {
+        return queryReadOnly(1, 0, n - 1, l, r - 1, neutralUpdate);
+    }
+
+    private T queryReadOnly(int node, int start, int end, int l, int r, U pending) {
+        if (listener != null) {
+            nodesVisited++;
+        }
+        if (r < start || end < l) {
+            return combiner.neutral();
+        }
+        U update = isNeutral(pending) ? lazy[node] : compose(lazy[node], pending);
+        if (l <= start && end <= r) {
+            return isNeutral(update)
+                    ? tree[node]
+                    : updater.applyUpdate(tree[node], update, end - start + 1);
+        }
+        int mid = (start + end) / 2;
+        T left = queryReadOnly(2 * node, start, mid, l, r, update);
+        T right = queryReadOnly(2 * node + 1, mid + 1, end, l, r, update);
+        return combine(left, right);
     }
 
     /**
      * Applies an update over the range [l, r).
+     * If the updater is commutative, pending updates stay in place instead of being pushed down.
      * @param l the left boundary (inclusive)
      * @param r the right boundary (exclusive)
      * @param update the update to apply
      */
+    @Override
     public void update(int l, int r, U update) {
-        update(1, 0, n - 1, l, r - 1, update);
+        if (isNeutral(update)) {
+            return;
+        }
+        long started = listener == null ? 0 : startOperation();
+        if (commutative) {
+            updateInPlace(1, 0, n - 1, l, r - 1, update);
+        } else {
+            update(1, 0, n - 1, l, r - 1, update);
+        }
+        if (listener != null) {
+            finishOperation(SegmentTreeListener.Operation.UPDATE, l, r, started);
+        }
+    }
+
+    /**
+     * Applies an update without pushing pending updates down.
+     * Tags of ancestors are then older than tags of their descendants, which is only valid for commutative updates.
+     */
+    private void updateInPlace(int node, int start, int end, int l, int r, U update) {
+        if (listener != null) {
+            nodesVisited++;
+        }
+        if (r < start || end < l) {
+            return;
+        }
+        if (l <= start && end <= r) {
+            lazy[node] = compose(lazy[node], update);
+            return;
+        }
+        int mid = (start + end) / 2;
+        updateInPlace(2 * node, start, mid, l, r, update);
+        updateInPlace(2 * node + 1, mid + 1, end, l, r, update);
+        tree[node] = combine(effective(2 * node, start, mid), effective(2 * node + 1, mid + 1, end));
     }
 
     private void update(int node, int start, int end, int l, int r, U update) {
+        if (listener != null) {
+            nodesVisited++;
+        }
         pushDown(node, start, end);
         if (r < start || end < l) {
             return;
         }
         if (l <= start && end <= r) {
-            lazy[node] = updater.composeUpdates(lazy[node], update);
+            lazy[node] = compose(lazy[node], update);
             pushDown(node, start, end);
             return;
         }
         int mid = (start + end) / 2;
         update(2 * node, start, mid, l, r, update);
         update(2 * node + 1, mid + 1, end, l, r, update);
-        tree[node] = combiner.combine(tree[2 * node], tree[2 * node + 1]);
+        tree[node] = combine(tree[2 * node], tree[2 * node + 1]);
+    }
+
+    /**
+     * Returns the value at position i.
+     * The pending updates on the path to the leaf are composed on the way down, so the tree is left unchanged.
+     * @param i the position
+     * @return the value at the position
+     */
+    public T get(int i) {
+        Objects.checkIndex(i, n);
+        int node = 1;
+        int start = 0;
+        int end = n - 1;
+        U pending = neutralUpdate;
+        while (true) {
+            pending = isNeutral(pending) ? lazy[node] : compose(lazy[node], pending);
+            if (start == end) {
+                return isNeutral(pending) ? tree[node] : updater.applyUpdate(tree[node], pending, 1);
+            }
+            int mid = (start + end) / 2;
+            if (i <= mid) {
+                node = 2 * node;
+                end = mid;
+            } else {
+                node = 2 * node + 1;
+                start = mid + 1;
+            }
+        }
+    }
+
+    /**
+     * Replaces the value at position i.
+     * Only the path to the leaf is visited, and its ancestors are recomputed once on the way back.
+     * @param i the position
+     * @param value the new value
+     */
+    public void set(int i, T value) {
+        Objects.checkIndex(i, n);
+        set(1, 0, n - 1, i, value);
+    }
+
+    private void set(int node, int start, int end, int i, T value) {
+        pushDown(node, start, end);
+        if (start == end) {
+            tree[node] = value;
+            return;
+        }
+        int mid = (start + end) / 2;
+        if (i <= mid) {
+            set(2 * node, start, mid, i, value);
+        } else {
+            set(2 * node + 1, mid + 1, end, i, value);
+        }
+        tree[node] = combine(effective(2 * node, start, mid), effective(2 * node + 1, mid + 1, end));
+    }
+
+    /**
+     * Replaces the values at the positions idx[i] with values[i]; if a position repeats, the last write wins.
+     * All writes are applied in a single traversal, so every ancestor of the written leaves is recomputed once.
+     * @param idx the positions
+     * @param values the new values
+     */
+    public void setAll(int[] idx, T[] values) {
+        if (idx.length != values.length) {
+            throw new IllegalArgumentException("Batch arrays must have the same length");
+        }
+        int[] ids = batchBuffer(idx.length);
+        for (int i = 0; i < idx.length; i++) {
+            Objects.checkIndex(idx[i], n);
+            ids[i] = i;
+        }
+        if (idx.length > 0) {
+            setAll(1, 0, n - 1, ids, 0, idx.length, idx.length, idx, values);
+        }
+    }
+
+    /**
+     * Applies the writes in {@code ids[from, from + count)} that fall into the node; the buffer is free from top on.
+     */
+    private void setAll(int node, int start, int end, int[] ids, int from, int count, int top, int[] idx, T[] values) {
+        pushDown(node, start, end);
+        if (start == end) {
+            for (int k = from + count - 1; k >= from; k--) {
+                if (idx[ids[k]] == start) {
+                    tree[node] = values[ids[k]];
+                    return;
+                }
+            }
+            return;
+        }
+        int mid = (start + end) / 2;
+        int copied = top;
+        for (int k = from; k < from + count; k++) {
+            int i = idx[ids[k]];
+            if (start <= i && i <= mid) {
+                ids[copied++] = ids[k];
+            }
+        }
+        if (copied > top) {
+            if (worthCopying(copied - top, count)) {
+                setAll(2 * node, start, mid, ids, top, copied - top, copied, idx, values);
+            } else {
+                setAll(2 * node, start, mid, ids, from, count, top, idx, values);
+            }
+        }
+        copied = top;
+        for (int k = from; k < from + count; k++) {
+            int i = idx[ids[k]];
+            if (mid < i && i <= end) {
+                ids[copied++] = ids[k];
+            }
+        }
+        if (copied > top) {
+            if (worthCopying(copied - top, count)) {
+                setAll(2 * node + 1, mid + 1, end, ids, top, copied - top, copied, idx, values);
+            } else {
+                setAll(2 * node + 1, mid + 1, end, ids, from, count, top, idx, values);
+            }
+        }
+        tree[node] = combine(effective(2 * node, start, mid), effective(2 * node + 1, mid + 1, end));
+    }
+
+    /**
+     * Finds the largest r such that the predicate holds for the aggregate value over [l, r).
+     * The predicate must hold for the neutral element and, once it fails for [l, r),
+     * it must fail for every longer range [l, r'). The tree is descended once, in O(log n).
+     * @param l the left boundary (inclusive)
+     * @param predicate the predicate on aggregate values
+     * @return the largest right boundary (exclusive) in [l, n] for which the predicate holds
+     */
+    public int maxRight(int l, Predicate<T> predicate) {
+        if (l == n) {
+            return n;
+        }
+        Object[] acc = {combiner.neutral()};
+        int r = maxRight(1, 0, n - 1, l, predicate, acc);
+        return r == -1 ? n : r;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int maxRight(int node, int start, int end, int l, Predicate<T> predicate, Object[] acc) {
+        if (end < l) {
+            return -1;
+        }
+        pushDown(node, start, end);
+        if (l <= start) {
+            T candidate = combine((T) acc[0], tree[node]);
+            if (predicate.test(candidate)) {
+                acc[0] = candidate;
+                return -1;
+            }
+            if (start == end) {
+                return start;
+            }
+        }
+        int mid = (start + end) / 2;
+        int r = maxRight(2 * node, start, mid, l, predicate, acc);
+        return r != -1 ? r : maxRight(2 * node + 1, mid + 1, end, l, predicate, acc);
+    }
+
+    /**
+     * Finds the smallest l such that the predicate holds for the aggregate value over [l, r).
+     * The predicate must hold for the neutral element and, once it fails for [l, r),
+     * it must fail for every longer range [l', r). The tree is descended once, in O(log n).
+     * @param r the right boundary (exclusive)
+     * @param predicate the predicate on aggregate values
+     * @return the smallest left boundary (inclusive) in [0, r] for which the predicate holds
+     */
+    public int minLeft(int r, Predicate<T> predicate) {
+        if (r == 0) {
+            return 0;
+        }
+        Object[] acc = {combiner.neutral()};
+        int l = minLeft(1, 0, n - 1, r - 1, predicate, acc);
+        return l == -1 ? 0 : l;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int minLeft(int node, int start, int end, int r, Predicate<T> predicate, Object[] acc) {
+        if (r < start) {
+            return -1;
+        }
+        pushDown(node, start, end);
+        if (end <= r) {
+            T candidate = combine(tree[node], (T) acc[0]);
+            if (predicate.test(candidate)) {
+                acc[0] = candidate;
+                return -1;
+            }
+            if (start == end) {
+                return start + 1;
+            }
+        }
+        int mid = (start + end) / 2;
+        int l = minLeft(2 * node + 1, mid + 1, end, r, predicate, acc);
+        return l != -1 ? l : minLeft(2 * node, start, mid, r, predicate, acc);
+    }
+
+    /**
+     * Finds the first index in [l, r) whose value satisfies the predicate.
+     * The predicate must hold for an aggregate value whenever it holds for one of the values it aggregates,
+     * as "less than a threshold" does for minimums; subtrees whose aggregate fails the predicate are skipped.
+     * @param l the left boundary (inclusive)
+     * @param r the right boundary (exclusive)
+     * @param predicate the predicate on values
+     * @return the first matching index, or -1 if there is none
+     */
+    public int findFirst(int l, int r, Predicate<T> predicate) {
+        if (l >= r) {
+            return -1;
+        }
+        return findFirst(1, 0, n - 1, l, r - 1, predicate);
+    }
+
+    private int findFirst(int node, int start, int end, int l, int r, Predicate<T> predicate) {
+        if (r < start || end < l) {
+            return -1;
+        }
+        pushDown(node, start, end);
+        if (!predicate.test(tree[node])) {
+            return -1;
+        }
+        if (start == end) {
+            return start;
+        }
+        int mid = (start + end) / 2;
+        int index = findFirst(2 * node, start, mid, l, r, predicate);
+        return index != -1 ? index : findFirst(2 * node + 1, mid + 1, end, l, r, predicate);
+    }
+
+    /**
+     * Applies a batch of updates, the i-th one over the range [ls[i], rs[i]).
+     * The result is the same as calling {@link #update(int, int, Object)} for every i in order,
+     * but the whole batch is applied in a single traversal of the tree.
+     * @param ls the left boundaries (inclusive)
+     * @param rs the right boundaries (exclusive)
+     * @param updates the updates to apply
+     */
+    public void updateBatch(int[] ls, int[] rs, U[] updates) {
+        if (ls.length != rs.length || ls.length != updates.length) {
+            throw new IllegalArgumentException("Batch arrays must have the same length");
+        }
+        int[] ids = batchBuffer(ls.length);
+        int count = 0;
+        for (int i = 0; i < ls.length; i++) {
+            if (ls[i] < rs[i] && !isNeutral(updates[i])) {
+                ids[count++] = i;
+            }
+        }
+        if (count > 0) {
+            updateBatch(1, 0, n - 1, ids, 0, count, count, ls, rs, updates);
+        }
+    }
+
+    /**
+     * Applies the updates in {@code ids[from, from + count)}, in order, to the node; the buffer is free from top on.
+     * Entries that do not intersect the node are skipped, and none of them covers the node's parent.
+     */
+    private void updateBatch(int node, int start, int end, int[] ids, int from, int count, int top,
+                             int[] ls, int[] rs, U[] updates) {
+        pushDown(node, start, end);
+        int stop = from + count;
+        int i = from;
+        while (i < stop) {
+            int id = ids[i];
+            if (rs[id] <= start || end < ls[id]) {
+                i++;
+                continue;
+            }
+            if (ls[id] <= start && end < rs[id]) {
+                lazy[node] = compose(lazy[node], updates[id]);
+                i++;
+                continue;
+            }
+            int j = i;
+            while (j < stop && !(ls[ids[j]] <= start && end < rs[ids[j]])) {
+                j++;
+            }
+            pushDown(node, start, end);
+            int mid = (start + end) / 2;
+            int copied = top;
+            for (int k = i; k < j; k++) {
+                if (ls[ids[k]] <= mid && start < rs[ids[k]]) {
+                    ids[copied++] = ids[k];
+                }
+            }
+            if (worthCopying(copied - top, j - i)) {
+                updateBatch(2 * node, start, mid, ids, top, copied - top, copied, ls, rs, updates);
+            } else {
+                updateBatch(2 * node, start, mid, ids, i, j - i, top, ls, rs, updates);
+            }
+            copied = top;
+            for (int k = i; k < j; k++) {
+                if (mid + 1 < rs[ids[k]] && ls[ids[k]] <= end) {
+                    ids[copied++] = ids[k];
+                }
+            }
+            if (worthCopying(copied - top, j - i)) {
+                updateBatch(2 * node + 1, mid + 1, end, ids, top, copied - top, copied, ls, rs, updates);
+            } else {
+                updateBatch(2 * node + 1, mid + 1, end, ids, i, j - i, top, ls, rs, updates);
+            }
+            tree[node] = combine(tree[2 * node], tree[2 * node + 1]);
+            i = j;
+        }
+        pushDown(node, start, end);
+    }
+
+    /**
+     * Answers a batch of queries, the i-th one over the range [ls[i], rs[i]).
+     * All queries are answered in a single traversal of the tree.
+     * @param ls the left boundaries (inclusive)
+     * @param rs the right boundaries (exclusive)
+     * @param out the array to store the aggregate values in
+     */
+    public void queryBatch(int[] ls, int[] rs, T[] out) {
+        if (ls.length != rs.length || ls.length != out.length) {
+            throw new IllegalArgumentException("Batch arrays must have the same length");
+        }
+        int[] ids = batchBuffer(ls.length);
+        int count = 0;
+        for (int i = 0; i < ls.length; i++) {
+            out[i] = combiner.neutral();
+            if (ls[i] < rs[i]) {
+                ids[count++] = i;
+            }
+        }
+        if (count > 0) {
+            // The root has no parent; an empty parent range that no query covers stands in for it.
+            queryBatch(1, 0, n - 1, 0, n, ids, 0, count, count, ls, rs, out);
+        }
+    }
+
+    /**
+     * Answers the queries in {@code ids[from, from + count)} for the node; the buffer is free from top on.
+     * Entries that do not intersect the node, or that cover its parent [parentStart, parentEnd] and were answered
+     * there, are skipped.
+     */
+    private void queryBatch(int node, int start, int end, int parentStart, int parentEnd, int[] ids, int from,
+                            int count, int top, int[] ls, int[] rs, T[] out) {
+        pushDown(node, start, end);
+        int stop = from + count;
+        boolean partial = false;
+        for (int k = from; k < stop; k++) {
+            int id = ids[k];
+            if (rs[id] <= start || end < ls[id] || (ls[id] <= parentStart && parentEnd < rs[id])) {
+                continue;
+            }
+            if (ls[id] <= start && end < rs[id]) {
+                out[id] = combine(out[id], tree[node]);
+            } else {
+                partial = true;
+            }
+        }
+        if (!partial) {
+            return;
+        }
+        int mid = (start + end) / 2;
+        for (int half = 0; half < 2; half++) {
+            int childStart = half == 0 ? start : mid + 1;
+            int childEnd = half == 0 ? mid : end;
+            int copied = top;
+            for (int k = from; k < stop; k++) {
+                int id = ids[k];
+                // Partial for this node and reaching into the child; covering the parent is ruled out by the former.
+                if (childStart < rs[id] && ls[id] <= childEnd && start < rs[id] && ls[id] <= end
+                        && !(ls[id] <= start && end < rs[id])) {
+                    ids[copied++] = id;
+                }
+            }
+            if (copied == top) {
+                continue;
+            }
+            if (worthCopying(copied - top, count)) {
+                queryBatch(2 * node + half, childStart, childEnd, start, end, ids, top, copied - top, copied,
+                        ls, rs, out);
+            } else {
+                queryBatch(2 * node + half, childStart, childEnd, start, end, ids, from, count, top, ls, rs, out);
+            }
+        }
+    }
+
+    /**
+     * Allocates the index buffer of a batch of the given size.
+     * The entries a node has to look at are a segment of the buffer. A child gets a copy of the entries that concern
+     * it only if they are at most three quarters of its parent's segment, and otherwise scans its parent's segment
+     * and skips the rest, so the copies along any path from the root fit in {@code 3 * size} more entries, and every
+     * node scans at most 4/3 as many entries as concern it.
+     */
+    private static int[] batchBuffer(int size) {
+        return new int[4 * size];
+    }
+
+    private static boolean worthCopying(int part, int whole) {
+        return 4L * part <= 3L * whole;
     }
-} 
\ No newline at end of file
+}
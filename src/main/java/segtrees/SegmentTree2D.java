@@ -0,0 +1,299 @@
+package segtrees;
+
+import java.util.Arrays;
+
+/**
+ * A two-dimensional segment tree over a grid of {@code rows x cols} cells for rectangle updates and queries.
+ * It is a segment tree over rows whose every node holds two segment trees over columns:
+ * the aggregates of its rows per column, and the updates that covered all of its rows.
+ * Updates are never pushed down in either dimension; instead every node keeps the updates that covered it,
+ * and queries add their contribution for the overlapping part. Both operations take O(log rows * log cols) steps.
+ * This requires an additive updater and a commutative combiner, as for adding to a sum.
+ * The column trees of all row nodes are stored in flat parallel arrays: in {@link Mode#DENSE} mode every column
+ * tree is laid out implicitly at a fixed offset, and in {@link Mode#SPARSE} mode column tree nodes are allocated
+ * from a shared pool only when an update first reaches them, so memory grows with the touched area of the grid.
+ * @param <T> the type of the values stored in the tree
+ * @param <U> the type of the updates to be applied
+ */
+public class SegmentTree2D<T, U> {
+    /**
+     * The storage layout of the column trees.
+     */
+    public enum Mode {
+        /**
+         * All nodes are allocated up front and addressed implicitly.
+         */
+        DENSE,
+        /**
+         * Nodes are allocated from a pool as updates reach them; untouched cells hold the neutral element.
+         */
+        SPARSE
+    }
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int rows;
+    private final int cols;
+    private final int rowSize;
+    private final int colSize;
+    private final boolean sparse;
+    private final int[] roots;
+    private T[] agg;
+    private T[] mark;
+    private int[] left;
+    private int[] right;
+    private int nodeCount;
+    private final Combiner<T> combiner;
+    private final Updater<T, U> updater;
+
+    /**
+     * Constructs a dense two-dimensional segment tree from a grid of values.
+     * @param grid the input grid; all rows must have the same length
+     * @param combiner the commutative combiner for aggregating values
+     * @param updater the additive updater for applying updates
+     * @throws IllegalArgumentException if the updater is not additive or the rows have different lengths
+     */
+    public SegmentTree2D(T[][] grid, Combiner<T> combiner, Updater<T, U> updater) {
+        this(grid.length, grid.length == 0 ? 0 : grid[0].length, Mode.DENSE, combiner, updater);
+        int colNodes = 2 * colSize;
+        for (int i = 0; i < rows; i++) {
+            if (grid[i].length != cols) {
+                throw new IllegalArgumentException("Row " + i + " has " + grid[i].length + " values, expected " + cols);
+            }
+            int base = roots[rowSize + i];
+            System.arraycopy(grid[i], 0, agg, base + colSize, cols);
+            for (int y = colSize - 1; y >= 1; y--) {
+                agg[base + y] = combiner.combine(agg[base + 2 * y], agg[base + 2 * y + 1]);
+            }
+        }
+        for (int x = rowSize - 1; x >= 1; x--) {
+            int base = roots[x];
+            int leftBase = roots[2 * x];
+            int rightBase = roots[2 * x + 1];
+            for (int y = 1; y < colNodes; y++) {
+                agg[base + y] = combiner.combine(agg[leftBase + y], agg[rightBase + y]);
+            }
+        }
+    }
+
+    /**
+     * Constructs an empty two-dimensional segment tree with default values.
+     * @param rows the number of rows
+     * @param cols the number of columns
+     * @param mode the storage layout of the column trees
+     * @param combiner the commutative combiner for aggregating values
+     * @param updater the additive updater for applying updates
+     * @throws IllegalArgumentException if the updater is not additive
+     */
+    @SuppressWarnings("unchecked")
+    public SegmentTree2D(int rows, int cols, Mode mode, Combiner<T> combiner, Updater<T, U> updater) {
+        if (!updater.isAdditive()) {
+            throw new IllegalArgumentException("Two-dimensional segment trees require an additive updater");
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.combiner = combiner;
+        this.updater = updater;
+        this.rowSize = powerOfTwo(rows);
+        this.colSize = powerOfTwo(cols);
+        this.sparse = mode == Mode.SPARSE;
+        // Aggregates of row node x are column tree x; updates covering internal row node x are 2 * rowSize + x.
+        this.roots = new int[3 * rowSize];
+        int capacity;
+        if (sparse) {
+            capacity = INITIAL_CAPACITY;
+            this.left = new int[capacity];
+            this.right = new int[capacity];
+            nodeCount = 1;
+        } else {
+            int colNodes = 2 * colSize;
+            capacity = Math.multiplyExact(roots.length, colNodes);
+            for (int k = 0; k < roots.length; k++) {
+                roots[k] = k * colNodes;
+            }
+        }
+        this.agg = (T[]) new Object[capacity];
+        this.mark = (T[]) new Object[capacity];
+        Arrays.fill(agg, combiner.neutral());
+        Arrays.fill(mark, combiner.neutral());
+    }
+
+    private static int powerOfTwo(int n) {
+        int size = 1;
+        while (size < n) {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    private int newNode() {
+        if (nodeCount == agg.length) {
+            int capacity = 2 * agg.length;
+            left = Arrays.copyOf(left, capacity);
+            right = Arrays.copyOf(right, capacity);
+            agg = Arrays.copyOf(agg, capacity);
+            mark = Arrays.copyOf(mark, capacity);
+            Arrays.fill(agg, nodeCount, capacity, combiner.neutral());
+            Arrays.fill(mark, nodeCount, capacity, combiner.neutral());
+        }
+        return nodeCount++;
+    }
+
+    /**
+     * Returns the root of column tree k, allocating it in sparse mode if {@code create} is set; 0 if it is missing.
+     * In dense mode a column tree is addressed by its base offset, and its node y is stored at {@code base + y}.
+     */
+    private int root(int k, boolean create) {
+        if (!sparse) {
+            return roots[k] + 1;
+        }
+        if (roots[k] == 0 && create) {
+            int node = newNode();
+            roots[k] = node;
+        }
+        return roots[k];
+    }
+
+    private int child(int k, int node, int side, boolean create) {
+        if (!sparse) {
+            return 2 * node - roots[k] + side;
+        }
+        int[] children = side == 0 ? left : right;
+        if (children[node] == 0 && create) {
+            int child = newNode();
+            children = side == 0 ? left : right;
+            children[node] = child;
+        }
+        return children[node];
+    }
+
+    /**
+     * Combines the value with itself k times by repeated doubling.
+     */
+    private T multiply(T value, long k) {
+        T result = combiner.neutral();
+        while (k > 0) {
+            if ((k & 1) == 1) {
+                result = combiner.combine(result, value);
+            }
+            value = combiner.combine(value, value);
+            k >>= 1;
+        }
+        return result;
+    }
+
+    private static int overlap(int start, int len, int l, int r) {
+        return Math.min(r, start + len) - Math.max(l, start);
+    }
+
+    /**
+     * Queries the aggregate value over the rectangle [x1, x2) x [y1, y2).
+     * @param x1 the first row (inclusive)
+     * @param x2 the last row (exclusive)
+     * @param y1 the first column (inclusive)
+     * @param y2 the last column (exclusive)
+     * @return the aggregate value over the rectangle
+     */
+    public T query(int x1, int x2, int y1, int y2) {
+        if (x1 >= x2 || y1 >= y2) {
+            return combiner.neutral();
+        }
+        return query(1, 0, rowSize, x1, x2, y1, y2);
+    }
+
+    private T query(int x, int start, int len, int x1, int x2, int y1, int y2) {
+        int width = overlap(start, len, x1, x2);
+        if (width <= 0) {
+            return combiner.neutral();
+        }
+        if (width == len) {
+            return queryColumns(x, root(x, false), 0, colSize, y1, y2);
+        }
+        int k = 2 * rowSize + x;
+        T covering = multiply(queryColumns(k, root(k, false), 0, colSize, y1, y2), width);
+        int half = len / 2;
+        T leftValue = query(2 * x, start, half, x1, x2, y1, y2);
+        T rightValue = query(2 * x + 1, start + half, half, x1, x2, y1, y2);
+        return combiner.combine(covering, combiner.combine(leftValue, rightValue));
+    }
+
+    private T queryColumns(int k, int node, int start, int len, int l, int r) {
+        int count = overlap(start, len, l, r);
+        if (node == 0 || count <= 0) {
+            return combiner.neutral();
+        }
+        if (count == len) {
+            return agg[node];
+        }
+        int half = len / 2;
+        T leftValue = queryColumns(k, child(k, node, 0, false), start, half, l, r);
+        T rightValue = queryColumns(k, child(k, node, 1, false), start + half, half, l, r);
+        return combiner.combine(multiply(mark[node], count), combiner.combine(leftValue, rightValue));
+    }
+
+    /**
+     * Applies an update to every cell of the rectangle [x1, x2) x [y1, y2).
+     * @param x1 the first row (inclusive)
+     * @param x2 the last row (exclusive)
+     * @param y1 the first column (inclusive)
+     * @param y2 the last column (exclusive)
+     * @param update the update to apply
+     */
+    public void update(int x1, int x2, int y1, int y2, U update) {
+        if (x1 < x2 && y1 < y2) {
+            update(1, 0, rowSize, x1, x2, y1, y2, update);
+        }
+    }
+
+    private void update(int x, int start, int len, int x1, int x2, int y1, int y2, U update) {
+        int width = overlap(start, len, x1, x2);
+        if (width <= 0) {
+            return;
+        }
+        updateColumns(x, root(x, true), 0, colSize, y1, y2, update, width);
+        if (width == len) {
+            if (len > 1) {
+                int k = 2 * rowSize + x;
+                updateColumns(k, root(k, true), 0, colSize, y1, y2, update, 1);
+            }
+            return;
+        }
+        int half = len / 2;
+        update(2 * x, start, half, x1, x2, y1, y2, update);
+        update(2 * x + 1, start + half, half, x1, x2, y1, y2, update);
+    }
+
+    /**
+     * Adds the update, applied to {@code width} cells of every column, to a column tree over [l, r).
+     */
+    private void updateColumns(int k, int node, int start, int len, int l, int r, U update, int width) {
+        int count = overlap(start, len, l, r);
+        if (count <= 0) {
+            return;
+        }
+        T neutral = combiner.neutral();
+        agg[node] = combiner.combine(agg[node], updater.applyUpdate(neutral, update, (long) width * count));
+        if (len == 1) {
+            return;
+        }
+        if (count == len) {
+            mark[node] = combiner.combine(mark[node], updater.applyUpdate(neutral, update, width));
+            return;
+        }
+        int half = len / 2;
+        if (l < start + half) {
+            updateColumns(k, child(k, node, 0, true), start, half, l, r, update, width);
+        }
+        if (start + half < r) {
+            updateColumns(k, child(k, node, 1, true), start + half, half, l, r, update, width);
+        }
+    }
+
+    /**
+     * Returns the number of allocated column tree nodes.
+     * @return the number of nodes
+     */
+    public int nodeCount() {
+        return sparse ? nodeCount - 1 : agg.length;
+    }
+}
@@ -0,0 +1,358 @@
+package segtrees;
+
+/**
+ * A segment tree over primitive long values that supports range chmin, chmax and add
+ * with sum, minimum and maximum queries ("Segment Tree Beats").
+ * Clamping cannot be written as an {@link Updater}, because the result of a chmin on a range depends on more than
+ * its aggregate. Every node therefore keeps its maximum, the strictly smaller second maximum and the count of the
+ * maximum, and the same for the minimum. A chmin to x stops at a node when x lies between the maximum and the second
+ * maximum, where it only lowers the maximum values, and recurses otherwise; each recursion merges distinct values,
+ * so updates take amortized O(log^2 n) time. Pending adds are kept as lazy tags, and pending clamps are implied by
+ * a child's maximum or minimum exceeding its parent's.
+ * A node has a second maximum and a second minimum exactly when its minimum differs from its maximum; otherwise
+ * those entries are meaningless, so every value of a long, including its bounds, can be stored.
+ */
+public class SegmentTreeBeats {
+    private final long[] sum;
+    private final long[] max;
+    private final long[] secondMax;
+    private final int[] maxCount;
+    private final long[] min;
+    private final long[] secondMin;
+    private final int[] minCount;
+    private final long[] add;
+    private final int n;
+
+    /**
+     * Constructs a tree from an array of values.
+     * @param arr the input array
+     */
+    public SegmentTreeBeats(long[] arr) {
+        this.n = arr.length;
+        this.sum = new long[4 * n];
+        this.max = new long[4 * n];
+        this.secondMax = new long[4 * n];
+        this.maxCount = new int[4 * n];
+        this.min = new long[4 * n];
+        this.secondMin = new long[4 * n];
+        this.minCount = new int[4 * n];
+        this.add = new long[4 * n];
+        if (n > 0) {
+            build(arr, 1, 0, n - 1);
+        }
+    }
+
+    /**
+     * Constructs a tree of size n with all values zero.
+     * @param n the size of the tree
+     */
+    public SegmentTreeBeats(int n) {
+        this(new long[n]);
+    }
+
+    private void build(long[] arr, int node, int start, int end) {
+        if (start == end) {
+            sum[node] = arr[start];
+            max[node] = arr[start];
+            min[node] = arr[start];
+            secondMax[node] = arr[start];
+            secondMin[node] = arr[start];
+            maxCount[node] = 1;
+            minCount[node] = 1;
+            return;
+        }
+        int mid = (start + end) / 2;
+        build(arr, 2 * node, start, mid);
+        build(arr, 2 * node + 1, mid + 1, end);
+        pullUp(node);
+    }
+
+    private void pullUp(int node) {
+        int l = 2 * node;
+        int r = l + 1;
+        sum[node] = sum[l] + sum[r];
+        if (max[l] == max[r]) {
+            max[node] = max[l];
+            maxCount[node] = maxCount[l] + maxCount[r];
+            if (isUniform(l)) {
+                secondMax[node] = isUniform(r) ? max[l] : secondMax[r];
+            } else {
+                secondMax[node] = isUniform(r) ? secondMax[l] : Math.max(secondMax[l], secondMax[r]);
+            }
+        } else if (max[l] > max[r]) {
+            max[node] = max[l];
+            secondMax[node] = isUniform(l) ? max[r] : Math.max(secondMax[l], max[r]);
+            maxCount[node] = maxCount[l];
+        } else {
+            max[node] = max[r];
+            secondMax[node] = isUniform(r) ? max[l] : Math.max(max[l], secondMax[r]);
+            maxCount[node] = maxCount[r];
+        }
+        if (min[l] == min[r]) {
+            min[node] = min[l];
+            minCount[node] = minCount[l] + minCount[r];
+            if (isUniform(l)) {
+                secondMin[node] = isUniform(r) ? min[l] : secondMin[r];
+            } else {
+                secondMin[node] = isUniform(r) ? secondMin[l] : Math.min(secondMin[l], secondMin[r]);
+            }
+        } else if (min[l] < min[r]) {
+            min[node] = min[l];
+            secondMin[node] = isUniform(l) ? min[r] : Math.min(secondMin[l], min[r]);
+            minCount[node] = minCount[l];
+        } else {
+            min[node] = min[r];
+            secondMin[node] = isUniform(r) ? min[l] : Math.min(min[l], secondMin[r]);
+            minCount[node] = minCount[r];
+        }
+    }
+
+    /**
+     * Returns whether all values of a node are equal, in which case it has no second maximum or minimum.
+     */
+    private boolean isUniform(int node) {
+        return min[node] == max[node];
+    }
+
+    private void applyAdd(int node, long value, int size) {
+        sum[node] += value * size;
+        max[node] += value;
+        min[node] += value;
+        secondMax[node] += value;
+        secondMin[node] += value;
+        add[node] += value;
+    }
+
+    /**
+     * Lowers the maximum values of a node to x, where {@code x < max[node]} and the node is uniform or
+     * {@code secondMax[node] < x}.
+     */
+    private void applyChmin(int node, long x) {
+        sum[node] -= (max[node] - x) * maxCount[node];
+        if (min[node] == max[node]) {
+            min[node] = x;
+        } else if (secondMin[node] == max[node]) {
+            secondMin[node] = x;
+        }
+        max[node] = x;
+    }
+
+    /**
+     * Raises the minimum values of a node to x, where {@code min[node] < x} and the node is uniform or
+     * {@code x < secondMin[node]}.
+     */
+    private void applyChmax(int node, long x) {
+        sum[node] += (x - min[node]) * minCount[node];
+        if (max[node] == min[node]) {
+            max[node] = x;
+        } else if (secondMax[node] == min[node]) {
+            secondMax[node] = x;
+        }
+        min[node] = x;
+    }
+
+    /**
+     * Pushes the pending add and clamps of a node to its children.
+     * The children are clamped before the add, to the node's bounds shifted back by the add, so that a value
+     * that the clamp replaces cannot overflow when the add is applied to it. If a shifted bound does not fit in a
+     * long, the child is uniform and is clamped again after the add.
+     */
+    private void pushDown(int node, int start, int mid, int end) {
+        int l = 2 * node;
+        int r = l + 1;
+        long shift = add[node];
+        long upper = subtractSaturated(max[node], shift);
+        long lower = subtractSaturated(min[node], shift);
+        for (int child = l; child <= r; child++) {
+            if (max[child] > upper) {
+                applyChmin(child, upper);
+            }
+            if (min[child] < lower) {
+                applyChmax(child, lower);
+            }
+            if (shift != 0) {
+                applyAdd(child, shift, child == l ? mid - start + 1 : end - mid);
+            }
+            if (max[child] > max[node]) {
+                applyChmin(child, max[node]);
+            }
+            if (min[child] < min[node]) {
+                applyChmax(child, min[node]);
+            }
+        }
+        add[node] = 0;
+    }
+
+    private static long subtractSaturated(long x, long y) {
+        long difference = x - y;
+        if (((x ^ y) & (x ^ difference)) < 0) {
+            return x < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+        return difference;
+    }
+
+    /**
+     * Returns the number of values in the tree.
+     * @return the size of the tree
+     */
+    public int size() {
+        return n;
+    }
+
+    /**
+     * Replaces every value v in the range [l, r) with {@code min(v, x)}.
+     * @param l the left boundary (inclusive)
+     * @param r the right boundary (exclusive)
+     * @param x the upper bound
+     */
+    public void chmin(int l, int r, long x) {
+        if (l < r) {
+            chmin(1, 0, n - 1, l, r - 1, x);
+        }
+    }
+
+    private void chmin(int node, int start, int end, int l, int r, long x) {
+        if (r < start || end < l || max[node] <= x) {
+            return;
+        }
+        if (l <= start && end <= r && (isUniform(node) || secondMax[node] < x)) {
+            applyChmin(node, x);
+            return;
+        }
+        int mid = (start + end) / 2;
+        pushDown(node, start, mid, end);
+        chmin(2 * node, start, mid, l, r, x);
+        chmin(2 * node + 1, mid + 1, end, l, r, x);
+        pullUp(node);
+    }
+
+    /**
+     * Replaces every value v in the range [l, r) with {@code max(v, x)}.
+     * @param l the left boundary (inclusive)
+     * @param r the right boundary (exclusive)
+     * @param x the lower bound
+     */
+    public void chmax(int l, int r, long x) {
+        if (l < r) {
+            chmax(1, 0, n - 1, l, r - 1, x);
+        }
+    }
+
+    private void chmax(int node, int start, int end, int l, int r, long x) {
+        if (r < start || end < l || min[node] >= x) {
+            return;
+        }
+        if (l <= start && end <= r && (isUniform(node) || secondMin[node] > x)) {
+            applyChmax(node, x);
+            return;
+        }
+        int mid = (start + end) / 2;
+        pushDown(node, start, mid, end);
+        chmax(2 * node, start, mid, l, r, x);
+        chmax(2 * node + 1, mid + 1, end, l, r, x);
+        pullUp(node);
+    }
+
+    /**
+     * Adds x to every value in the range [l, r).
+     * @param l the left boundary (inclusive)
+     * @param r the right boundary (exclusive)
+     * @param x the value to add
+     */
+    public void add(int l, int r, long x) {
+        if (l < r) {
+            add(1, 0, n - 1, l, r - 1, x);
+        }
+    }
+
+    private void add(int node, int start, int end, int l, int r, long x) {
+        if (r < start || end < l) {
+            return;
+        }
+        if (l <= start && end <= r) {
+            applyAdd(node, x, end - start + 1);
+            return;
+        }
+        int mid = (start + end) / 2;
+        pushDown(node, start, mid, end);
+        add(2 * node, start, mid, l, r, x);
+        add(2 * node + 1, mid + 1, end, l, r, x);
+        pullUp(node);
+    }
+
+    /**
+     * Queries the sum over the range [l, r).
+     * @param l the left boundary (inclusive)
+     * @param r the right boundary (exclusive)
+     * @return the sum over the range, or 0 if it is empty
+     */
+    public long querySum(int l, int r) {
+        return l < r ? querySum(1, 0, n - 1, l, r - 1) : 0;
+    }
+
+    private long querySum(int node, int start, int end, int l, int r) {
+        if (r < start || end < l) {
+            return 0;
+        }
+        if (l <= start && end <= r) {
+            return sum[node];
+        }
+        int mid = (start + end) / 2;
+        pushDown(node, start, mid, end);
+        return querySum(2 * node, start, mid, l, r) + querySum(2 * node + 1, mid + 1, end, l, r);
+    }
+
+    /**
+     * Queries the minimum over the range [l, r).
+     * @param l the left boundary (inclusive)
+     * @param r the right boundary (exclusive)
+     * @return the minimum over the range
+     * @throws IllegalArgumentException if the range is empty
+     */
+    public long queryMin(int l, int r) {
+        checkNonEmpty(l, r);
+        return queryMin(1, 0, n - 1, l, r - 1);
+    }
+
+    private long queryMin(int node, int start, int end, int l, int r) {
+        if (r < start || end < l) {
+            return Long.MAX_VALUE;
+        }
+        if (l <= start && end <= r) {
+            return min[node];
+        }
+        int mid = (start + end) / 2;
+        pushDown(node, start, mid, end);
+        return Math.min(queryMin(2 * node, start, mid, l, r), queryMin(2 * node + 1, mid + 1, end, l, r));
+    }
+
+    /**
+     * Queries the maximum over the range [l, r).
+     * @param l the left boundary (inclusive)
+     * @param r the right boundary (exclusive)
+     * @return the maximum over the range
+     * @throws IllegalArgumentException if the range is empty
+     */
+    public long queryMax(int l, int r) {
+        checkNonEmpty(l, r);
+        return queryMax(1, 0, n - 1, l, r - 1);
+    }
+
+    private long queryMax(int node, int start, int end, int l, int r) {
+        if (r < start || end < l) {
+            return Long.MIN_VALUE;
+        }
+        if (l <= start && end <= r) {
+            return max[node];
+        }
+        int mid = (start + end) / 2;
+        pushDown(node, start, mid, end);
+        return Math.max(queryMax(2 * node, start, mid, l, r), queryMax(2 * node + 1, mid + 1, end, l, r));
+    }
+
+    private static void checkNonEmpty(int l, int r) {
+        if (l >= r) {
+            throw new IllegalArgumentException("Empty range: [" + l + ", " + r + ")");
+        }
+    }
+}
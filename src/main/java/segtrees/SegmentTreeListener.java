@@ -0,0 +1,30 @@
+package segtrees;
+
+/**
+ * Listener notified after every {@link SegmentTree#query(int, int)} and {@link SegmentTree#update(int, int, Object)}
+ * call of a tree it is attached to; other operations of the tree are not reported.
+ * It is called on the thread that performed the operation.
+ */
+public interface SegmentTreeListener {
+    /**
+     * The kind of a tree operation.
+     */
+    enum Operation {
+        QUERY,
+        UPDATE
+    }
+
+    /**
+     * Called after an operation over the range [l, r) completes.
+     * @param operation the kind of the operation
+     * @param l the left boundary (inclusive)
+     * @param r the right boundary (exclusive)
+     * @param nanos the duration of the operation in nanoseconds
+     * @param nodesVisited the number of tree nodes the operation visited
+     * @param pushDowns the number of pending updates applied while pushing them down
+     * @param composeCalls the number of {@link Updater#composeUpdates(Object, Object)} calls
+     * @param combineCalls the number of {@link Combiner#combine(Object, Object)} calls
+     */
+    void onOperation(Operation operation, int l, int r, long nanos,
+                     long nodesVisited, long pushDowns, long composeCalls, long combineCalls);
+}
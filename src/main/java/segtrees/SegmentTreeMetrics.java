@@ -0,0 +1,130 @@
+package segtrees;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link SegmentTreeListener} that aggregates operation counters and log2 histograms
+ * of latency and visited nodes, and can publish them through JMX.
+ * One instance may be shared by several trees and threads.
+ */
+public class SegmentTreeMetrics implements SegmentTreeListener, SegmentTreeMetricsMBean {
+    private static final int BUCKETS = 64;
+
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder updates = new LongAdder();
+    private final LongAdder nodesVisited = new LongAdder();
+    private final LongAdder pushDowns = new LongAdder();
+    private final LongAdder composeCalls = new LongAdder();
+    private final LongAdder combineCalls = new LongAdder();
+    private final LongAdder latencyNanos = new LongAdder();
+    private final AtomicLongArray latencyHistogram = new AtomicLongArray(BUCKETS);
+    private final AtomicLongArray nodesVisitedHistogram = new AtomicLongArray(BUCKETS);
+
+    @Override
+    public void onOperation(Operation operation, int l, int r, long nanos,
+                            long nodesVisited, long pushDowns, long composeCalls, long combineCalls) {
+        (operation == Operation.QUERY ? queries : updates).increment();
+        this.nodesVisited.add(nodesVisited);
+        this.pushDowns.add(pushDowns);
+        this.composeCalls.add(composeCalls);
+        this.combineCalls.add(combineCalls);
+        latencyNanos.add(nanos);
+        latencyHistogram.incrementAndGet(bucket(nanos));
+        nodesVisitedHistogram.incrementAndGet(bucket(nodesVisited));
+    }
+
+    private static int bucket(long value) {
+        return value <= 0 ? 0 : 64 - Long.numberOfLeadingZeros(value);
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server under
+     * {@code segtrees:type=SegmentTree,name=<name>}.
+     * @param name the name of the metrics
+     * @return the name the metrics were registered under
+     * @throws JMException if the metrics cannot be registered
+     */
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName = new ObjectName("segtrees:type=SegmentTree,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    @Override
+    public long getQueryCount() {
+        return queries.sum();
+    }
+
+    @Override
+    public long getUpdateCount() {
+        return updates.sum();
+    }
+
+    @Override
+    public long getNodesVisited() {
+        return nodesVisited.sum();
+    }
+
+    @Override
+    public long getPushDowns() {
+        return pushDowns.sum();
+    }
+
+    @Override
+    public long getComposeCalls() {
+        return composeCalls.sum();
+    }
+
+    @Override
+    public long getCombineCalls() {
+        return combineCalls.sum();
+    }
+
+    @Override
+    public long getTotalLatencyNanos() {
+        return latencyNanos.sum();
+    }
+
+    @Override
+    public double getMeanLatencyNanos() {
+        long operations = queries.sum() + updates.sum();
+        return operations == 0 ? 0 : (double) latencyNanos.sum() / operations;
+    }
+
+    @Override
+    public long[] getLatencyHistogram() {
+        return snapshot(latencyHistogram);
+    }
+
+    @Override
+    public long[] getNodesVisitedHistogram() {
+        return snapshot(nodesVisitedHistogram);
+    }
+
+    private static long[] snapshot(AtomicLongArray histogram) {
+        long[] result = new long[histogram.length()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = histogram.get(i);
+        }
+        return result;
+    }
+
+    @Override
+    public void reset() {
+        queries.reset();
+        updates.reset();
+        nodesVisited.reset();
+        pushDowns.reset();
+        composeCalls.reset();
+        combineCalls.reset();
+        latencyNanos.reset();
+        for (int i = 0; i < BUCKETS; i++) {
+            latencyHistogram.set(i, 0);
+            nodesVisitedHistogram.set(i, 0);
+        }
+    }
+}
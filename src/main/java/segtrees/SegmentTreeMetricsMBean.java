@@ -0,0 +1,62 @@
+package segtrees;
+
+/**
+ * JMX view of {@link SegmentTreeMetrics}.
+ * Histograms have one bucket per power of two: bucket i counts samples in [2^(i-1), 2^i), bucket 0 counts zeros.
+ */
+public interface SegmentTreeMetricsMBean {
+    /**
+     * Returns the number of queries.
+     */
+    long getQueryCount();
+
+    /**
+     * Returns the number of updates.
+     */
+    long getUpdateCount();
+
+    /**
+     * Returns the total number of nodes visited by all operations.
+     */
+    long getNodesVisited();
+
+    /**
+     * Returns the total number of pending updates applied while pushing them down.
+     */
+    long getPushDowns();
+
+    /**
+     * Returns the total number of update compositions.
+     */
+    long getComposeCalls();
+
+    /**
+     * Returns the total number of value combinations.
+     */
+    long getCombineCalls();
+
+    /**
+     * Returns the total duration of all operations in nanoseconds.
+     */
+    long getTotalLatencyNanos();
+
+    /**
+     * Returns the mean duration of an operation in nanoseconds.
+     */
+    double getMeanLatencyNanos();
+
+    /**
+     * Returns the histogram of operation durations in nanoseconds.
+     */
+    long[] getLatencyHistogram();
+
+    /**
+     * Returns the histogram of the number of nodes visited per operation.
+     */
+    long[] getNodesVisitedHistogram();
+
+    /**
+     * Resets all counters and histograms to zero.
+     */
+    void reset();
+}
@@ -0,0 +1,598 @@
+package segtrees;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An asynchronous update front-end for a segment tree with a single writer and lock-free readers.
+ * Producers put updates into a bounded queue, which blocks or rejects them when full. One writer thread drains
+ * the queue in batches, skips neutral updates, coalesces updates to identical ranges with
+ * {@link Updater#composeUpdates(Object, Object)} and drops assignments hidden by a later assignment to an enclosing
+ * range, then applies the rest to a
+ * {@link PersistentSegmentTree} and publishes the new version as the next epoch.
+ * Readers query the published {@link PersistentSegmentTree.Snapshot}, which never changes, so they take no locks
+ * and always see the state after a whole number of batches. When the persistent tree has grown too large,
+ * the writer rebuilds it from the latest epoch; old snapshots stay valid and are reclaimed once unreachable.
+ * If the combiner or updater throws, the writer records the failure, fails pending and later flushes and keeps
+ * discarding queued requests until the pipeline is closed, so producers never wait forever.
+ * @param <T> the type of the values stored in the tree
+ * @param <U> the type of the updates to be applied
+ */
+public class SegmentTreePipeline<T, U> implements AutoCloseable {
+    private static final int DEFAULT_MAX_BATCH = 1024;
+    private static final int COMPACTION_FACTOR = 8;
+
+    private final BlockingQueue<Request<U>> queue;
+    private final Thread writer;
+    private final int maxBatch;
+    private final Combiner<T> combiner;
+    private final Updater<T, U> updater;
+    private final boolean commutative;
+    private final boolean assignment;
+    private final U neutralUpdate;
+    private PersistentSegmentTree<T, U> tree;
+    private int version;
+    private final int compactionThreshold;
+    private volatile PersistentSegmentTree.Snapshot<T, U> published;
+    private volatile long epoch;
+    private volatile boolean closed;
+    private volatile boolean finished;
+    private volatile Throwable failure;
+    private final ReentrantReadWriteLock stateLock = new ReentrantReadWriteLock();
+    private final Object epochMonitor = new Object();
+    private final long startedNanos = System.nanoTime();
+    private final AtomicLong submitted = new AtomicLong();
+    private long applied;
+    private long coalesced;
+    private long totalLatencyNanos;
+    private long maxLatencyNanos;
+
+    /**
+     * A queued update, or a flush or close marker if {@code done} is set.
+     */
+    private static final class Request<U> {
+        final int l;
+        final int r;
+        final U update;
+        final long enqueuedNanos;
+        final CompletableFuture<Long> done;
+        final boolean close;
+
+        Request(int l, int r, U update, CompletableFuture<Long> done, boolean close) {
+            this.l = l;
+            this.r = r;
+            this.update = update;
+            this.enqueuedNanos = System.nanoTime();
+            this.done = done;
+            this.close = close;
+        }
+    }
+
+    /**
+     * Statistics of a pipeline at one moment.
+     */
+    public static final class Stats {
+        private final long submitted;
+        private final long applied;
+        private final long coalesced;
+        private final long epoch;
+        private final double updatesPerSecond;
+        private final double meanLatencyNanos;
+        private final long maxLatencyNanos;
+
+        private Stats(long submitted, long applied, long coalesced, long epoch, double updatesPerSecond,
+                      double meanLatencyNanos, long maxLatencyNanos) {
+            this.submitted = submitted;
+            this.applied = applied;
+            this.coalesced = coalesced;
+            this.epoch = epoch;
+            this.updatesPerSecond = updatesPerSecond;
+            this.meanLatencyNanos = meanLatencyNanos;
+            this.maxLatencyNanos = maxLatencyNanos;
+        }
+
+        /**
+         * Returns the number of updates accepted into the queue.
+         * @return the number of submitted updates
+         */
+        public long getSubmitted() {
+            return submitted;
+        }
+
+        /**
+         * Returns the number of updates published, including the ones merged into others.
+         * @return the number of applied updates
+         */
+        public long getApplied() {
+            return applied;
+        }
+
+        /**
+         * Returns the number of updates merged into another update or dropped as overwritten.
+         * @return the number of coalesced updates
+         */
+        public long getCoalesced() {
+            return coalesced;
+        }
+
+        /**
+         * Returns the latest published epoch.
+         * @return the epoch
+         */
+        public long getEpoch() {
+            return epoch;
+        }
+
+        /**
+         * Returns the number of applied updates per second since the pipeline started.
+         * @return the throughput
+         */
+        public double getUpdatesPerSecond() {
+            return updatesPerSecond;
+        }
+
+        /**
+         * Returns the mean time from submitting an update to publishing it, in nanoseconds.
+         * @return the mean latency
+         */
+        public double getMeanLatencyNanos() {
+            return meanLatencyNanos;
+        }
+
+        /**
+         * Returns the longest time from submitting an update to publishing it, in nanoseconds.
+         * @return the maximum latency
+         */
+        public long getMaxLatencyNanos() {
+            return maxLatencyNanos;
+        }
+    }
+
+    /**
+     * Constructs a pipeline over an array of values with a daemon writer thread.
+     * @param arr the input array
+     * @param capacity the maximum number of queued updates
+     * @param combiner the combiner for aggregating values
+     * @param updater the updater for applying updates
+     */
+    public SegmentTreePipeline(T[] arr, int capacity, Combiner<T> combiner, Updater<T, U> updater) {
+        this(arr, capacity, task -> {
+            Thread thread = new Thread(task, "segtree-pipeline-writer");
+            thread.setDaemon(true);
+            return thread;
+        }, combiner, updater);
+    }
+
+    /**
+     * Constructs a pipeline over an array of values.
+     * The writer thread is created by the factory, which may for example create virtual threads.
+     * @param arr the input array
+     * @param capacity the maximum number of queued updates
+     * @param threadFactory the factory for the writer thread
+     * @param combiner the combiner for aggregating values
+     * @param updater the updater for applying updates
+     */
+    public SegmentTreePipeline(T[] arr, int capacity, ThreadFactory threadFactory,
+                               Combiner<T> combiner, Updater<T, U> updater) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.maxBatch = Math.min(capacity, DEFAULT_MAX_BATCH);
+        this.combiner = combiner;
+        this.updater = updater;
+        this.commutative = updater.isCommutative();
+        this.assignment = updater.isAssignment();
+        this.neutralUpdate = updater.neutralUpdate();
+        this.tree = new PersistentSegmentTree<>(arr, combiner, updater);
+        this.compactionThreshold = COMPACTION_FACTOR * Math.max(tree.nodeCount(), 1 << 10);
+        this.published = tree.snapshot(version);
+        this.writer = threadFactory.newThread(this::drain);
+        writer.start();
+    }
+
+    /**
+     * Queues an update over the range [l, r), waiting while the queue is full.
+     * @param l the left boundary (inclusive)
+     * @param r the right boundary (exclusive)
+     * @param update the update to apply
+     * @throws InterruptedException if interrupted while waiting
+     * @throws IllegalStateException if the pipeline is closed
+     */
+    public void submit(int l, int r, U update) throws InterruptedException {
+        Lock lock = stateLock.readLock();
+        lock.lockInterruptibly();
+        try {
+            checkOpen();
+            queue.put(new Request<>(l, r, update, null, false));
+        } finally {
+            lock.unlock();
+        }
+        submitted.incrementAndGet();
+    }
+
+    /**
+     * Queues an update over the range [l, r) if the queue has room.
+     * @param l the left boundary (inclusive)
+     * @param r the right boundary (exclusive)
+     * @param update the update to apply
+     * @return false if the queue is full and the update was rejected
+     * @throws IllegalStateException if the pipeline is closed
+     */
+    public boolean offer(int l, int r, U update) {
+        Lock lock = stateLock.readLock();
+        lock.lock();
+        try {
+            checkOpen();
+            if (!queue.offer(new Request<>(l, r, update, null, false))) {
+                return false;
+            }
+        } finally {
+            lock.unlock();
+        }
+        submitted.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Queues an update over the range [l, r), waiting up to the timeout while the queue is full.
+     * @param l the left boundary (inclusive)
+     * @param r the right boundary (exclusive)
+     * @param update the update to apply
+     * @param timeout the maximum time to wait
+     * @param unit the unit of the timeout
+     * @return false if the queue stayed full and the update was rejected
+     * @throws InterruptedException if interrupted while waiting
+     * @throws IllegalStateException if the pipeline is closed
+     */
+    public boolean offer(int l, int r, U update, long timeout, TimeUnit unit) throws InterruptedException {
+        Lock lock = stateLock.readLock();
+        lock.lockInterruptibly();
+        try {
+            checkOpen();
+            if (!queue.offer(new Request<>(l, r, update, null, false), timeout, unit)) {
+                return false;
+            }
+        } finally {
+            lock.unlock();
+        }
+        submitted.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Throws if requests can no longer be queued; called under the read lock of {@code stateLock},
+     * so no request is queued after the close marker.
+     */
+    private void checkOpen() {
+        if (failure != null) {
+            throw new IllegalStateException("Pipeline writer failed", failure);
+        }
+        if (closed) {
+            throw new IllegalStateException("Pipeline is closed");
+        }
+    }
+
+    /**
+     * Waits until every update queued by this thread before the call is published.
+     * @return the epoch that includes the updates
+     * @throws InterruptedException if interrupted while waiting
+     * @throws IllegalStateException if the pipeline is closed or its writer failed
+     */
+    public long flush() throws InterruptedException {
+        CompletableFuture<Long> done = new CompletableFuture<>();
+        Lock lock = stateLock.readLock();
+        lock.lockInterruptibly();
+        try {
+            checkOpen();
+            queue.put(new Request<>(0, 0, null, done, false));
+        } finally {
+            lock.unlock();
+        }
+        try {
+            return done.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Pipeline writer failed", e.getCause());
+        }
+    }
+
+    /**
+     * Waits until the given epoch or a later one is published.
+     * @param target the epoch to wait for
+     * @throws InterruptedException if interrupted while waiting
+     * @throws IllegalStateException if the writer failed or stopped before publishing the epoch
+     */
+    public void awaitEpoch(long target) throws InterruptedException {
+        synchronized (epochMonitor) {
+            while (epoch < target) {
+                if (failure != null) {
+                    throw new IllegalStateException("Pipeline writer failed", failure);
+                }
+                if (finished) {
+                    throw new IllegalStateException("Pipeline closed before epoch " + target);
+                }
+                epochMonitor.wait();
+            }
+        }
+    }
+
+    /**
+     * Returns the latest published epoch; epoch 0 is the initial array.
+     * @return the epoch
+     */
+    public long epoch() {
+        return epoch;
+    }
+
+    /**
+     * Returns the view published with the latest epoch; it never changes and may be queried repeatedly.
+     * @return the latest view
+     */
+    public PersistentSegmentTree.Snapshot<T, U> snapshot() {
+        return published;
+    }
+
+    /**
+     * Queries the aggregate value over the range [l, r) in the latest epoch.
+     * @param l the left boundary (inclusive)
+     * @param r the right boundary (exclusive)
+     * @return the aggregate value over the range
+     */
+    public T query(int l, int r) {
+        return published.query(l, r);
+    }
+
+    /**
+     * Returns the current statistics.
+     * @return the statistics
+     */
+    public Stats stats() {
+        synchronized (epochMonitor) {
+            double seconds = (System.nanoTime() - startedNanos) / 1e9;
+            return new Stats(submitted.get(), applied, coalesced, epoch, applied / seconds,
+                    applied == 0 ? 0 : (double) totalLatencyNanos / applied, maxLatencyNanos);
+        }
+    }
+
+    /**
+     * Publishes the updates already queued and stops the writer thread.
+     * If the calling thread is interrupted, the call stops waiting for the writer, which still publishes the queued
+     * updates and stops, and the interrupt status is restored.
+     */
+    @Override
+    public void close() {
+        boolean interrupted = false;
+        Lock lock = stateLock.writeLock();
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            // The close marker must be queued even if interrupted, or the writer would never stop.
+            Request<U> marker = new Request<>(0, 0, null, null, true);
+            while (true) {
+                try {
+                    queue.put(marker);
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        try {
+            if (!interrupted) {
+                writer.join();
+            }
+        } catch (InterruptedException e) {
+            interrupted = true;
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drain() {
+        List<Request<U>> batch = new ArrayList<>(maxBatch);
+        try {
+            applyBatches(batch);
+        } catch (Throwable e) {
+            synchronized (epochMonitor) {
+                failure = e;
+                epochMonitor.notifyAll();
+            }
+            for (Request<U> request : batch) {
+                if (request.done != null) {
+                    request.done.completeExceptionally(e);
+                }
+            }
+            if (!containsClose(batch)) {
+                discardUntilClosed();
+            }
+        } finally {
+            synchronized (epochMonitor) {
+                finished = true;
+                epochMonitor.notifyAll();
+            }
+        }
+    }
+
+    private static <U> boolean containsClose(List<Request<U>> batch) {
+        for (Request<U> request : batch) {
+            if (request.close) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Keeps draining the queue after a failure so that producers do not block, failing every flush,
+     * until the close marker arrives.
+     */
+    private void discardUntilClosed() {
+        boolean interrupted = false;
+        while (true) {
+            Request<U> request;
+            try {
+                request = queue.take();
+            } catch (InterruptedException e) {
+                interrupted = true;
+                continue;
+            }
+            if (request.done != null) {
+                request.done.completeExceptionally(failure);
+            }
+            if (request.close) {
+                break;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void applyBatches(List<Request<U>> batch) throws InterruptedException {
+        int[] ls = new int[maxBatch];
+        int[] rs = new int[maxBatch];
+        List<U> updates = new ArrayList<>(maxBatch);
+        boolean[] live = new boolean[maxBatch];
+        long[] order = new long[maxBatch];
+        int[] rank = new int[maxBatch];
+        int[] reach = new int[maxBatch + 1];
+        Map<Long, Integer> byRange = new HashMap<>();
+        boolean running = true;
+        while (running) {
+            batch.add(queue.take());
+            queue.drainTo(batch, maxBatch - 1);
+            int count = 0;
+            int merged = 0;
+            updates.clear();
+            byRange.clear();
+            for (Request<U> request : batch) {
+                if (request.close) {
+                    running = false;
+                }
+                if (request.done != null || request.close || request.l >= request.r) {
+                    continue;
+                }
+                // A neutral update is a no-op, as in SegmentTree.update; as an assignment it must not hide others.
+                if (request.update.equals(neutralUpdate)) {
+                    merged++;
+                    continue;
+                }
+                if (!assignment) {
+                    long key = ((long) request.l << 32) | Integer.toUnsignedLong(request.r);
+                    Integer same = commutative ? byRange.get(key) : (count > 0
+                            && ls[count - 1] == request.l && rs[count - 1] == request.r ? count - 1 : null);
+                    if (same != null) {
+                        updates.set(same, updater.composeUpdates(updates.get(same), request.update));
+                        merged++;
+                        continue;
+                    }
+                    if (commutative) {
+                        byRange.put(key, count);
+                    }
+                }
+                ls[count] = request.l;
+                rs[count] = request.r;
+                updates.add(request.update);
+                count++;
+            }
+            if (assignment) {
+                merged += dropHiddenAssignments(ls, rs, live, count, order, rank, reach);
+            } else {
+                Arrays.fill(live, 0, count, true);
+            }
+            for (int i = 0; i < count; i++) {
+                if (live[i]) {
+                    version = tree.update(version, ls[i], rs[i], updates.get(i));
+                }
+            }
+            publish(batch, merged);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Marks the assignments that a later assignment to an enclosing range overwrites as not live and returns their
+     * number. The batch is scanned backwards, keeping the rightmost right boundary assigned so far for every left
+     * boundary in a Fenwick tree of prefix maxima over the distinct left boundaries, so this takes O(b log b) time.
+     */
+    private static int dropHiddenAssignments(int[] ls, int[] rs, boolean[] live, int count,
+                                             long[] order, int[] rank, int[] reach) {
+        for (int i = 0; i < count; i++) {
+            order[i] = ((long) ls[i] << 32) | i;
+        }
+        Arrays.sort(order, 0, count);
+        int distinct = 0;
+        for (int k = 0; k < count; k++) {
+            int i = (int) order[k];
+            if (k == 0 || ls[(int) order[k - 1]] != ls[i]) {
+                distinct++;
+            }
+            rank[i] = distinct;
+        }
+        Arrays.fill(reach, 1, distinct + 1, Integer.MIN_VALUE);
+        int dropped = 0;
+        for (int i = count - 1; i >= 0; i--) {
+            int covered = Integer.MIN_VALUE;
+            for (int k = rank[i]; k > 0; k -= k & -k) {
+                covered = Math.max(covered, reach[k]);
+            }
+            live[i] = covered < rs[i];
+            if (!live[i]) {
+                // Whatever this assignment encloses, the later one encloses as well.
+                dropped++;
+                continue;
+            }
+            for (int k = rank[i]; k <= distinct; k += k & -k) {
+                reach[k] = Math.max(reach[k], rs[i]);
+            }
+        }
+        return dropped;
+    }
+
+    private void publish(List<Request<U>> batch, int merged) {
+        PersistentSegmentTree.Snapshot<T, U> snapshot = tree.snapshot(version);
+        if (tree.nodeCount() > compactionThreshold) {
+            tree = new PersistentSegmentTree<>(snapshot.toArray(), combiner, updater);
+            version = 0;
+        }
+        long now = System.nanoTime();
+        long newEpoch;
+        synchronized (epochMonitor) {
+            for (Request<U> request : batch) {
+                if (request.done == null && !request.close) {
+                    applied++;
+                    long latency = now - request.enqueuedNanos;
+                    totalLatencyNanos += latency;
+                    maxLatencyNanos = Math.max(maxLatencyNanos, latency);
+                }
+            }
+            coalesced += merged;
+            published = snapshot;
+            newEpoch = ++epoch;
+            epochMonitor.notifyAll();
+        }
+        for (Request<U> request : batch) {
+            if (request.done != null) {
+                request.done.complete(newEpoch);
+            }
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package segtrees;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A segment tree partitioned into shards, each an independent {@link SegmentTree} guarded by its own
+ * {@link StampedLock}.
+ * The positions are split into contiguous shards, one per core by default. Every shard has a worker thread, and
+ * updates spanning several shards fan out to the workers of those shards, which apply them in parallel. An update
+ * within one shard runs on the calling thread under that shard's write lock, so a shard may be written by its worker
+ * or by a client, one at a time.
+ * Queries run on the calling thread: they read the edge shards optimistically without locks, falling back to
+ * read locks only if a writer interfered, and combine the shards in between from a summary tree over the shard
+ * aggregates in O(log shards) time. Each shard's writer publishes the new aggregate of its shard to the summary
+ * tree without locks, so no query or update takes a lock shared by all shards.
+ * Operations within a single shard are atomic with respect to each other; an operation spanning several shards
+ * is applied shard by shard. The tree must be closed to stop its workers.
+ * @param <T> the type of the values stored in the tree
+ * @param <U> the type of the updates to be applied
+ */
+public class ShardedSegmentTree<T, U> implements RangeStructure<T, U>, AutoCloseable {
+    private final SegmentTree<T, U>[] shards;
+    private final StampedLock[] locks;
+    private final ExecutorService[] workers;
+    /**
+     * The summary tree over the shard aggregates, stored bottom-up: the aggregate of shard i is at
+     * {@code shards.length + i}, and node p combines nodes 2p and 2p + 1. Every entry is a fresh {@link Published}
+     * so that compare-and-set detects any intervening write.
+     */
+    private final AtomicReferenceArray<Published<T>> summary;
+    private final int n;
+    private final int shardSize;
+    private final Combiner<T> combiner;
+
+    /**
+     * Constructs a sharded segment tree from an array of values with one shard per available processor.
+     * @param arr the input array
+     * @param combiner the combiner for aggregating values
+     * @param updater the updater for applying updates
+     */
+    public ShardedSegmentTree(T[] arr, Combiner<T> combiner, Updater<T, U> updater) {
+        this(arr, Runtime.getRuntime().availableProcessors(), combiner, updater);
+    }
+
+    /**
+     * Constructs a sharded segment tree from an array of values.
+     * Every shard is built by its own worker.
+     * @param arr the input array
+     * @param shardCount the maximum number of shards and worker threads
+     * @param combiner the combiner for aggregating values
+     * @param updater the updater for applying updates
+     */
+    public ShardedSegmentTree(T[] arr, int shardCount, Combiner<T> combiner, Updater<T, U> updater) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Shard count must be positive: " + shardCount);
+        }
+        this.n = arr.length;
+        this.combiner = combiner;
+        this.shardSize = Math.max(1, (n + shardCount - 1) / shardCount);
+        int count = (n + shardSize - 1) / shardSize;
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        SegmentTree<T, U>[] created = new SegmentTree[count];
+        this.shards = created;
+        this.locks = new StampedLock[count];
+        this.workers = new ExecutorService[count];
+        this.summary = new AtomicReferenceArray<>(2 * count);
+        List<CompletableFuture<SegmentTree<T, U>>> built = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int shard = i;
+            locks[i] = new StampedLock();
+            workers[i] = Executors.newSingleThreadExecutor(task -> {
+                Thread thread = new Thread(task, "segtree-shard-" + shard);
+                thread.setDaemon(true);
+                return thread;
+            });
+            int from = Math.min(n, i * shardSize);
+            int to = Math.min(n, from + shardSize);
+            built.add(CompletableFuture.supplyAsync(
+                    () -> new SegmentTree<>(Arrays.copyOfRange(arr, from, to), combiner, updater), workers[i]));
+        }
+        for (int i = 0; i < count; i++) {
+            shards[i] = join(built.get(i));
+            summary.set(count + i, new Published<>(rootOf(i)));
+        }
+        for (int p = count - 1; p > 0; p--) {
+            summary.set(p, new Published<>(combiner.combine(summary.get(2 * p).value, summary.get(2 * p + 1).value)));
+        }
+    }
+
+    /**
+     * An immutable aggregate published to the summary tree.
+     */
+    private static final class Published<T> {
+        private final T value;
+
+        Published(T value) {
+            this.value = value;
+        }
+    }
+
+    private int shardLength(int shard) {
+        return Math.min(n, (shard + 1) * shardSize) - Math.min(n, shard * shardSize);
+    }
+
+    /**
+     * Returns the aggregate of a whole shard; called by the shard's writer.
+     */
+    private T rootOf(int shard) {
+        int length = shardLength(shard);
+        return length == 0 ? combiner.neutral() : shards[shard].queryReadOnly(0, length);
+    }
+
+    private static <R> R join(CompletableFuture<R> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the number of shards.
+     * @return the number of shards
+     */
+    public int shardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Queries the aggregate value over the range [l, r).
+     * The edge shards are read by the calling thread, and the shards in between are combined from the summary tree.
+     * @param l the left boundary (inclusive)
+     * @param r the right boundary (exclusive)
+     * @return the aggregate value over the range
+     */
+    @Override
+    public T query(int l, int r) {
+        if (l >= r) {
+            return combiner.neutral();
+        }
+        int first = l / shardSize;
+        int last = (r - 1) / shardSize;
+        int firstFrom = first * shardSize;
+        if (first == last) {
+            return queryShard(first, l - firstFrom, r - firstFrom);
+        }
+        T result = combiner.combine(queryShard(first, l - firstFrom, shardSize), querySummary(first + 1, last));
+        return combiner.combine(result, queryShard(last, 0, r - last * shardSize));
+    }
+
+    /**
+     * Combines the published aggregates of the shards [from, to) in O(log shards) time.
+     */
+    private T querySummary(int from, int to) {
+        T left = combiner.neutral();
+        T right = combiner.neutral();
+        for (from += shards.length, to += shards.length; from < to; from >>= 1, to >>= 1) {
+            if ((from & 1) == 1) {
+                left = combiner.combine(left, summary.get(from++).value);
+            }
+            if ((to & 1) == 1) {
+                right = combiner.combine(summary.get(--to).value, right);
+            }
+        }
+        return combiner.combine(left, right);
+    }
+
+    /**
+     * Queries a range of one shard, optimistically first and under its read lock if a writer interfered.
+     */
+    private T queryShard(int shard, int l, int r) {
+        StampedLock lock = locks[shard];
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                T result = shards[shard].queryReadOnly(l, r);
+                if (lock.validate(stamp)) {
+                    return result;
+                }
+            } catch (RuntimeException e) {
+                // A concurrent writer left the arrays in an intermediate state; retry under the read lock.
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return shards[shard].queryReadOnly(l, r);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Applies an update over the range [l, r).
+     * An update within one shard is applied by the calling thread; otherwise every touched shard is updated by its
+     * worker in parallel, and the call returns when all of them are done.
+     * @param l the left boundary (inclusive)
+     * @param r the right boundary (exclusive)
+     * @param update the update to apply
+     */
+    @Override
+    public void update(int l, int r, U update) {
+        if (l >= r) {
+            return;
+        }
+        int first = l / shardSize;
+        int last = (r - 1) / shardSize;
+        if (first == last) {
+            updateShard(first, l, r, update);
+            return;
+        }
+        List<CompletableFuture<Void>> done = new ArrayList<>(last - first + 1);
+        for (int b = first; b <= last; b++) {
+            int shard = b;
+            done.add(CompletableFuture.runAsync(() -> updateShard(shard, l, r, update), workers[b]));
+        }
+        for (CompletableFuture<Void> future : done) {
+            join(future);
+        }
+    }
+
+    /**
+     * Applies the part of an update that falls into one shard under its write lock and publishes its new aggregate.
+     */
+    private void updateShard(int shard, int l, int r, U update) {
+        int from = shard * shardSize;
+        int to = from + shardLength(shard);
+        StampedLock lock = locks[shard];
+        long stamp = lock.writeLock();
+        try {
+            shards[shard].update(Math.max(l, from) - from, Math.min(r, to) - from, update);
+            summary.set(shards.length + shard, new Published<>(rootOf(shard)));
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        for (int p = (shards.length + shard) / 2; p > 0; p /= 2) {
+            // If both attempts fail, another writer installed a value it computed after the first failure, and
+            // therefore after this shard's aggregate was published.
+            if (!refreshSummary(p)) {
+                refreshSummary(p);
+            }
+        }
+    }
+
+    /**
+     * Recomputes a summary node from its children unless another writer replaced it in the meantime.
+     */
+    private boolean refreshSummary(int p) {
+        Published<T> current = summary.get(p);
+        T value = combiner.combine(summary.get(2 * p).value, summary.get(2 * p + 1).value);
+        return summary.compareAndSet(p, current, new Published<>(value));
+    }
+
+    /**
+     * Stops the worker threads; the tree cannot be used afterwards.
+     */
+    @Override
+    public void close() {
+        for (ExecutorService worker : workers) {
+            worker.shutdown();
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package segtrees;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+
+/**
+ * The binary snapshot format shared by the {@code save} and {@code load} methods of the trees.
+ * A snapshot is a header of the magic number, the format version, the kind of the tree and its size,
+ * followed by the tree-specific payload and a CRC32 of everything before it.
+ * Every tree writes only the nodes in use, in pre-order, each value followed by its pending update; primitive trees
+ * stream them through a direct buffer.
+ */
+final class Snapshots {
+    static final int MAGIC = 0x53475453;
+    static final int VERSION = 1;
+    static final byte GENERIC = 0;
+    static final byte LONG = 1;
+    static final byte INT = 2;
+    static final byte DOUBLE = 3;
+    static final int HEADER_SIZE = 13;
+    static final int BUFFER_SIZE = 1 << 16;
+    static final int MAX_SIZE = Integer.MAX_VALUE / 4;
+
+    private Snapshots() {
+    }
+
+    /**
+     * Writes the contents of the buffer up to its position and clears it.
+     * @param crc the checksum to update with the written bytes, or null
+     */
+    static void write(FileChannel channel, ByteBuffer buffer, CRC32 crc) throws IOException {
+        buffer.flip();
+        if (crc != null) {
+            crc.update(buffer);
+            buffer.rewind();
+        }
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Reads exactly {@code bytes} bytes into the buffer and returns it ready for reading.
+     * @param crc the checksum to update with the read bytes, or null
+     */
+    static ByteBuffer read(FileChannel channel, ByteBuffer buffer, CRC32 crc, int bytes) throws IOException {
+        buffer.clear().limit(bytes);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Unexpected end of snapshot");
+            }
+        }
+        buffer.flip();
+        if (crc != null) {
+            crc.update(buffer);
+            buffer.rewind();
+        }
+        return buffer;
+    }
+
+    static void writeHeader(FileChannel channel, ByteBuffer buffer, CRC32 crc, byte kind, int n) throws IOException {
+        buffer.putInt(MAGIC).putInt(VERSION).put(kind).putInt(n);
+        write(channel, buffer, crc);
+    }
+
+    /**
+     * Reads and checks the header of a snapshot of a primitive tree of the given kind.
+     * The header is not covered by the checksum until the whole file is read, so the stored size is checked against
+     * the file size, which is exact for primitive trees, before the caller allocates arrays for it.
+     * @param elementBytes the size of one value in bytes
+     * @return the size of the stored tree
+     */
+    static int readHeader(FileChannel channel, ByteBuffer buffer, CRC32 crc, byte kind, int elementBytes, Path path)
+            throws IOException {
+        ByteBuffer header = read(channel, buffer, crc, HEADER_SIZE);
+        checkHeader(header.getInt(), header.getInt(), header.get(), kind, path);
+        int n = checkSize(header.getInt(), path);
+        // The two neutral elements, a value and an update for each of the 2n - 1 nodes, and the checksum.
+        long expected = HEADER_SIZE + (2 + 2 * nodeCount(n)) * elementBytes + Integer.BYTES;
+        if (channel.size() != expected) {
+            throw new IOException("Snapshot " + path + " has " + channel.size() + " bytes, expected " + expected
+                    + " for " + n + " values");
+        }
+        return n;
+    }
+
+    /**
+     * Returns the number of nodes in use in a tree of n values.
+     */
+    static long nodeCount(int n) {
+        return n == 0 ? 0 : 2L * n - 1;
+    }
+
+    /**
+     * Checks that a stored tree size is one that the trees can allocate.
+     * @return the size
+     */
+    static int checkSize(int n, Path path) throws IOException {
+        if (n < 0 || n > MAX_SIZE) {
+            throw new IOException("Invalid tree size " + n + " in snapshot " + path);
+        }
+        return n;
+    }
+
+    static void checkHeader(int magic, int version, byte storedKind, byte kind, Path path) throws IOException {
+        if (magic != MAGIC) {
+            throw new IOException("Not a segment tree snapshot: " + path);
+        }
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version " + version + ": " + path);
+        }
+        if (storedKind != kind) {
+            throw new IOException("Snapshot " + path + " holds a different kind of tree");
+        }
+    }
+
+    /**
+     * Writes the checksum of the bytes written so far.
+     */
+    static void writeChecksum(FileChannel channel, ByteBuffer buffer, CRC32 crc) throws IOException {
+        buffer.putInt((int) crc.getValue());
+        write(channel, buffer, null);
+    }
+
+    /**
+     * Reads the stored checksum and compares it with the checksum of the bytes read so far.
+     */
+    static void checkChecksum(FileChannel channel, ByteBuffer buffer, CRC32 crc, Path path) throws IOException {
+        int expected = (int) crc.getValue();
+        if (read(channel, buffer, null, Integer.BYTES).getInt() != expected) {
+            throw new IOException("Snapshot checksum mismatch: " + path);
+        }
+        if (channel.position() != channel.size()) {
+            throw new IOException("Unexpected data after the end of snapshot: " + path);
+        }
+    }
+
+    /**
+     * Makes room for {@code bytes} more bytes in the buffer, writing out its contents first if needed.
+     * @param crc the checksum to update with the written bytes
+     * @return the buffer
+     */
+    static ByteBuffer reserve(FileChannel channel, ByteBuffer buffer, CRC32 crc, int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            write(channel, buffer, crc);
+        }
+        return buffer;
+    }
+
+    /**
+     * Makes sure that the buffer, which is ready for reading, holds at least {@code bytes} unread bytes.
+     * If it does not, as much of the payload as fits is read, so that the checksum after it stays in the file.
+     * @param crc the checksum to update with the read bytes
+     * @return the buffer
+     */
+    static ByteBuffer require(FileChannel channel, ByteBuffer buffer, CRC32 crc, int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return buffer;
+        }
+        int carried = buffer.remaining();
+        long payloadLeft = channel.size() - Integer.BYTES - channel.position();
+        buffer.compact();
+        buffer.limit(carried + (int) Math.min(buffer.remaining(), Math.max(0, payloadLeft)));
+        if (buffer.limit() < bytes) {
+            throw new EOFException("Unexpected end of snapshot");
+        }
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Unexpected end of snapshot");
+            }
+        }
+        buffer.flip();
+        crc.update(buffer.duplicate().position(carried));
+        return buffer;
+    }
+}
@@ -0,0 +1,130 @@
+package segtrees;
+
+/**
+ * A read-optimized range structure for idempotent combiners that answers queries in O(1).
+ * The positions are split into blocks of {@value #BLOCK_SIZE}. Every block has its own sparse table,
+ * and one more sparse table is kept over the block aggregates, so any range is covered by at most
+ * four overlapping precomputed ranges.
+ * Updates are applied to each position and then only the affected blocks and top-level entries are rebuilt,
+ * so they cost O(r - l + n / BLOCK_SIZE) and suit workloads with rare updates.
+ * @param <T> the type of the values stored in the tree
+ * @param <U> the type of the updates to be applied
+ */
+public class SparseTableTree<T, U> implements RangeStructure<T, U> {
+    /**
+     * The number of positions in a block.
+     */
+    public static final int BLOCK_SIZE = 32;
+    private static final int BLOCK_SHIFT = 5;
+
+    private final T[][] inner;
+    private final T[][] top;
+    private final int n;
+    private final int blocks;
+    private final Combiner<T> combiner;
+    private final Updater<T, U> updater;
+
+    /**
+     * Constructs a sparse table tree from an array of values.
+     * @param arr the input array
+     * @param combiner the idempotent combiner for aggregating values
+     * @param updater the updater for applying updates
+     * @throws IllegalArgumentException if the combiner is not idempotent
+     */
+    @SuppressWarnings("unchecked")
+    public SparseTableTree(T[] arr, Combiner<T> combiner, Updater<T, U> updater) {
+        if (!combiner.isIdempotent()) {
+            throw new IllegalArgumentException("Sparse tables require an idempotent combiner");
+        }
+        this.n = arr.length;
+        this.combiner = combiner;
+        this.updater = updater;
+        this.blocks = (n + BLOCK_SIZE - 1) >> BLOCK_SHIFT;
+        this.inner = (T[][]) new Object[BLOCK_SHIFT + 1][];
+        inner[0] = arr.clone();
+        for (int j = 1; j <= BLOCK_SHIFT; j++) {
+            inner[j] = (T[]) new Object[n];
+        }
+        this.top = (T[][]) new Object[Math.max(1, log2(blocks) + 1)][];
+        for (int k = 0; k < top.length; k++) {
+            top[k] = (T[]) new Object[blocks];
+        }
+        rebuild(0, blocks);
+    }
+
+    private static int log2(int x) {
+        return 31 - Integer.numberOfLeadingZeros(x);
+    }
+
+    /**
+     * Rebuilds the sparse tables of blocks [from, to) and every top-level entry that covers them.
+     */
+    private void rebuild(int from, int to) {
+        for (int b = from; b < to; b++) {
+            int start = b << BLOCK_SHIFT;
+            int end = Math.min(n, start + BLOCK_SIZE);
+            for (int j = 1; j <= BLOCK_SHIFT; j++) {
+                int half = 1 << (j - 1);
+                for (int i = start; i + 2 * half <= end; i++) {
+                    inner[j][i] = combiner.combine(inner[j - 1][i], inner[j - 1][i + half]);
+                }
+            }
+            top[0][b] = queryBlock(start, end);
+        }
+        for (int k = 1; k < top.length; k++) {
+            int half = 1 << (k - 1);
+            for (int b = Math.max(0, from - 2 * half + 1); b < to && b + 2 * half <= blocks; b++) {
+                top[k][b] = combiner.combine(top[k - 1][b], top[k - 1][b + half]);
+            }
+        }
+    }
+
+    /**
+     * Queries a non-empty range [l, r) that lies inside one block.
+     */
+    private T queryBlock(int l, int r) {
+        int j = log2(r - l);
+        return combiner.combine(inner[j][l], inner[j][r - (1 << j)]);
+    }
+
+    /**
+     * Queries the aggregate value over the range [l, r).
+     * @param l the left boundary (inclusive)
+     * @param r the right boundary (exclusive)
+     * @return the aggregate value over the range
+     */
+    @Override
+    public T query(int l, int r) {
+        if (l >= r) {
+            return combiner.neutral();
+        }
+        int first = l >> BLOCK_SHIFT;
+        int last = (r - 1) >> BLOCK_SHIFT;
+        if (first == last) {
+            return queryBlock(l, r);
+        }
+        T result = queryBlock(l, (first + 1) << BLOCK_SHIFT);
+        if (first + 1 < last) {
+            int k = log2(last - first - 1);
+            result = combiner.combine(result, combiner.combine(top[k][first + 1], top[k][last - (1 << k)]));
+        }
+        return combiner.combine(result, queryBlock(last << BLOCK_SHIFT, r));
+    }
+
+    /**
+     * Applies an update over the range [l, r).
+     * @param l the left boundary (inclusive)
+     * @param r the right boundary (exclusive)
+     * @param update the update to apply
+     */
+    @Override
+    public void update(int l, int r, U update) {
+        if (l >= r) {
+            return;
+        }
+        for (int i = l; i < r; i++) {
+            inner[0][i] = updater.applyUpdate(inner[0][i], update, 1);
+        }
+        rebuild(l >> BLOCK_SHIFT, ((r - 1) >> BLOCK_SHIFT) + 1);
+    }
+}
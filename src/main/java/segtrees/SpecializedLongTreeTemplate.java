@@ -0,0 +1,96 @@
+package segtrees;
+
+import java.util.Arrays;
+
+/**
+ * The template from which {@link TreeSpecializer} defines one hidden class per primitive combiner and updater pair.
+ * It is a self-contained segment tree with lazy propagation over {@code long[]} storage; it must not use nested
+ * classes or lambdas, and it refers to the combiner and updater only through its own fields, so every copy profiles
+ * and inlines its own pair.
+ */
+final class SpecializedLongTreeTemplate implements LongRangeStructure {
+    private final long[] tree;
+    private final long[] lazy;
+    private final int n;
+    private final LongCombiner combiner;
+    private final LongUpdater updater;
+    private final long neutralUpdate;
+
+    SpecializedLongTreeTemplate(long[] arr, LongCombiner combiner, LongUpdater updater) {
+        this.n = arr.length;
+        this.combiner = combiner;
+        this.updater = updater;
+        this.neutralUpdate = updater.neutralUpdate();
+        this.tree = new long[4 * n];
+        this.lazy = new long[4 * n];
+        Arrays.fill(lazy, neutralUpdate);
+        if (n > 0) {
+            build(arr, 1, 0, n - 1);
+        }
+    }
+
+    private void build(long[] arr, int node, int start, int end) {
+        if (start == end) {
+            tree[node] = arr[start];
+        } else {
+            int mid = (start + end) / 2;
+            build(arr, 2 * node, start, mid);
+            build(arr, 2 * node + 1, mid + 1, end);
+            tree[node] = combiner.combine(tree[2 * node], tree[2 * node + 1]);
+        }
+    }
+
+    private void pushDown(int node, int start, int end) {
+        long pending = lazy[node];
+        if (pending != neutralUpdate) {
+            tree[node] = updater.applyUpdate(tree[node], pending, end - start + 1);
+            if (start != end) {
+                lazy[2 * node] = updater.composeUpdates(lazy[2 * node], pending);
+                lazy[2 * node + 1] = updater.composeUpdates(lazy[2 * node + 1], pending);
+            }
+            lazy[node] = neutralUpdate;
+        }
+    }
+
+    @Override
+    public long query(int l, int r) {
+        return l < r ? query(1, 0, n - 1, l, r - 1) : combiner.neutral();
+    }
+
+    private long query(int node, int start, int end, int l, int r) {
+        pushDown(node, start, end);
+        if (r < start || end < l) {
+            return combiner.neutral();
+        }
+        if (l <= start && end <= r) {
+            return tree[node];
+        }
+        int mid = (start + end) / 2;
+        long left = query(2 * node, start, mid, l, r);
+        long right = query(2 * node + 1, mid + 1, end, l, r);
+        return combiner.combine(left, right);
+    }
+
+    @Override
+    public void update(int l, int r, long update) {
+        if (l < r) {
+            update(1, 0, n - 1, l, r - 1, update);
+        }
+    }
+
+    private void update(int node, int start, int end, int l, int r, long update) {
+        pushDown(node, start, end);
+        if (r < start || end < l) {
+            return;
+        }
+        if (l <= start && end <= r) {
+            lazy[node] = updater.composeUpdates(lazy[node], update);
+            pushDown(node, start, end);
+            return;
+        }
+        int mid = (start + end) / 2;
+        update(2 * node, start, mid, l, r, update);
+        update(2 * node + 1, mid + 1, end, l, r, update);
+        tree[node] = combiner.combine(tree[2 * node], tree[2 * node + 1]);
+    }
+}
@@ -0,0 +1,99 @@
+package segtrees;
+
+import java.util.Arrays;
+
+/**
+ * The template from which {@link TreeSpecializer} defines one hidden class per combiner and updater pair.
+ * It is a self-contained segment tree with lazy propagation; it must not use nested classes or lambdas,
+ * and it refers to the combiner and updater only through its own fields, so every copy profiles and inlines
+ * its own pair.
+ * @param <T> the type of the values stored in the tree
+ * @param <U> the type of the updates to be applied
+ */
+final class SpecializedTreeTemplate<T, U> implements RangeStructure<T, U> {
+    private final T[] tree;
+    private final U[] lazy;
+    private final int n;
+    private final Combiner<T> combiner;
+    private final Updater<T, U> updater;
+    private final U neutralUpdate;
+
+    @SuppressWarnings("unchecked")
+    SpecializedTreeTemplate(T[] arr, Combiner<T> combiner, Updater<T, U> updater) {
+        this.n = arr.length;
+        this.combiner = combiner;
+        this.updater = updater;
+        this.neutralUpdate = updater.neutralUpdate();
+        this.tree = (T[]) new Object[4 * n];
+        this.lazy = (U[]) new Object[4 * n];
+        Arrays.fill(lazy, neutralUpdate);
+        if (n > 0) {
+            build(arr, 1, 0, n - 1);
+        }
+    }
+
+    private void build(T[] arr, int node, int start, int end) {
+        if (start == end) {
+            tree[node] = arr[start];
+        } else {
+            int mid = (start + end) / 2;
+            build(arr, 2 * node, start, mid);
+            build(arr, 2 * node + 1, mid + 1, end);
+            tree[node] = combiner.combine(tree[2 * node], tree[2 * node + 1]);
+        }
+    }
+
+    private void pushDown(int node, int start, int end) {
+        U pending = lazy[node];
+        if (pending != neutralUpdate && !pending.equals(neutralUpdate)) {
+            tree[node] = updater.applyUpdate(tree[node], pending, end - start + 1);
+            if (start != end) {
+                lazy[2 * node] = updater.composeUpdates(lazy[2 * node], pending);
+                lazy[2 * node + 1] = updater.composeUpdates(lazy[2 * node + 1], pending);
+            }
+            lazy[node] = neutralUpdate;
+        }
+    }
+
+    @Override
+    public T query(int l, int r) {
+        return l < r ? query(1, 0, n - 1, l, r - 1) : combiner.neutral();
+    }
+
+    private T query(int node, int start, int end, int l, int r) {
+        pushDown(node, start, end);
+        if (r < start || end < l) {
+            return combiner.neutral();
+        }
+        if (l <= start && end <= r) {
+            return tree[node];
+        }
+        int mid = (start + end) / 2;
+        T left = query(2 * node, start, mid, l, r);
+        T right = query(2 * node + 1, mid + 1, end, l, r);
+        return combiner.combine(left, right);
+    }
+
+    @Override
+    public void update(int l, int r, U update) {
+        if (l < r) {
+            update(1, 0, n - 1, l, r - 1, update);
+        }
+    }
+
+    private void update(int node, int start, int end, int l, int r, U update) {
+        pushDown(node, start, end);
+        if (r < start || end < l) {
+            return;
+        }
+        if (l <= start && end <= r) {
+            lazy[node] = updater.composeUpdates(lazy[node], update);
+            pushDown(node, start, end);
+            return;
+        }
+        int mid = (start + end) / 2;
+        update(2 * node, start, mid, l, r, update);
+        update(2 * node + 1, mid + 1, end, l, r, update);
+        tree[node] = combiner.combine(tree[2 * node], tree[2 * node + 1]);
+    }
+}
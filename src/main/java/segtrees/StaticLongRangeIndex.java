@@ -0,0 +1,88 @@
+package segtrees;
+
+/**
+ * A read-only range query index over primitive long values with wide nodes.
+ * Every node aggregates {@value #BRANCHING} consecutive entries of the level below, i.e. 64 bytes per node,
+ * and every level is stored in its own contiguous array. The arrays are not aligned to cache lines, so a node
+ * may straddle two of them.
+ * A query scans at most two partial nodes per level over O(log_8 n) levels, so it touches a few cache lines per
+ * level of a tree a third as deep as a binary one. The combiner must be associative; values cannot be updated.
+ */
+public class StaticLongRangeIndex {
+    /**
+     * The number of children of every node.
+     */
+    public static final int BRANCHING = 8;
+    private static final int SHIFT = 3;
+
+    private final long[][] levels;
+    private final int n;
+    private final LongCombiner combiner;
+
+    /**
+     * Constructs an index over an array of values.
+     * @param arr the input array
+     * @param combiner the associative combiner for aggregating values
+     */
+    public StaticLongRangeIndex(long[] arr, LongCombiner combiner) {
+        this.n = arr.length;
+        this.combiner = combiner;
+        int depth = 1;
+        for (int len = n; len > BRANCHING; len = (len + BRANCHING - 1) >> SHIFT) {
+            depth++;
+        }
+        this.levels = new long[depth][];
+        levels[0] = arr.clone();
+        for (int k = 1; k < depth; k++) {
+            long[] below = levels[k - 1];
+            long[] level = new long[(below.length + BRANCHING - 1) >> SHIFT];
+            for (int i = 0; i < level.length; i++) {
+                int from = i << SHIFT;
+                int to = Math.min(below.length, from + BRANCHING);
+                level[i] = scan(below, from, to, combiner.neutral());
+            }
+            levels[k] = level;
+        }
+    }
+
+    /**
+     * Returns the number of values in the index.
+     * @return the size of the index
+     */
+    public int size() {
+        return n;
+    }
+
+    /**
+     * Queries the aggregate value over the range [l, r).
+     * @param l the left boundary (inclusive)
+     * @param r the right boundary (exclusive)
+     * @return the aggregate value over the range
+     */
+    public long query(int l, int r) {
+        long left = combiner.neutral();
+        long right = combiner.neutral();
+        for (long[] level : levels) {
+            if (r - l <= BRANCHING || (l >> SHIFT) == ((r - 1) >> SHIFT)) {
+                return combiner.combine(scan(level, l, r, left), right);
+            }
+            int alignedLeft = (l + BRANCHING - 1) & -BRANCHING;
+            int alignedRight = r & -BRANCHING;
+            left = scan(level, l, alignedLeft, left);
+            right = combiner.combine(scan(level, alignedRight, r, combiner.neutral()), right);
+            l = alignedLeft >> SHIFT;
+            r = alignedRight >> SHIFT;
+        }
+        return combiner.combine(left, right);
+    }
+
+    /**
+     * Combines {@code acc} with {@code level[from]} to {@code level[to - 1]} in order.
+     */
+    private long scan(long[] level, int from, int to, long acc) {
+        for (int i = from; i < to; i++) {
+            acc = combiner.combine(acc, level[i]);
+        }
+        return acc;
+    }
+}
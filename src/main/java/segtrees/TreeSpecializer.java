@@ -0,0 +1,86 @@
+package segtrees;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Creates segment trees whose calls to the combiner and updater stay monomorphic.
+ * When one JVM hosts trees with different combiners, the call sites in {@link SegmentTree} see all of them and the
+ * JIT compiler stops inlining the operations. For every pair of combiner and updater classes this class instead
+ * defines a hidden class from a copy of a template tree's bytecode, so each pair gets call sites that only ever see
+ * that pair and can be inlined. Primitive combiners and updaters get a template with {@code long[]} storage.
+ * The hidden class of a pair is defined on first use and cached for the lifetime of the JVM.
+ */
+public final class TreeSpecializer {
+    private static final Map<List<Class<?>>, MethodHandle> CONSTRUCTORS = new ConcurrentHashMap<>();
+
+    private TreeSpecializer() {
+    }
+
+    /**
+     * Creates a segment tree specialized for the classes of the combiner and the updater.
+     * @param arr the input array
+     * @param combiner the combiner for aggregating values
+     * @param updater the updater for applying updates
+     * @param <T> the type of the values stored in the tree
+     * @param <U> the type of the updates to be applied
+     * @return the created tree
+     * @throws IllegalStateException if the specialized class cannot be defined
+     */
+    @SuppressWarnings("unchecked")
+    public static <T, U> RangeStructure<T, U> create(T[] arr, Combiner<T> combiner, Updater<T, U> updater) {
+        MethodHandle constructor = constructor(SpecializedTreeTemplate.class, combiner, updater,
+                MethodType.methodType(void.class, Object[].class, Combiner.class, Updater.class));
+        try {
+            return (RangeStructure<T, U>) constructor.invoke(arr, combiner, updater);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Creates a segment tree over primitive long values specialized for the classes of the combiner and the updater.
+     * @param arr the input array
+     * @param combiner the combiner for aggregating values
+     * @param updater the updater for applying updates
+     * @return the created tree
+     * @throws IllegalStateException if the specialized class cannot be defined
+     */
+    public static LongRangeStructure create(long[] arr, LongCombiner combiner, LongUpdater updater) {
+        MethodHandle constructor = constructor(SpecializedLongTreeTemplate.class, combiner, updater,
+                MethodType.methodType(void.class, long[].class, LongCombiner.class, LongUpdater.class));
+        try {
+            return (LongRangeStructure) constructor.invoke(arr, combiner, updater);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MethodHandle constructor(Class<?> template, Object combiner, Object updater, MethodType type) {
+        List<Class<?>> key = List.of(template, combiner.getClass(), updater.getClass());
+        return CONSTRUCTORS.computeIfAbsent(key, k -> define(template, type));
+    }
+
+    private static MethodHandle define(Class<?> template, MethodType type) {
+        String resource = template.getSimpleName() + ".class";
+        try (InputStream in = template.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalStateException("Cannot find the bytecode of " + template.getName());
+            }
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(in.readAllBytes(), false);
+            return lookup.findConstructor(lookup.lookupClass(), type);
+        } catch (IOException | ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot specialize " + template.getName(), e);
+        }
+    }
+}
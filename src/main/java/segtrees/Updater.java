@@ -15,6 +15,19 @@ public interface Updater<T, U> {
      */
     T applyUpdate(T value, U update, int rangeSize);
 
+    /**
+     * Applies an update to a value over a range that may be longer than {@code Integer.MAX_VALUE}.
+     * The default implementation delegates to {@link #applyUpdate(Object, Object, int)}
+     * and throws {@link ArithmeticException} for longer ranges.
+     * @param value the current value
+     * @param update the update to apply
+     * @param rangeSize the size of the range this value represents
+     * @return the updated value
+     */
+    default T applyUpdate(T value, U update, long rangeSize) {
+        return applyUpdate(value, update, Math.toIntExact(rangeSize));
+    }
+
     /**
      * Composes two updates into a single update.
      * @param current the current update
@@ -28,4 +41,45 @@ public interface Updater<T, U> {
      * @return the neutral update
      */
     U neutralUpdate();
-} 
\ No newline at end of file
+
+    /**
+     * Returns whether updates commute, that is, applying them in any order gives the same result, as for addition.
+     * Segment trees then keep pending updates in place instead of pushing them down, and queries do not modify the tree.
+     * @return true if updates commute
+     */
+    default boolean isCommutative() {
+        return false;
+    }
+
+    /**
+     * Returns whether every non-neutral update overwrites the previous ones,
+     * so that {@code composeUpdates(current, next)} is {@code next}, as for assignment.
+     * Segment trees then replace pending updates instead of calling {@link #composeUpdates(Object, Object)}.
+     * @return true if updates are assignments
+     */
+    default boolean isAssignment() {
+        return false;
+    }
+
+    /**
+     * Returns whether {@link #neutralUpdate()} always returns the same instance.
+     * Segment trees then recognize the neutral update with {@code ==} instead of {@code equals}, so it must be passed
+     * as that instance: an equal update that is a different instance is applied like any other update, which for an
+     * assignment updater replaces the pending updates it covers.
+     * @return true if the neutral update can be compared by reference
+     */
+    default boolean isNeutralByReference() {
+        return false;
+    }
+
+    /**
+     * Returns whether updates are additive: {@code applyUpdate(value, update, rangeSize)} combines the value with
+     * {@code applyUpdate(neutral, update, rangeSize)}, which is the update applied to a single neutral position
+     * combined {@code rangeSize} times, as for adding to a sum.
+     * {@link FenwickTree} relies on this to keep updates as point values.
+     * @return true if updates are additive
+     */
+    default boolean isAdditive() {
+        return false;
+    }
+}
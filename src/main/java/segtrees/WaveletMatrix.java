@@ -0,0 +1,194 @@
+package segtrees;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * A read-only index for order statistics over ranges of an array, such as percentiles and threshold counts.
+ * The values are replaced by their ranks among the distinct values, and the ranks are stored bit by bit,
+ * from the highest bit down, in one bit vector per level; every level is stably partitioned by its bit,
+ * zeros first. Each query walks the levels once, so it takes O(log s) time for s distinct values,
+ * and the index takes about {@code n * log s} bits plus one rank counter per 64 bits.
+ * @param <T> the type of the values stored in the index
+ */
+public class WaveletMatrix<T> {
+    private final T[] alphabet;
+    private final BitVector[] levels;
+    private final int[] zeros;
+    private final int n;
+    private final Comparator<? super T> comparator;
+
+    /**
+     * Constructs an index over an array of values.
+     * @param arr the input array
+     * @param comparator the order of the values
+     */
+    public WaveletMatrix(T[] arr, Comparator<? super T> comparator) {
+        this.n = arr.length;
+        this.comparator = comparator;
+        T[] sorted = arr.clone();
+        Arrays.sort(sorted, comparator);
+        int distinct = 0;
+        for (int i = 0; i < n; i++) {
+            if (i == 0 || comparator.compare(sorted[distinct - 1], sorted[i]) != 0) {
+                sorted[distinct++] = sorted[i];
+            }
+        }
+        this.alphabet = Arrays.copyOf(sorted, distinct);
+        int bits = 32 - Integer.numberOfLeadingZeros(Math.max(0, distinct - 1));
+        this.levels = new BitVector[bits];
+        this.zeros = new int[bits];
+        int[] codes = new int[n];
+        for (int i = 0; i < n; i++) {
+            codes[i] = Arrays.binarySearch(alphabet, arr[i], comparator);
+        }
+        int[] next = new int[n];
+        for (int level = 0; level < bits; level++) {
+            int bit = bits - 1 - level;
+            BitVector vector = new BitVector(n);
+            int zeroCount = 0;
+            for (int i = 0; i < n; i++) {
+                if (((codes[i] >>> bit) & 1) == 0) {
+                    next[zeroCount++] = codes[i];
+                }
+            }
+            int ones = zeroCount;
+            for (int i = 0; i < n; i++) {
+                if (((codes[i] >>> bit) & 1) == 1) {
+                    vector.set(i);
+                    next[ones++] = codes[i];
+                }
+            }
+            vector.buildRanks();
+            levels[level] = vector;
+            zeros[level] = zeroCount;
+            int[] swap = codes;
+            codes = next;
+            next = swap;
+        }
+    }
+
+    /**
+     * Returns the k-th smallest value over the range [l, r).
+     * @param l the left boundary (inclusive)
+     * @param r the right boundary (exclusive)
+     * @param k the zero-based rank of the value within the range
+     * @return the k-th smallest value
+     * @throws IndexOutOfBoundsException if k is not less than the length of the range
+     */
+    public T kth(int l, int r, int k) {
+        if (k < 0 || k >= r - l) {
+            throw new IndexOutOfBoundsException("Rank " + k + " out of bounds for range [" + l + ", " + r + ")");
+        }
+        int code = 0;
+        for (int level = 0; level < levels.length; level++) {
+            BitVector vector = levels[level];
+            int leftOnes = vector.rank(l);
+            int rightOnes = vector.rank(r);
+            int zeroCount = (r - l) - (rightOnes - leftOnes);
+            code <<= 1;
+            if (k < zeroCount) {
+                l -= leftOnes;
+                r -= rightOnes;
+            } else {
+                k -= zeroCount;
+                code |= 1;
+                l = zeros[level] + leftOnes;
+                r = zeros[level] + rightOnes;
+            }
+        }
+        return alphabet[code];
+    }
+
+    /**
+     * Counts the values less than x over the range [l, r).
+     * @param l the left boundary (inclusive)
+     * @param r the right boundary (exclusive)
+     * @param x the threshold
+     * @return the number of values less than x
+     */
+    public int countLess(int l, int r, T x) {
+        if (l >= r) {
+            return 0;
+        }
+        int code = Arrays.binarySearch(alphabet, x, comparator);
+        return countLessCode(l, r, code < 0 ? -code - 1 : code);
+    }
+
+    /**
+     * Counts the values v with {@code lo <= v < hi} over the range [l, r).
+     * @param l the left boundary (inclusive)
+     * @param r the right boundary (exclusive)
+     * @param lo the lower bound of the values (inclusive)
+     * @param hi the upper bound of the values (exclusive)
+     * @return the number of values within the bounds
+     */
+    public int rangeFrequency(int l, int r, T lo, T hi) {
+        if (comparator.compare(lo, hi) >= 0) {
+            return 0;
+        }
+        return countLess(l, r, hi) - countLess(l, r, lo);
+    }
+
+    /**
+     * Counts the positions in [l, r) whose rank is less than code.
+     */
+    private int countLessCode(int l, int r, int code) {
+        if (code >= alphabet.length) {
+            return r - l;
+        }
+        int result = 0;
+        for (int level = 0; level < levels.length && l < r; level++) {
+            BitVector vector = levels[level];
+            int leftOnes = vector.rank(l);
+            int rightOnes = vector.rank(r);
+            if (((code >>> (levels.length - 1 - level)) & 1) == 1) {
+                result += (r - l) - (rightOnes - leftOnes);
+                l = zeros[level] + leftOnes;
+                r = zeros[level] + rightOnes;
+            } else {
+                l -= leftOnes;
+                r -= rightOnes;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of values in the index.
+     * @return the size of the index
+     */
+    public int size() {
+        return n;
+    }
+
+    /**
+     * A fixed-size bit vector with the number of ones before every 64-bit word precomputed.
+     */
+    private static final class BitVector {
+        private final long[] words;
+        private final int[] ranks;
+
+        BitVector(int n) {
+            this.words = new long[(n >>> 6) + 1];
+            this.ranks = new int[words.length];
+        }
+
+        void set(int i) {
+            words[i >>> 6] |= 1L << i;
+        }
+
+        void buildRanks() {
+            for (int w = 1; w < words.length; w++) {
+                ranks[w] = ranks[w - 1] + Long.bitCount(words[w - 1]);
+            }
+        }
+
+        /**
+         * Returns the number of ones before position i.
+         */
+        int rank(int i) {
+            return ranks[i >>> 6] + Long.bitCount(words[i >>> 6] & ((1L << i) - 1));
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package segtrees;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class AppendableSegmentTreeTest {
+
+    private static class SumCombiner implements Combiner<Long> {
+        @Override
+        public Long combine(Long left, Long right) {
+            return left + right;
+        }
+
+        @Override
+        public Long neutral() {
+            return 0L;
+        }
+    }
+
+    private static class AddUpdater implements Updater<Long, Long> {
+        @Override
+        public Long applyUpdate(Long value, Long update, int rangeSize) {
+            return value + update * rangeSize;
+        }
+
+        @Override
+        public Long composeUpdates(Long current, Long next) {
+            return current + next;
+        }
+
+        @Override
+        public Long neutralUpdate() {
+            return 0L;
+        }
+    }
+
+    private static class MinCombiner implements Combiner<Long> {
+        @Override
+        public Long combine(Long left, Long right) {
+            return Math.min(left, right);
+        }
+
+        @Override
+        public Long neutral() {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static class AssignUpdater implements Updater<Long, Long> {
+        @Override
+        public Long applyUpdate(Long value, Long update, int rangeSize) {
+            return update == Long.MIN_VALUE ? value : update;
+        }
+
+        @Override
+        public Long composeUpdates(Long current, Long next) {
+            return next == Long.MIN_VALUE ? current : next;
+        }
+
+        @Override
+        public Long neutralUpdate() {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    @Test
+    void smallFixedScenario() {
+        AppendableSegmentTree<Long, Long> st = new AppendableSegmentTree<>(new SumCombiner(), new AddUpdater());
+        for (long v = 1; v <= 5; v++) {
+            st.append(v);
+        }
+        assertEquals(5, st.size());
+        assertEquals(9, st.query(1, 4)); // 2+3+4
+        st.update(0, 5, 3L); // +3 to all
+        assertEquals(26, st.query(1, 5)); // 5+6+7+8
+        st.append(10L);
+        assertEquals(36, st.query(1, 6)); // 5+6+7+8+10
+    }
+
+    @Test
+    void windowEvictsOldestValues() {
+        AppendableSegmentTree<Long, Long> st = new AppendableSegmentTree<>(3, new SumCombiner(), new AddUpdater());
+        for (long v = 1; v <= 5; v++) {
+            st.append(v);
+        }
+        assertEquals(2, st.firstIndex());
+        assertEquals(12, st.query(2, 5)); // 3+4+5
+        st.update(3, 5, 1L); // +1 to indices 3 and 4
+        st.append(6L); // evicts index 2
+        assertEquals(17, st.query(3, 6)); // 5+6+6
+        assertThrows(IndexOutOfBoundsException.class, () -> st.query(2, 4));
+        assertThrows(IndexOutOfBoundsException.class, () -> st.query(4, 7));
+    }
+
+    @Test
+    void capacityGrowsAcrossManyAppends() {
+        AppendableSegmentTree<Long, Long> st = new AppendableSegmentTree<>(new SumCombiner(), new AddUpdater());
+        for (long v = 0; v < 1000; v++) {
+            st.append(v);
+            if (v % 100 == 99) {
+                st.update(0, v + 1, 1L); // +1 to everything appended so far
+            }
+        }
+        long expected = 999L * 1000 / 2;
+        for (long v = 0; v < 1000; v++) {
+            expected += 10 - v / 100; // one +1 for every later multiple of 100
+        }
+        assertEquals(expected, st.query(0, 1000));
+    }
+
+    private static void randomOperations(AppendableSegmentTree<Long, Long> st, int window, Random rnd,
+                                         Updater<Long, Long> updater, Combiner<Long> combiner) {
+        List<Long> naive = new ArrayList<>();
+        for (int step = 0; step < 5000; step++) {
+            int op = rnd.nextInt(3);
+            if (op == 0 || naive.isEmpty()) {
+                long value = rnd.nextInt(1000);
+                st.append(value);
+                naive.add(value);
+                continue;
+            }
+            long first = window == 0 ? 0 : Math.max(0, naive.size() - window);
+            assertEquals(first, st.firstIndex());
+            long l = first + rnd.nextInt((int) (naive.size() - first));
+            long r = l + 1 + rnd.nextInt((int) (naive.size() - l));
+            if (op == 1) {
+                long update = rnd.nextInt(100);
+                st.update(l, r, update);
+                for (long i = l; i < r; i++) {
+                    naive.set((int) i, updater.applyUpdate(naive.get((int) i), update, 1));
+                }
+            } else {
+                Long expected = combiner.neutral();
+                for (long i = l; i < r; i++) {
+                    expected = combiner.combine(expected, naive.get((int) i));
+                }
+                assertEquals(expected, st.query(l, r));
+            }
+        }
+    }
+
+    @Test
+    void randomOperationsWithoutWindow() {
+        randomOperations(new AppendableSegmentTree<>(new SumCombiner(), new AddUpdater()), 0, new Random(16),
+                new AddUpdater(), new SumCombiner());
+        randomOperations(new AppendableSegmentTree<>(new MinCombiner(), new AssignUpdater()), 0, new Random(17),
+                new AssignUpdater(), new MinCombiner());
+    }
+
+    @Test
+    void randomOperationsWithWindow() {
+        for (int window : new int[]{1, 7, 64, 100}) {
+            randomOperations(new AppendableSegmentTree<>(window, new SumCombiner(), new AddUpdater()), window,
+                    new Random(window), new AddUpdater(), new SumCombiner());
+            randomOperations(new AppendableSegmentTree<>(window, new MinCombiner(), new AssignUpdater()), window,
+                    new Random(window + 1), new AssignUpdater(), new MinCombiner());
+        }
+    }
+
+    @Test
+    void rejectsNonPositiveWindow() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new AppendableSegmentTree<>(0, new SumCombiner(), new AddUpdater()));
+    }
+}
@@ -0,0 +1,165 @@
+package segtrees;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class BatchOperationsTest {
+
+    private static class SumCombiner implements Combiner<Long> {
+        @Override
+        public Long combine(Long left, Long right) {
+            return left + right;
+        }
+
+        @Override
+        public Long neutral() {
+            return 0L;
+        }
+    }
+
+    private static class AddUpdater implements Updater<Long, Long> {
+        @Override
+        public Long applyUpdate(Long value, Long update, int rangeSize) {
+            return value + update * rangeSize;
+        }
+
+        @Override
+        public Long composeUpdates(Long current, Long next) {
+            return current + next;
+        }
+
+        @Override
+        public Long neutralUpdate() {
+            return 0L;
+        }
+    }
+
+    private static class MinCombiner implements Combiner<Long> {
+        @Override
+        public Long combine(Long left, Long right) {
+            return Math.min(left, right);
+        }
+
+        @Override
+        public Long neutral() {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static class AssignUpdater implements Updater<Long, Long> {
+        @Override
+        public Long applyUpdate(Long value, Long update, int rangeSize) {
+            return update == Long.MAX_VALUE ? value : update;
+        }
+
+        @Override
+        public Long composeUpdates(Long current, Long next) {
+            return next == Long.MAX_VALUE ? current : next;
+        }
+
+        @Override
+        public Long neutralUpdate() {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    @Test
+    void smallFixedScenario() {
+        Long[] a = {1L, 2L, 3L, 4L, 5L};
+        SegmentTree<Long, Long> st = new SegmentTree<>(a, new SumCombiner(), new AddUpdater());
+        st.updateBatch(new int[]{0, 2, 0}, new int[]{5, 4, 1}, new Long[]{3L, 2L, 1L});
+        Long[] out = new Long[3];
+        st.queryBatch(new int[]{1, 0, 0}, new int[]{5, 2, 5}, out);
+        assertArrayEquals(new Long[]{30L, 10L, 35L}, out); // 5+8+9+8, 5+5, 5+5+8+9+8
+    }
+
+    @Test
+    void assignOrderIsPreserved() {
+        Long[] a = {1L, 2L, 3L, 4L, 5L};
+        SegmentTree<Long, Long> st = new SegmentTree<>(a, new MinCombiner(), new AssignUpdater());
+        st.updateBatch(new int[]{1, 0, 3}, new int[]{3, 5, 4}, new Long[]{0L, 7L, 6L});
+        assertEquals(7, st.query(0, 3)); // 7,7,7
+        assertEquals(6, st.query(0, 5)); // 7,7,7,6,7
+    }
+
+    @Test
+    void emptyRangesAreIgnored() {
+        Long[] a = {1L, 2L, 3L};
+        SegmentTree<Long, Long> st = new SegmentTree<>(a, new SumCombiner(), new AddUpdater());
+        st.updateBatch(new int[]{1}, new int[]{1}, new Long[]{5L});
+        Long[] out = new Long[2];
+        st.queryBatch(new int[]{0, 2}, new int[]{3, 2}, out);
+        assertArrayEquals(new Long[]{6L, 0L}, out);
+    }
+
+    @Test
+    void stressSumAdd() {
+        stress(new SumCombiner(), new AddUpdater());
+    }
+
+    @Test
+    void stressMinAssign() {
+        stress(new MinCombiner(), new AssignUpdater());
+    }
+
+    @Test
+    void stressMixedRangeShapes() {
+        // Short, clustered and repeated ranges mixed with wide ones, so that some children scan their parent's
+        // entries and others get a copy of their own.
+        stress(new SumCombiner(), new AddUpdater(), true);
+        stress(new MinCombiner(), new AssignUpdater(), true);
+    }
+
+    private void stress(Combiner<Long> combiner, Updater<Long, Long> updater) {
+        stress(combiner, updater, false);
+    }
+
+    private void stress(Combiner<Long> combiner, Updater<Long, Long> updater, boolean mixedShapes) {
+        Random rnd = new Random(12345);
+        int n = 1000;
+        Long[] a = new Long[n];
+        for (int i = 0; i < n; i++) {
+            a[i] = (long) rnd.nextInt(100);
+        }
+        SegmentTree<Long, Long> batched = new SegmentTree<>(a, combiner, updater);
+        SegmentTree<Long, Long> single = new SegmentTree<>(a, combiner, updater);
+        for (int round = 0; round < 100; round++) {
+            int m = rnd.nextInt(200) + 1;
+            int[] ls = new int[m];
+            int[] rs = new int[m];
+            Long[] values = new Long[m];
+            for (int i = 0; i < m; i++) {
+                int shape = mixedShapes ? rnd.nextInt(4) : 0;
+                if (shape == 1) {
+                    ls[i] = rnd.nextInt(8);
+                    rs[i] = ls[i] + 1 + rnd.nextInt(4);
+                } else if (shape == 2) {
+                    ls[i] = 0;
+                    rs[i] = 1;
+                } else if (shape == 3) {
+                    ls[i] = rnd.nextInt(n);
+                    rs[i] = n;
+                } else {
+                    ls[i] = rnd.nextInt(n);
+                    rs[i] = rnd.nextInt(n - ls[i]) + ls[i] + 1;
+                }
+                values[i] = rnd.nextLong(100);
+            }
+            if (rnd.nextBoolean()) {
+                batched.updateBatch(ls, rs, values);
+                for (int i = 0; i < m; i++) {
+                    single.update(ls[i], rs[i], values[i]);
+                }
+            } else {
+                batched.queryBatch(ls, rs, values);
+                for (int i = 0; i < m; i++) {
+                    assertEquals(single.query(ls[i], rs[i]), values[i]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package segtrees;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class ConcurrentSegmentTreeTest {
+
+    private static class SumCombiner implements Combiner<Long> {
+        @Override
+        public Long combine(Long left, Long right) {
+            return left + right;
+        }
+
+        @Override
+        public Long neutral() {
+            return 0L;
+        }
+    }
+
+    private static class AddUpdater implements Updater<Long, Long> {
+        @Override
+        public Long applyUpdate(Long value, Long update, int rangeSize) {
+            return value + update * rangeSize;
+        }
+
+        @Override
+        public Long composeUpdates(Long current, Long next) {
+            return current + next;
+        }
+
+        @Override
+        public Long neutralUpdate() {
+            return 0L;
+        }
+    }
+
+    private static class MinCombiner implements Combiner<Long> {
+        @Override
+        public Long combine(Long left, Long right) {
+            return Math.min(left, right);
+        }
+
+        @Override
+        public Long neutral() {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static class AssignUpdater implements Updater<Long, Long> {
+        @Override
+        public Long applyUpdate(Long value, Long update, int rangeSize) {
+            return update == Long.MAX_VALUE ? value : update;
+        }
+
+        @Override
+        public Long composeUpdates(Long current, Long next) {
+            return next == Long.MAX_VALUE ? current : next;
+        }
+
+        @Override
+        public Long neutralUpdate() {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static class NaiveArray<T, U> {
+        private final T[] a;
+        private final Updater<T, U> updater;
+        private final Combiner<T> combiner;
+
+        NaiveArray(T[] arr, Combiner<T> combiner, Updater<T, U> updater) {
+            this.a = arr.clone();
+            this.updater = updater;
+            this.combiner = combiner;
+        }
+
+        void update(int l, int r, U update) {
+            for (int i = l; i < r; i++) {
+                a[i] = updater.applyUpdate(a[i], update, 1);
+            }
+        }
+
+        T query(int l, int r) {
+            T result = a[l];
+            for (int i = l + 1; i < r; i++) {
+                result = combiner.combine(result, a[i]);
+            }
+            return result;
+        }
+    }
+
+    @Test
+    void smallFixedScenario() {
+        Long[] a = {1L, 2L, 3L, 4L, 5L};
+        ConcurrentSegmentTree<Long, Long> st = new ConcurrentSegmentTree<>(a, 2, new SumCombiner(), new AddUpdater());
+        assertEquals(9, st.query(1, 4)); // 2+3+4
+        st.update(0, 5, 3L); // +3 to all
+        assertEquals(26, st.query(1, 5)); // 5+6+7+8
+        st.update(2, 4, 2L); // +2 to indices 2 and 3
+        assertEquals(30, st.query(1, 5)); // 5+8+9+8
+        assertEquals(9, st.query(0, 2)); // 4+5
+    }
+
+    @Test
+    void singleThreadMinAssign() {
+        Random rnd = new Random(12345);
+        int n = 1000;
+        Long[] a = new Long[n];
+        for (int i = 0; i < n; i++) {
+            a[i] = (long) rnd.nextInt(100);
+        }
+        MinCombiner minCombiner = new MinCombiner();
+        AssignUpdater assignUpdater = new AssignUpdater();
+        ConcurrentSegmentTree<Long, Long> st = new ConcurrentSegmentTree<>(a, 7, minCombiner, assignUpdater);
+        NaiveArray<Long, Long> naive = new NaiveArray<>(a, minCombiner, assignUpdater);
+        for (int i = 0; i < 10000; i++) {
+            int l = rnd.nextInt(n);
+            int r = rnd.nextInt(n - l) + l + 1;
+            if (rnd.nextBoolean()) {
+                long update = rnd.nextLong(100);
+                st.update(l, r, update);
+                naive.update(l, r, update);
+            } else {
+                assertEquals(naive.query(l, r), st.query(l, r));
+            }
+        }
+    }
+
+    @Test
+    void concurrentSumAdd() throws InterruptedException {
+        int n = 1000;
+        int writers = 4;
+        int readers = 4;
+        Long[] a = new Long[n];
+        for (int i = 0; i < n; i++) {
+            a[i] = (long) i;
+        }
+        SumCombiner sumCombiner = new SumCombiner();
+        AddUpdater addUpdater = new AddUpdater();
+        ConcurrentSegmentTree<Long, Long> st = new ConcurrentSegmentTree<>(a, 16, sumCombiner, addUpdater);
+        List<List<long[]>> applied = new ArrayList<>();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            List<long[]> log = new ArrayList<>();
+            applied.add(log);
+            Random rnd = new Random(w);
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 5000; i++) {
+                    int l = rnd.nextInt(n);
+                    int r = rnd.nextInt(n - l) + l + 1;
+                    long update = rnd.nextLong(100);
+                    st.update(l, r, update);
+                    log.add(new long[]{l, r, update});
+                }
+            }));
+        }
+        for (int t = 0; t < readers; t++) {
+            Random rnd = new Random(100 + t);
+            threads.add(new Thread(() -> {
+                // Updates only add non-negative values, so a linearizable reader never sees a sum decrease.
+                int l = rnd.nextInt(n);
+                int r = rnd.nextInt(n - l) + l + 1;
+                long previous = Long.MIN_VALUE;
+                for (int i = 0; i < 20000; i++) {
+                    long current = st.query(l, r);
+                    if (current < previous) {
+                        failure.compareAndSet(null, new AssertionError("Sum decreased from " + previous + " to " + current));
+                    }
+                    previous = current;
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(failure.get());
+        NaiveArray<Long, Long> naive = new NaiveArray<>(a, sumCombiner, addUpdater);
+        for (List<long[]> log : applied) {
+            for (long[] op : log) {
+                naive.update((int) op[0], (int) op[1], op[2]);
+            }
+        }
+        Random rnd = new Random(12345);
+        for (int i = 0; i < 1000; i++) {
+            int l = rnd.nextInt(n);
+            int r = rnd.nextInt(n - l) + l + 1;
+            assertEquals(naive.query(l, r), st.query(l, r));
+        }
+    }
+
+    @Test
+    void concurrentMinAssignOnDisjointStripes() throws InterruptedException {
+        int stripes = 4;
+        int stripe = 250;
+        int n = stripes * stripe;
+        Long[] a = new Long[n];
+        for (int i = 0; i < n; i++) {
+            a[i] = (long) i;
+        }
+        MinCombiner minCombiner = new MinCombiner();
+        AssignUpdater assignUpdater = new AssignUpdater();
+        ConcurrentSegmentTree<Long, Long> st = new ConcurrentSegmentTree<>(a, 32, minCombiner, assignUpdater);
+        NaiveArray<Long, Long> naive = new NaiveArray<>(a, minCombiner, assignUpdater);
+        List<Thread> threads = new ArrayList<>();
+        for (int s = 0; s < stripes; s++) {
+            int offset = s * stripe;
+            Random rnd = new Random(s);
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 5000; i++) {
+                    int l = offset + rnd.nextInt(stripe);
+                    int r = rnd.nextInt(offset + stripe - l) + l + 1;
+                    long update = rnd.nextLong(100);
+                    st.update(l, r, update);
+                    synchronized (naive) {
+                        naive.update(l, r, update);
+                    }
+                    st.query(0, n);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Random rnd = new Random(12345);
+        for (int i = 0; i < 1000; i++) {
+            int l = rnd.nextInt(n);
+            int r = rnd.nextInt(n - l) + l + 1;
+            assertEquals(naive.query(l, r), st.query(l, r));
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package segtrees;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class DoubleSegmentTreeTest {
+
+    private static class SumCombiner implements DoubleCombiner {
+        @Override
+        public double combine(double left, double right) {
+            return left + right;
+        }
+
+        @Override
+        public double neutral() {
+            return 0.0;
+        }
+    }
+
+    private static class AddUpdater implements DoubleUpdater {
+        @Override
+        public double applyUpdate(double value, double update, int rangeSize) {
+            return value + update * rangeSize;
+        }
+
+        @Override
+        public double composeUpdates(double current, double next) {
+            return current + next;
+        }
+
+        @Override
+        public double neutralUpdate() {
+            return 0.0;
+        }
+    }
+
+    private static class MinCombiner implements DoubleCombiner {
+        @Override
+        public double combine(double left, double right) {
+            return Math.min(left, right);
+        }
+
+        @Override
+        public double neutral() {
+            return Double.POSITIVE_INFINITY;
+        }
+    }
+
+    private static class AssignUpdater implements DoubleUpdater {
+        @Override
+        public double applyUpdate(double value, double update, int rangeSize) {
+            return update == Double.POSITIVE_INFINITY ? value : update;
+        }
+
+        @Override
+        public double composeUpdates(double current, double next) {
+            return next == Double.POSITIVE_INFINITY ? current : next;
+        }
+
+        @Override
+        public double neutralUpdate() {
+            return Double.POSITIVE_INFINITY;
+        }
+    }
+
+    @Test
+    void sumAddFixedScenario() {
+        double[] a = {1.0, 2.0, 3.0, 4.0, 5.0};
+        DoubleSegmentTree st = new DoubleSegmentTree(a, new SumCombiner(), new AddUpdater());
+        assertEquals(9, st.query(1, 4)); // 2+3+4
+        st.update(0, 5, 3.0); // +3 to all
+        assertEquals(26, st.query(1, 5)); // 5+6+7+8
+        st.update(2, 4, 2.0); // +2 to indices 2 and 3
+        assertEquals(30, st.query(1, 5)); // 5+8+9+8
+        assertEquals(9, st.query(0, 2)); // 4+5
+        st.update(0, 1, 1.0); // +1 to index 0
+        assertEquals(10, st.query(0, 2)); // 5+5
+    }
+
+    @Test
+    void minAssignFixedScenario() {
+        double[] a = {1.0, 2.0, 3.0, 4.0, 5.0};
+        DoubleSegmentTree st = new DoubleSegmentTree(a, new MinCombiner(), new AssignUpdater());
+        assertEquals(2, st.query(1, 4)); // min of 2,3,4
+        st.update(0, 5, 3.0); // assign 3 to all
+        assertEquals(3, st.query(0, 5)); // min is 3
+        st.update(2, 4, 1.0); // assign 1 to indices 2 and 3
+        assertEquals(1, st.query(1, 5)); // min of 3,1,1,3
+        assertEquals(3, st.query(0, 2)); // min of 3,3
+        st.update(0, 1, 0.0); // assign 0 to index 0
+        assertEquals(0, st.query(0, 2)); // min of 0,3
+    }
+
+    @Test
+    void emptyConstructor() {
+        DoubleSegmentTree st = new DoubleSegmentTree(5, new SumCombiner(), new AddUpdater());
+        assertEquals(0, st.query(0, 5));
+        st.update(1, 3, 4.0); // +4 to indices 1 and 2
+        assertEquals(8, st.query(0, 5));
+        assertEquals(4, st.query(2, 4));
+    }
+
+    @Test
+    void fractionalValues() {
+        double[] a = {0.5, 1.25, 2.0};
+        DoubleSegmentTree st = new DoubleSegmentTree(a, new SumCombiner(), new AddUpdater());
+        assertEquals(3.75, st.query(0, 3));
+        st.update(0, 2, 0.25); // +0.25 to indices 0 and 1
+        assertEquals(4.25, st.query(0, 3));
+        assertEquals(1.5, st.query(1, 2));
+    }
+
+    @Test
+    void randomSumAdd() {
+        randomOperations(new SumCombiner(), new AddUpdater());
+    }
+
+    @Test
+    void randomMinAssign() {
+        randomOperations(new MinCombiner(), new AssignUpdater());
+    }
+
+    private void randomOperations(DoubleCombiner combiner, DoubleUpdater updater) {
+        Random rnd = new Random(12345);
+        int n = 1000;
+        double[] a = new double[n];
+        for (int i = 0; i < n; i++) {
+            a[i] = rnd.nextInt(100);
+        }
+        DoubleSegmentTree st = new DoubleSegmentTree(a, combiner, updater);
+        for (int i = 0; i < 10000; i++) {
+            int l = rnd.nextInt(n);
+            int r = rnd.nextInt(n - l) + l + 1;
+            if (rnd.nextBoolean()) {
+                double update = rnd.nextInt(100);
+                st.update(l, r, update);
+                for (int j = l; j < r; j++) {
+                    a[j] = updater.applyUpdate(a[j], update, 1);
+                }
+            } else {
+                double expected = a[l];
+                for (int j = l + 1; j < r; j++) {
+                    expected = combiner.combine(expected, a[j]);
+                }
+                assertEquals(expected, st.query(l, r));
+            }
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package segtrees;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DynamicSegmentTreeTest {
+
+    private static class SumCombiner implements Combiner<Long> {
+        @Override
+        public Long combine(Long left, Long right) {
+            return left + right;
+        }
+
+        @Override
+        public Long neutral() {
+            return 0L;
+        }
+    }
+
+    private static class AddUpdater implements Updater<Long, Long> {
+        @Override
+        public Long applyUpdate(Long value, Long update, int rangeSize) {
+            return value + update * rangeSize;
+        }
+
+        @Override
+        public Long applyUpdate(Long value, Long update, long rangeSize) {
+            return value + update * rangeSize;
+        }
+
+        @Override
+        public Long composeUpdates(Long current, Long next) {
+            return current + next;
+        }
+
+        @Override
+        public Long neutralUpdate() {
+            return 0L;
+        }
+    }
+
+    private static class MinCombiner implements Combiner<Long> {
+        @Override
+        public Long combine(Long left, Long right) {
+            return Math.min(left, right);
+        }
+
+        @Override
+        public Long neutral() {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static class AssignUpdater implements Updater<Long, Long> {
+        @Override
+        public Long applyUpdate(Long value, Long update, int rangeSize) {
+            return update == Long.MAX_VALUE ? value : update;
+        }
+
+        @Override
+        public Long applyUpdate(Long value, Long update, long rangeSize) {
+            return update == Long.MAX_VALUE ? value : update;
+        }
+
+        @Override
+        public Long composeUpdates(Long current, Long next) {
+            return next == Long.MAX_VALUE ? current : next;
+        }
+
+        @Override
+        public Long neutralUpdate() {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static class NaiveArray<T, U> {
+        private final T[] a;
+        private final Updater<T, U> updater;
+        private final Combiner<T> combiner;
+
+        NaiveArray(T[] arr, Combiner<T> combiner, Updater<T, U> updater) {
+            this.a = arr.clone();
+            this.updater = updater;
+            this.combiner = combiner;
+        }
+
+        void update(int l, int r, U update) {
+            for (int i = l; i < r; i++) {
+                a[i] = updater.applyUpdate(a[i], update, 1);
+            }
+        }
+
+        T query(int l, int r) {
+            T result = a[l];
+            for (int i = l + 1; i < r; i++) {
+                result = combiner.combine(result, a[i]);
+            }
+            return result;
+        }
+    }
+
+    @Test
+    void smallFixedScenario() {
+        DynamicSegmentTree<Long, Long> st = new DynamicSegmentTree<>(5, new SumCombiner(), new AddUpdater());
+        assertEquals(0, st.query(0, 5));
+        st.update(0, 5, 3L); // +3 to all
+        assertEquals(12, st.query(1, 5)); // 3+3+3+3
+        st.update(2, 4, 2L); // +2 to indices 2 and 3
+        assertEquals(16, st.query(1, 5)); // 3+5+5+3
+        assertEquals(6, st.query(0, 2)); // 3+3
+    }
+
+    @Test
+    void hugeCoordinateSpace() {
+        long n = 1L << 62;
+        DynamicSegmentTree<Long, Long> st = new DynamicSegmentTree<>(n, new SumCombiner(), new AddUpdater());
+        st.update(1_000_000_000_000L, 1_000_000_000_010L, 7L); // +7 to ten positions
+        st.update(n - 3, n, 1L); // +1 to the last three positions
+        st.update(0, n, 0L); // a no-op over the whole space
+        assertEquals(73, st.query(0, n));
+        assertEquals(14, st.query(1_000_000_000_008L, 1_000_000_000_100L));
+        assertEquals(2, st.query(n - 2, n));
+        assertEquals(0, st.query(5, 1_000_000_000_000L));
+        assertTrue(st.nodeCount() < 1000, "too many nodes: " + st.nodeCount());
+    }
+
+    @Test
+    void untouchedRangeWithPendingAssign() {
+        long n = 1L << 40;
+        DynamicSegmentTree<Long, Long> st = new DynamicSegmentTree<>(n, new MinCombiner(), new AssignUpdater());
+        assertEquals(Long.MAX_VALUE, st.query(0, n));
+        st.update(0, n, 9L); // assign 9 to all
+        st.update(100, 200, 4L); // assign 4 to [100, 200)
+        assertEquals(4, st.query(0, n));
+        assertEquals(9, st.query(200, 1L << 39));
+        assertEquals(4, st.query(150, 151));
+    }
+
+    @Test
+    void stressSumAdd() {
+        stress(new SumCombiner(), new AddUpdater());
+    }
+
+    @Test
+    void stressMinAssign() {
+        stress(new MinCombiner(), new AssignUpdater());
+    }
+
+    private void stress(Combiner<Long> combiner, Updater<Long, Long> updater) {
+        Random rnd = new Random(12345);
+        int n = 1000;
+        Long[] a = new Long[n];
+        Arrays.fill(a, combiner.neutral());
+        DynamicSegmentTree<Long, Long> st = new DynamicSegmentTree<>(n, combiner, updater);
+        NaiveArray<Long, Long> naive = new NaiveArray<>(a, combiner, updater);
+        for (int i = 0; i < 10000; i++) {
+            int l = rnd.nextInt(n);
+            int r = rnd.nextInt(n - l) + l + 1;
+            if (rnd.nextBoolean()) {
+                long update = rnd.nextLong(100);
+                st.update(l, r, update);
+                naive.update(l, r, update);
+            } else {
+                assertEquals(naive.query(l, r), st.query(l, r));
+            }
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package segtrees;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FenwickTreeTest {
+
+    private static class SumCombiner implements Combiner<Long> {
+        @Override
+        public Long combine(Long left, Long right) {
+            return left + right;
+        }
+
+        @Override
+        public Long neutral() {
+            return 0L;
+        }
+
+        @Override
+        public boolean isInvertible() {
+            return true;
+        }
+
+        @Override
+        public Long inverse(Long value) {
+            return -value;
+        }
+    }
+
+    private static class AddUpdater implements Updater<Long, Long> {
+        @Override
+        public Long applyUpdate(Long value, Long update, int rangeSize) {
+            return value + update * rangeSize;
+        }
+
+        @Override
+        public Long composeUpdates(Long current, Long next) {
+            return current + next;
+        }
+
+        @Override
+        public Long neutralUpdate() {
+            return 0L;
+        }
+
+        @Override
+        public boolean isAdditive() {
+            return true;
+        }
+    }
+
+    private static class XorCombiner implements Combiner<Integer> {
+        @Override
+        public Integer combine(Integer left, Integer right) {
+            return left ^ right;
+        }
+
+        @Override
+        public Integer neutral() {
+            return 0;
+        }
+
+        @Override
+        public boolean isInvertible() {
+            return true;
+        }
+
+        @Override
+        public Integer inverse(Integer value) {
+            return value;
+        }
+    }
+
+    private static class XorUpdater implements Updater<Integer, Integer> {
+        @Override
+        public Integer applyUpdate(Integer value, Integer update, int rangeSize) {
+            return (rangeSize & 1) == 1 ? value ^ update : value;
+        }
+
+        @Override
+        public Integer composeUpdates(Integer current, Integer next) {
+            return current ^ next;
+        }
+
+        @Override
+        public Integer neutralUpdate() {
+            return 0;
+        }
+
+        @Override
+        public boolean isAdditive() {
+            return true;
+        }
+    }
+
+    private static class MinCombiner implements Combiner<Long> {
+        @Override
+        public Long combine(Long left, Long right) {
+            return Math.min(left, right);
+        }
+
+        @Override
+        public Long neutral() {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static class AssignUpdater implements Updater<Long, Long> {
+        @Override
+        public Long applyUpdate(Long value, Long update, int rangeSize) {
+            return update == Long.MIN_VALUE ? value : update;
+        }
+
+        @Override
+        public Long composeUpdates(Long current, Long next) {
+            return next == Long.MIN_VALUE ? current : next;
+        }
+
+        @Override
+        public Long neutralUpdate() {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    @Test
+    void smallFixedScenario() {
+        Long[] a = {1L, 2L, 3L, 4L, 5L};
+        FenwickTree<Long, Long> ft = new FenwickTree<>(a, new SumCombiner(), new AddUpdater());
+        assertEquals(9, ft.query(1, 4)); // 2+3+4
+        ft.update(0, 5, 3L); // +3 to all
+        assertEquals(26, ft.query(1, 5)); // 5+6+7+8
+        ft.update(2, 4, 2L); // +2 to indices 2 and 3
+        assertEquals(30, ft.query(1, 5)); // 5+8+9+8
+        assertEquals(9, ft.query(0, 2)); // 4+5
+        ft.update(0, 1, 1L); // +1 to index 0
+        assertEquals(10, ft.query(0, 2)); // 5+5
+        assertEquals(0, ft.query(3, 3));
+    }
+
+    @Test
+    void randomSumAdd() {
+        Random rnd = new Random(17);
+        int n = 1000;
+        Long[] a = new Long[n];
+        for (int i = 0; i < n; i++) {
+            a[i] = (long) rnd.nextInt(1000) - 500;
+        }
+        FenwickTree<Long, Long> ft = new FenwickTree<>(a, new SumCombiner(), new AddUpdater());
+        long[] naive = new long[n];
+        for (int i = 0; i < n; i++) {
+            naive[i] = a[i];
+        }
+        for (int step = 0; step < 5000; step++) {
+            int l = rnd.nextInt(n);
+            int r = l + 1 + rnd.nextInt(n - l);
+            if (rnd.nextBoolean()) {
+                long update = rnd.nextInt(200) - 100;
+                ft.update(l, r, update);
+                for (int i = l; i < r; i++) {
+                    naive[i] += update;
+                }
+            } else {
+                long expected = 0;
+                for (int i = l; i < r; i++) {
+                    expected += naive[i];
+                }
+                assertEquals(expected, ft.query(l, r));
+            }
+        }
+    }
+
+    @Test
+    void randomXor() {
+        Random rnd = new Random(18);
+        int n = 300;
+        FenwickTree<Integer, Integer> ft = new FenwickTree<>(n, new XorCombiner(), new XorUpdater());
+        int[] naive = new int[n];
+        for (int step = 0; step < 3000; step++) {
+            int l = rnd.nextInt(n);
+            int r = l + 1 + rnd.nextInt(n - l);
+            if (rnd.nextBoolean()) {
+                int update = rnd.nextInt(1 << 20);
+                ft.update(l, r, update);
+                for (int i = l; i < r; i++) {
+                    naive[i] ^= update;
+                }
+            } else {
+                int expected = 0;
+                for (int i = l; i < r; i++) {
+                    expected ^= naive[i];
+                }
+                assertEquals(expected, ft.query(l, r));
+            }
+        }
+    }
+
+    @Test
+    void factoryPicksEngine() {
+        Long[] a = {1L, 2L, 3L, 4L, 5L};
+        RangeStructure<Long, Long> sums = RangeStructure.create(a, new SumCombiner(), new AddUpdater());
+        assertTrue(sums instanceof FenwickTree);
+        RangeStructure<Long, Long> mins = RangeStructure.create(a, new MinCombiner(), new AssignUpdater());
+        assertTrue(mins instanceof SegmentTree);
+        sums.update(1, 3, 10L); // +10 to indices 1 and 2
+        mins.update(1, 3, 10L); // indices 1 and 2 become 10
+        assertEquals(35, sums.query(0, 5)); // 1+12+13+4+5
+        assertEquals(1, mins.query(0, 5));
+        assertEquals(4, mins.query(1, 4)); // min(10, 10, 4)
+        assertTrue(RangeStructure.create(3, new SumCombiner(), new AddUpdater()) instanceof FenwickTree);
+    }
+
+    @Test
+    void rejectsNonInvertibleCombiner() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new FenwickTree<>(new Long[]{1L}, new MinCombiner(), new AddUpdater()));
+        assertThrows(IllegalArgumentException.class,
+                () -> new FenwickTree<>(new Long[]{1L}, new SumCombiner(), new AssignUpdater()));
+    }
+}
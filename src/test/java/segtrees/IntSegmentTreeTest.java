@@ -0,0 +1,142 @@
+package segtrees;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class IntSegmentTreeTest {
+
+    private static class SumCombiner implements IntCombiner {
+        @Override
+        public int combine(int left, int right) {
+            return left + right;
+        }
+
+        @Override
+        public int neutral() {
+            return 0;
+        }
+    }
+
+    private static class AddUpdater implements IntUpdater {
+        @Override
+        public int applyUpdate(int value, int update, int rangeSize) {
+            return value + update * rangeSize;
+        }
+
+        @Override
+        public int composeUpdates(int current, int next) {
+            return current + next;
+        }
+
+        @Override
+        public int neutralUpdate() {
+            return 0;
+        }
+    }
+
+    private static class MinCombiner implements IntCombiner {
+        @Override
+        public int combine(int left, int right) {
+            return Math.min(left, right);
+        }
+
+        @Override
+        public int neutral() {
+            return Integer.MAX_VALUE;
+        }
+    }
+
+    private static class AssignUpdater implements IntUpdater {
+        @Override
+        public int applyUpdate(int value, int update, int rangeSize) {
+            return update == Integer.MAX_VALUE ? value : update;
+        }
+
+        @Override
+        public int composeUpdates(int current, int next) {
+            return next == Integer.MAX_VALUE ? current : next;
+        }
+
+        @Override
+        public int neutralUpdate() {
+            return Integer.MAX_VALUE;
+        }
+    }
+
+    @Test
+    void sumAddFixedScenario() {
+        int[] a = {1, 2, 3, 4, 5};
+        IntSegmentTree st = new IntSegmentTree(a, new SumCombiner(), new AddUpdater());
+        assertEquals(9, st.query(1, 4)); // 2+3+4
+        st.update(0, 5, 3); // +3 to all
+        assertEquals(26, st.query(1, 5)); // 5+6+7+8
+        st.update(2, 4, 2); // +2 to indices 2 and 3
+        assertEquals(30, st.query(1, 5)); // 5+8+9+8
+        assertEquals(9, st.query(0, 2)); // 4+5
+        st.update(0, 1, 1); // +1 to index 0
+        assertEquals(10, st.query(0, 2)); // 5+5
+    }
+
+    @Test
+    void minAssignFixedScenario() {
+        int[] a = {1, 2, 3, 4, 5};
+        IntSegmentTree st = new IntSegmentTree(a, new MinCombiner(), new AssignUpdater());
+        assertEquals(2, st.query(1, 4)); // min of 2,3,4
+        st.update(0, 5, 3); // assign 3 to all
+        assertEquals(3, st.query(0, 5)); // min is 3
+        st.update(2, 4, 1); // assign 1 to indices 2 and 3
+        assertEquals(1, st.query(1, 5)); // min of 3,1,1,3
+        assertEquals(3, st.query(0, 2)); // min of 3,3
+        st.update(0, 1, 0); // assign 0 to index 0
+        assertEquals(0, st.query(0, 2)); // min of 0,3
+    }
+
+    @Test
+    void emptyConstructor() {
+        IntSegmentTree st = new IntSegmentTree(5, new SumCombiner(), new AddUpdater());
+        assertEquals(0, st.query(0, 5));
+        st.update(1, 3, 4); // +4 to indices 1 and 2
+        assertEquals(8, st.query(0, 5));
+        assertEquals(4, st.query(2, 4));
+    }
+
+    @Test
+    void randomSumAdd() {
+        randomOperations(new SumCombiner(), new AddUpdater());
+    }
+
+    @Test
+    void randomMinAssign() {
+        randomOperations(new MinCombiner(), new AssignUpdater());
+    }
+
+    private void randomOperations(IntCombiner combiner, IntUpdater updater) {
+        Random rnd = new Random(12345);
+        int n = 1000;
+        int[] a = new int[n];
+        for (int i = 0; i < n; i++) {
+            a[i] = rnd.nextInt(100);
+        }
+        IntSegmentTree st = new IntSegmentTree(a, combiner, updater);
+        for (int i = 0; i < 10000; i++) {
+            int l = rnd.nextInt(n);
+            int r = rnd.nextInt(n - l) + l + 1;
+            if (rnd.nextBoolean()) {
+                int update = rnd.nextInt(100);
+                st.update(l, r, update);
+                for (int j = l; j < r; j++) {
+                    a[j] = updater.applyUpdate(a[j], update, 1);
+                }
+            } else {
+                int expected = a[l];
+                for (int j = l + 1; j < r; j++) {
+                    expected = combiner.combine(expected, a[j]);
+                }
+                assertEquals(expected, st.query(l, r));
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package segtrees;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class IterativeSegmentTreeTest {
+
+    private static class SumCombiner implements Combiner<Long> {
+        @Override
+        public Long combine(Long left, Long right) {
+            return left + right;
+        }
+
+        @Override
+        public Long neutral() {
+            return 0L;
+        }
+    }
+
+    private static class AddUpdater implements Updater<Long, Long> {
+        @Override
+        public Long applyUpdate(Long value, Long update, int rangeSize) {
+            return value + update * rangeSize;
+        }
+
+        @Override
+        public Long composeUpdates(Long current, Long next) {
+            return current + next;
+        }
+
+        @Override
+        public Long neutralUpdate() {
+            return 0L;
+        }
+    }
+
+    private static class MinCombiner implements Combiner<Long> {
+        @Override
+        public Long combine(Long left, Long right) {
+            return Math.min(left, right);
+        }
+
+        @Override
+        public Long neutral() {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static class AssignUpdater implements Updater<Long, Long> {
+        @Override
+        public Long applyUpdate(Long value, Long update, int rangeSize) {
+            return update == Long.MAX_VALUE ? value : update;
+        }
+
+        @Override
+        public Long composeUpdates(Long current, Long next) {
+            return next == Long.MAX_VALUE ? current : next;
+        }
+
+        @Override
+        public Long neutralUpdate() {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static class NaiveArray<T, U> {
+        private final T[] a;
+        private final Updater<T, U> updater;
+        private final Combiner<T> combiner;
+
+        NaiveArray(T[] arr, Combiner<T> combiner, Updater<T, U> updater) {
+            this.a = arr.clone();
+            this.updater = updater;
+            this.combiner = combiner;
+        }
+
+        void update(int l, int r, U update) {
+            for (int i = l; i < r; i++) {
+                a[i] = updater.applyUpdate(a[i], update, 1);
+            }
+        }
+
+        T query(int l, int r) {
+            T result = a[l];
+            for (int i = l + 1; i < r; i++) {
+                result = combiner.combine(result, a[i]);
+            }
+            return result;
+        }
+    }
+
+    @Test
+    void sumAddFixedScenario() {
+        Long[] a = {1L, 2L, 3L, 4L, 5L};
+        IterativeSegmentTree<Long, Long> st = new IterativeSegmentTree<>(a, new SumCombiner(), new AddUpdater());
+        assertEquals(9, st.query(1, 4)); // 2+3+4
+        st.update(0, 5, 3L); // +3 to all
+        assertEquals(26, st.query(1, 5)); // 5+6+7+8
+        st.update(2, 4, 2L); // +2 to indices 2 and 3
+        assertEquals(30, st.query(1, 5)); // 5+8+9+8
+        assertEquals(9, st.query(0, 2)); // 4+5
+        st.update(0, 1, 1L); // +1 to index 0
+        assertEquals(10, st.query(0, 2)); // 5+5
+    }
+
+    @Test
+    void minAssignFixedScenario() {
+        Long[] a = {1L, 2L, 3L, 4L, 5L};
+        IterativeSegmentTree<Long, Long> st = new IterativeSegmentTree<>(a, new MinCombiner(), new AssignUpdater());
+        assertEquals(2, st.query(1, 4)); // min of 2,3,4
+        st.update(0, 5, 3L); // assign 3 to all
+        assertEquals(3, st.query(0, 5)); // min is 3
+        st.update(2, 4, 1L); // assign 1 to indices 2 and 3
+        assertEquals(1, st.query(1, 5)); // min of 3,1,1,3
+        assertEquals(3, st.query(0, 2)); // min of 3,3
+        st.update(0, 1, 0L); // assign 0 to index 0
+        assertEquals(0, st.query(0, 2)); // min of 0,3
+    }
+
+    @Test
+    void singleElement() {
+        Long[] a = {7L};
+        IterativeSegmentTree<Long, Long> st = new IterativeSegmentTree<>(a, new SumCombiner(), new AddUpdater());
+        assertEquals(7, st.query(0, 1));
+        st.update(0, 1, 3L);
+        assertEquals(10, st.query(0, 1));
+    }
+
+    @Test
+    void stressSumAdd() {
+        stress(new SumCombiner(), new AddUpdater());
+    }
+
+    @Test
+    void stressMinAssign() {
+        stress(new MinCombiner(), new AssignUpdater());
+    }
+
+    private void stress(Combiner<Long> combiner, Updater<Long, Long> updater) {
+        Random rnd = new Random(12345);
+        for (int n : new int[]{1, 2, 3, 7, 8, 9, 1000}) {
+            Long[] a = new Long[n];
+            for (int i = 0; i < n; i++) {
+                a[i] = (long) rnd.nextInt(100);
+            }
+            IterativeSegmentTree<Long, Long> st = new IterativeSegmentTree<>(a, combiner, updater);
+            NaiveArray<Long, Long> naive = new NaiveArray<>(a, combiner, updater);
+            for (int i = 0; i < 2000; i++) {
+                int l = rnd.nextInt(n);
+                int r = rnd.nextInt(n - l) + l + 1;
+                if (rnd.nextBoolean()) {
+                    long update = rnd.nextLong(100);
+                    st.update(l, r, update);
+                    naive.update(l, r, update);
+                } else {
+                    assertEquals(naive.query(l, r), st.query(l, r));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package segtrees;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class MappedLongSegmentTreeTest {
+
+    private static class SumCombiner implements LongCombiner {
+        @Override
+        public long combine(long left, long right) {
+            return left + right;
+        }
+
+        @Override
+        public long neutral() {
+            return 0L;
+        }
+    }
+
+    private static class AddUpdater implements LongUpdater {
+        @Override
+        public long applyUpdate(long value, long update, int rangeSize) {
+            return value + update * rangeSize;
+        }
+
+        @Override
+        public long composeUpdates(long current, long next) {
+            return current + next;
+        }
+
+        @Override
+        public long neutralUpdate() {
+            return 0L;
+        }
+    }
+
+    private static class MinCombiner implements LongCombiner {
+        @Override
+        public long combine(long left, long right) {
+            return Math.min(left, right);
+        }
+
+        @Override
+        public long neutral() {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static class AssignUpdater implements LongUpdater {
+        @Override
+        public long applyUpdate(long value, long update, int rangeSize) {
+            return update == Long.MAX_VALUE ? value : update;
+        }
+
+        @Override
+        public long composeUpdates(long current, long next) {
+            return next == Long.MAX_VALUE ? current : next;
+        }
+
+        @Override
+        public long neutralUpdate() {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    @Test
+    void smallFixedScenario(@TempDir Path dir) throws IOException {
+        long[] a = {1L, 2L, 3L, 4L, 5L};
+        try (MappedLongSegmentTree st = MappedLongSegmentTree.create(dir.resolve("tree.bin"), a.length,
+                i -> a[(int) i], new SumCombiner(), new AddUpdater())) {
+            assertEquals(9, st.query(1, 4)); // 2+3+4
+            st.update(0, 5, 3L); // +3 to all
+            assertEquals(26, st.query(1, 5)); // 5+6+7+8
+            st.update(2, 4, 2L); // +2 to indices 2 and 3
+            assertEquals(30, st.query(1, 5)); // 5+8+9+8
+            assertEquals(9, st.query(0, 2)); // 4+5
+        }
+    }
+
+    @Test
+    void reopenKeepsPendingUpdates(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("tree.bin");
+        try (MappedLongSegmentTree st = MappedLongSegmentTree.create(file, 6, new MinCombiner(), new AssignUpdater())) {
+            st.update(0, 6, 7L); // assign 7 to all, pending in the children of the root
+            st.update(2, 3, 1L); // assign 1 to index 2
+        }
+        try (MappedLongSegmentTree st = MappedLongSegmentTree.open(file, new MinCombiner(), new AssignUpdater())) {
+            assertEquals(6, st.size());
+            assertEquals(1, st.query(0, 6));
+            assertEquals(7, st.query(3, 6));
+            assertEquals(7, st.query(0, 2));
+        }
+    }
+
+    @Test
+    void openWithDifferentUpdaterFails(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("tree.bin");
+        MappedLongSegmentTree.create(file, 4, new MinCombiner(), new AssignUpdater()).close();
+        assertThrows(IllegalArgumentException.class, () -> MappedLongSegmentTree.open(file, new SumCombiner(), new AddUpdater()));
+    }
+
+    @Test
+    void openRejectsTruncatedOrCorruptedFile(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("tree.bin");
+        MappedLongSegmentTree.create(file, 1000, new SumCombiner(), new AddUpdater()).close();
+        long length = Files.size(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(length - 16);
+        }
+        assertThrows(IOException.class, () -> MappedLongSegmentTree.open(file, new SumCombiner(), new AddUpdater()));
+        assertEquals(length - 16, Files.size(file)); // not extended by the mapping
+
+        MappedLongSegmentTree.create(file, 1000, new SumCombiner(), new AddUpdater()).close();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ByteBuffer size = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN).putLong(0, 1L << 20);
+            channel.write(size, 8); // the stored size claims a much larger tree
+        }
+        assertThrows(IOException.class, () -> MappedLongSegmentTree.open(file, new SumCombiner(), new AddUpdater()));
+        assertEquals(length, Files.size(file));
+
+        Files.write(file, new byte[10]);
+        assertThrows(IOException.class, () -> MappedLongSegmentTree.open(file, new SumCombiner(), new AddUpdater()));
+    }
+
+    @Test
+    void randomSumAdd(@TempDir Path dir) throws IOException {
+        randomOperations(dir.resolve("tree.bin"), new SumCombiner(), new AddUpdater());
+    }
+
+    @Test
+    void randomMinAssign(@TempDir Path dir) throws IOException {
+        randomOperations(dir.resolve("tree.bin"), new MinCombiner(), new AssignUpdater());
+    }
+
+    private void randomOperations(Path file, LongCombiner combiner, LongUpdater updater) throws IOException {
+        Random rnd = new Random(12345);
+        int n = 1000;
+        long[] a = new long[n];
+        for (int i = 0; i < n; i++) {
+            a[i] = rnd.nextInt(100);
+        }
+        MappedLongSegmentTree st = MappedLongSegmentTree.create(file, n, i -> a[(int) i], combiner, updater);
+        for (int i = 0; i < 10000; i++) {
+            if (i % 2500 == 0) {
+                st.close();
+                st = MappedLongSegmentTree.open(file, combiner, updater);
+            }
+            int l = rnd.nextInt(n);
+            int r = rnd.nextInt(n - l) + l + 1;
+            if (rnd.nextBoolean()) {
+                long update = rnd.nextLong(100);
+                st.update(l, r, update);
+                for (int j = l; j < r; j++) {
+                    a[j] = updater.applyUpdate(a[j], update, 1);
+                }
+            } else {
+                long expected = a[l];
+                for (int j = l + 1; j < r; j++) {
+                    expected = combiner.combine(expected, a[j]);
+                }
+                assertEquals(expected, st.query(l, r));
+            }
+        }
+        st.close();
+    }
+}
@@ -0,0 +1,83 @@
+package segtrees;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class MultiAggregateTreeTest {
+
+    @Test
+    void smallFixedScenario() {
+        MultiAggregateTree st = new MultiAggregateTree(new long[]{1, 2, 3, 4, 5});
+        MultiAggregateTree.Result result = st.query(1, 4);
+        assertEquals(9, result.getSum()); // 2+3+4
+        assertEquals(2, result.getMin());
+        assertEquals(4, result.getMax());
+        assertEquals(3, result.getCount());
+        st.add(0, 5, 3); // 4, 5, 6, 7, 8
+        st.add(2, 4, -10); // 4, 5, -4, -3, 8
+        st.query(1, 5, MultiAggregateTree.SUM | MultiAggregateTree.MAX, result);
+        assertEquals(6, result.getSum()); // 5-4-3+8
+        assertEquals(8, result.getMax());
+        assertEquals(Long.MAX_VALUE, result.getMin()); // not selected
+        assertEquals(0, result.getCount()); // not selected
+        st.query(0, 3, MultiAggregateTree.MIN | MultiAggregateTree.COUNT, result);
+        assertEquals(-4, result.getMin());
+        assertEquals(3, result.getCount());
+        assertEquals(0, result.getSum()); // not selected
+    }
+
+    @Test
+    void emptyRanges() {
+        MultiAggregateTree st = new MultiAggregateTree(3);
+        st.add(1, 1, 5);
+        MultiAggregateTree.Result result = st.query(2, 2);
+        assertEquals(0, result.getSum());
+        assertEquals(Long.MAX_VALUE, result.getMin());
+        assertEquals(Long.MIN_VALUE, result.getMax());
+        assertEquals(0, result.getCount());
+        assertEquals(0, st.query(0, 3).getSum());
+        assertEquals(0, new MultiAggregateTree(0).query(0, 0).getCount());
+    }
+
+    @Test
+    void randomOperations() {
+        Random rnd = new Random(7);
+        MultiAggregateTree.Result result = new MultiAggregateTree.Result();
+        for (int n : new int[]{1, 2, 7, 64, 300}) {
+            long[] naive = new long[n];
+            for (int i = 0; i < n; i++) {
+                naive[i] = rnd.nextInt(2001) - 1000;
+            }
+            MultiAggregateTree st = new MultiAggregateTree(naive);
+            for (int step = 0; step < 5000; step++) {
+                int l = rnd.nextInt(n);
+                int r = l + 1 + rnd.nextInt(n - l);
+                if (rnd.nextBoolean()) {
+                    long x = rnd.nextInt(201) - 100;
+                    st.add(l, r, x);
+                    for (int i = l; i < r; i++) {
+                        naive[i] += x;
+                    }
+                } else {
+                    long sum = 0;
+                    long min = Long.MAX_VALUE;
+                    long max = Long.MIN_VALUE;
+                    for (int i = l; i < r; i++) {
+                        sum += naive[i];
+                        min = Math.min(min, naive[i]);
+                        max = Math.max(max, naive[i]);
+                    }
+                    int aggregates = 1 + rnd.nextInt(MultiAggregateTree.ALL);
+                    st.query(l, r, aggregates, result);
+                    assertEquals((aggregates & MultiAggregateTree.SUM) != 0 ? sum : 0, result.getSum());
+                    assertEquals((aggregates & MultiAggregateTree.MIN) != 0 ? min : Long.MAX_VALUE, result.getMin());
+                    assertEquals((aggregates & MultiAggregateTree.MAX) != 0 ? max : Long.MIN_VALUE, result.getMax());
+                    assertEquals((aggregates & MultiAggregateTree.COUNT) != 0 ? r - l : 0, result.getCount());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package segtrees;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ParallelBuildTest {
+
+    private static class SumCombiner implements Combiner<Long> {
+        @Override
+        public Long combine(Long left, Long right) {
+            return left + right;
+        }
+
+        @Override
+        public Long neutral() {
+            return 0L;
+        }
+    }
+
+    private static class AddUpdater implements Updater<Long, Long> {
+        @Override
+        public Long applyUpdate(Long value, Long update, int rangeSize) {
+            return value + update * rangeSize;
+        }
+
+        @Override
+        public Long composeUpdates(Long current, Long next) {
+            return current + next;
+        }
+
+        @Override
+        public Long neutralUpdate() {
+            return 0L;
+        }
+    }
+
+    private static class LongSumCombiner implements LongCombiner {
+        @Override
+        public long combine(long left, long right) {
+            return left + right;
+        }
+
+        @Override
+        public long neutral() {
+            return 0L;
+        }
+    }
+
+    private static class LongAddUpdater implements LongUpdater {
+        @Override
+        public long applyUpdate(long value, long update, int rangeSize) {
+            return value + update * rangeSize;
+        }
+
+        @Override
+        public long composeUpdates(long current, long next) {
+            return current + next;
+        }
+
+        @Override
+        public long neutralUpdate() {
+            return 0L;
+        }
+    }
+
+    private static final int N = 100_000;
+
+    @Test
+    void parallelBuildMatchesSequential() {
+        Random rnd = new Random(12345);
+        Long[] a = new Long[N];
+        for (int i = 0; i < N; i++) {
+            a[i] = (long) rnd.nextInt(100);
+        }
+        ForkJoinPool pool = new ForkJoinPool(4);
+        SegmentTree<Long, Long> sequential = new SegmentTree<>(a, new SumCombiner(), new AddUpdater());
+        SegmentTree<Long, Long> parallel = new SegmentTree<>(a, new SumCombiner(), new AddUpdater(), pool);
+        SegmentTree<Long, Long> streamed = new SegmentTree<>(Arrays.spliterator(a), new SumCombiner(), new AddUpdater(), pool);
+        pool.shutdown();
+        for (int i = 0; i < 1000; i++) {
+            int l = rnd.nextInt(N);
+            int r = rnd.nextInt(N - l) + l + 1;
+            if (rnd.nextBoolean()) {
+                long update = rnd.nextLong(100);
+                sequential.update(l, r, update);
+                parallel.update(l, r, update);
+                streamed.update(l, r, update);
+            } else {
+                assertEquals(sequential.query(l, r), parallel.query(l, r));
+                assertEquals(sequential.query(l, r), streamed.query(l, r));
+            }
+        }
+    }
+
+    @Test
+    void assignAllDropsPendingUpdates() {
+        Long[] a = new Long[N];
+        Arrays.fill(a, 1L);
+        SegmentTree<Long, Long> st = new SegmentTree<>(N, new SumCombiner(), new AddUpdater());
+        st.update(0, N, 5L);
+        st.update(10, 20, 3L);
+        st.assignAll(a);
+        assertEquals(N, st.query(0, N));
+        assertEquals(10, st.query(10, 20));
+        st.fill(2L);
+        assertEquals(2L * N, st.query(0, N));
+        st.update(0, 10, 1L);
+        assertEquals(30, st.query(0, 10));
+        assertThrows(IllegalArgumentException.class, () -> st.assignAll(new Long[N - 1]));
+    }
+
+    @Test
+    void primitiveParallelBuild() {
+        Random rnd = new Random(12345);
+        long[] a = new long[N];
+        for (int i = 0; i < N; i++) {
+            a[i] = rnd.nextInt(100);
+        }
+        ForkJoinPool pool = new ForkJoinPool(4);
+        LongSegmentTree sequential = new LongSegmentTree(a, new LongSumCombiner(), new LongAddUpdater());
+        LongSegmentTree parallel = new LongSegmentTree(LongStream.of(a).parallel(), new LongSumCombiner(),
+                new LongAddUpdater(), pool);
+        LongSegmentTree reassigned = new LongSegmentTree(N, new LongSumCombiner(), new LongAddUpdater());
+        reassigned.update(0, N, 7L);
+        reassigned.assignAll(a, pool);
+        pool.shutdown();
+        for (int i = 0; i < 1000; i++) {
+            int l = rnd.nextInt(N);
+            int r = rnd.nextInt(N - l) + l + 1;
+            if (rnd.nextBoolean()) {
+                long update = rnd.nextLong(100);
+                sequential.update(l, r, update);
+                parallel.update(l, r, update);
+                reassigned.update(l, r, update);
+            } else {
+                assertEquals(sequential.query(l, r), parallel.query(l, r));
+                assertEquals(sequential.query(l, r), reassigned.query(l, r));
+            }
+        }
+        parallel.fill(3L);
+        assertEquals(3L * N, parallel.query(0, N));
+    }
+}
@@ -0,0 +1,137 @@
+package segtrees;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class PersistentSegmentTreeTest {
+
+    private static class SumCombiner implements Combiner<Long> {
+        @Override
+        public Long combine(Long left, Long right) {
+            return left + right;
+        }
+
+        @Override
+        public Long neutral() {
+            return 0L;
+        }
+    }
+
+    private static class AddUpdater implements Updater<Long, Long> {
+        @Override
+        public Long applyUpdate(Long value, Long update, int rangeSize) {
+            return value + update * rangeSize;
+        }
+
+        @Override
+        public Long composeUpdates(Long current, Long next) {
+            return current + next;
+        }
+
+        @Override
+        public Long neutralUpdate() {
+            return 0L;
+        }
+    }
+
+    private static class MinCombiner implements Combiner<Long> {
+        @Override
+        public Long combine(Long left, Long right) {
+            return Math.min(left, right);
+        }
+
+        @Override
+        public Long neutral() {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static class AssignUpdater implements Updater<Long, Long> {
+        @Override
+        public Long applyUpdate(Long value, Long update, int rangeSize) {
+            return update == Long.MAX_VALUE ? value : update;
+        }
+
+        @Override
+        public Long composeUpdates(Long current, Long next) {
+            return next == Long.MAX_VALUE ? current : next;
+        }
+
+        @Override
+        public Long neutralUpdate() {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    @Test
+    void smallFixedScenario() {
+        Long[] a = {1L, 2L, 3L, 4L, 5L};
+        PersistentSegmentTree<Long, Long> st = new PersistentSegmentTree<>(a, new SumCombiner(), new AddUpdater());
+        int v1 = st.update(0, 0, 5, 3L); // +3 to all
+        int v2 = st.update(v1, 2, 4, 2L); // +2 to indices 2 and 3
+        int v3 = st.update(v1, 0, 1, 1L); // +1 to index 0, branching from v1
+        assertEquals(9, st.query(0, 1, 4)); // 2+3+4
+        assertEquals(26, st.query(v1, 1, 5)); // 5+6+7+8
+        assertEquals(30, st.query(v2, 1, 5)); // 5+8+9+8
+        assertEquals(10, st.query(v3, 0, 2)); // 5+5
+        assertEquals(9, st.query(v2, 0, 2)); // 4+5
+        assertEquals(4, st.versionCount());
+    }
+
+    @Test
+    void emptyConstructor() {
+        PersistentSegmentTree<Long, Long> st = new PersistentSegmentTree<>(4, new MinCombiner(), new AssignUpdater());
+        int v1 = st.update(0, 1, 3, 5L); // assign 5 to indices 1 and 2
+        assertEquals(Long.MAX_VALUE, st.query(0, 0, 4));
+        assertEquals(5, st.query(v1, 0, 4));
+        assertEquals(Long.MAX_VALUE, st.query(v1, 3, 4));
+    }
+
+    @Test
+    void stressSumAdd() {
+        stress(new SumCombiner(), new AddUpdater());
+    }
+
+    @Test
+    void stressMinAssign() {
+        stress(new MinCombiner(), new AssignUpdater());
+    }
+
+    private void stress(Combiner<Long> combiner, Updater<Long, Long> updater) {
+        Random rnd = new Random(12345);
+        int n = 300;
+        Long[] a = new Long[n];
+        for (int i = 0; i < n; i++) {
+            a[i] = (long) rnd.nextInt(100);
+        }
+        PersistentSegmentTree<Long, Long> st = new PersistentSegmentTree<>(a, combiner, updater);
+        List<Long[]> naive = new ArrayList<>();
+        naive.add(a.clone());
+        for (int i = 0; i < 5000; i++) {
+            int version = rnd.nextInt(naive.size());
+            int l = rnd.nextInt(n);
+            int r = rnd.nextInt(n - l) + l + 1;
+            if (rnd.nextBoolean()) {
+                long update = rnd.nextLong(100);
+                Long[] next = naive.get(version).clone();
+                for (int j = l; j < r; j++) {
+                    next[j] = updater.applyUpdate(next[j], update, 1);
+                }
+                assertEquals(naive.size(), st.update(version, l, r, update));
+                naive.add(next);
+            } else {
+                Long[] values = naive.get(version);
+                Long expected = values[l];
+                for (int j = l + 1; j < r; j++) {
+                    expected = combiner.combine(expected, values[j]);
+                }
+                assertEquals(expected, st.query(version, l, r));
+            }
+        }
+    }
+}
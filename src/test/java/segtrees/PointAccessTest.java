@@ -0,0 +1,241 @@
+package segtrees;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class PointAccessTest {
+
+    private static class SumCombiner implements Combiner<Long> {
+        @Override
+        public Long combine(Long left, Long right) {
+            return left + right;
+        }
+
+        @Override
+        public Long neutral() {
+            return 0L;
+        }
+    }
+
+    private static class CommutativeAddUpdater implements Updater<Long, Long> {
+        @Override
+        public Long applyUpdate(Long value, Long update, int rangeSize) {
+            return value + update * rangeSize;
+        }
+
+        @Override
+        public Long composeUpdates(Long current, Long next) {
+            return current + next;
+        }
+
+        @Override
+        public Long neutralUpdate() {
+            return 0L;
+        }
+
+        @Override
+        public boolean isCommutative() {
+            return true;
+        }
+    }
+
+    private static class MinCombiner implements Combiner<Long> {
+        @Override
+        public Long combine(Long left, Long right) {
+            return Math.min(left, right);
+        }
+
+        @Override
+        public Long neutral() {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static class FastAssignUpdater implements Updater<Long, Long> {
+        private static final Long NONE = Long.MAX_VALUE;
+
+        @Override
+        public Long applyUpdate(Long value, Long update, int rangeSize) {
+            return update == Long.MAX_VALUE ? value : update;
+        }
+
+        @Override
+        public Long composeUpdates(Long current, Long next) {
+            return next == Long.MAX_VALUE ? current : next;
+        }
+
+        @Override
+        public Long neutralUpdate() {
+            return NONE;
+        }
+
+        @Override
+        public boolean isAssignment() {
+            return true;
+        }
+
+        @Override
+        public boolean isNeutralByReference() {
+            return true;
+        }
+    }
+
+    private static class AddUpdater implements Updater<Long, Long> {
+        @Override
+        public Long applyUpdate(Long value, Long update, int rangeSize) {
+            return value + update * rangeSize;
+        }
+
+        @Override
+        public Long composeUpdates(Long current, Long next) {
+            return current + next;
+        }
+
+        @Override
+        public Long neutralUpdate() {
+            return 0L;
+        }
+    }
+
+    private static class AssignUpdater implements Updater<Long, Long> {
+        @Override
+        public Long applyUpdate(Long value, Long update, int rangeSize) {
+            return update == Long.MAX_VALUE ? value : update;
+        }
+
+        @Override
+        public Long composeUpdates(Long current, Long next) {
+            return next == Long.MAX_VALUE ? current : next;
+        }
+
+        @Override
+        public Long neutralUpdate() {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static class NaiveArray<T, U> {
+        private final T[] a;
+        private final Updater<T, U> updater;
+        private final Combiner<T> combiner;
+
+        NaiveArray(T[] arr, Combiner<T> combiner, Updater<T, U> updater) {
+            this.a = arr.clone();
+            this.updater = updater;
+            this.combiner = combiner;
+        }
+
+        void update(int l, int r, U update) {
+            for (int i = l; i < r; i++) {
+                a[i] = updater.applyUpdate(a[i], update, 1);
+            }
+        }
+
+        void set(int i, T value) {
+            a[i] = value;
+        }
+
+        T get(int i) {
+            return a[i];
+        }
+
+        T query(int l, int r) {
+            T result = a[l];
+            for (int i = l + 1; i < r; i++) {
+                result = combiner.combine(result, a[i]);
+            }
+            return result;
+        }
+    }
+
+    @Test
+    void smallFixedScenario() {
+        Long[] a = {1L, 2L, 3L, 4L, 5L};
+        SegmentTree<Long, Long> st = new SegmentTree<>(a, new SumCombiner(), new AddUpdater());
+        st.update(0, 5, 3L); // +3 to all, pending below the root
+        assertEquals(6, st.get(2)); // 3+3
+        st.set(2, 10L); // 4, 5, 10, 7, 8
+        assertEquals(10, st.get(2));
+        assertEquals(34, st.query(0, 5)); // 4+5+10+7+8
+        st.setAll(new int[]{0, 4, 0}, new Long[]{1L, 2L, 3L}); // 3, 5, 10, 7, 2; the last write to 0 wins
+        assertEquals(27, st.query(0, 5)); // 3+5+10+7+2
+        assertEquals(3, st.get(0));
+        st.update(0, 2, 1L); // +1 to indices 0 and 1
+        assertEquals(10, st.query(0, 2)); // 4+6
+    }
+
+    @Test
+    void rejectsOutOfBoundsPositions() {
+        SegmentTree<Long, Long> st = new SegmentTree<>(new Long[]{1L, 2L}, new SumCombiner(), new AddUpdater());
+        assertThrows(IndexOutOfBoundsException.class, () -> st.get(2));
+        assertThrows(IndexOutOfBoundsException.class, () -> st.set(-1, 0L));
+        assertThrows(IndexOutOfBoundsException.class, () -> st.setAll(new int[]{0, 2}, new Long[]{0L, 0L}));
+        assertThrows(IllegalArgumentException.class, () -> st.setAll(new int[]{0}, new Long[]{0L, 0L}));
+    }
+
+    private static void randomOperations(Combiner<Long> combiner, Updater<Long, Long> updater, long seed) {
+        Random rnd = new Random(seed);
+        int n = 200;
+        Long[] a = new Long[n];
+        for (int i = 0; i < n; i++) {
+            a[i] = (long) rnd.nextInt(1000);
+        }
+        SegmentTree<Long, Long> st = new SegmentTree<>(a, combiner, updater);
+        NaiveArray<Long, Long> naive = new NaiveArray<>(a, combiner, updater);
+        for (int step = 0; step < 5000; step++) {
+            int l = rnd.nextInt(n);
+            int r = l + 1 + rnd.nextInt(n - l);
+            switch (rnd.nextInt(5)) {
+                case 0:
+                    long update = rnd.nextInt(100);
+                    st.update(l, r, update);
+                    naive.update(l, r, update);
+                    break;
+                case 1:
+                    assertEquals(naive.query(l, r), st.query(l, r));
+                    break;
+                case 2:
+                    assertEquals(naive.get(l), st.get(l));
+                    break;
+                case 3:
+                    long value = rnd.nextInt(1000);
+                    st.set(l, value);
+                    naive.set(l, value);
+                    break;
+                default:
+                    int count = 1 + rnd.nextInt(rnd.nextBoolean() ? 20 : 200);
+                    boolean clustered = rnd.nextBoolean();
+                    int[] idx = new int[count];
+                    Long[] values = new Long[count];
+                    for (int k = 0; k < count; k++) {
+                        // Clustered batches repeat positions and send most writes down one side of the tree.
+                        idx[k] = clustered && rnd.nextInt(4) != 0 ? rnd.nextInt(4) : rnd.nextInt(n);
+                        values[k] = (long) rnd.nextInt(1000);
+                        naive.set(idx[k], values[k]);
+                    }
+                    st.setAll(idx, values);
+                    break;
+            }
+        }
+    }
+
+    @Test
+    void randomSumAdd() {
+        randomOperations(new SumCombiner(), new AddUpdater(), 20);
+    }
+
+    @Test
+    void randomCommutativeSumAdd() {
+        randomOperations(new SumCombiner(), new CommutativeAddUpdater(), 21);
+    }
+
+    @Test
+    void randomMinAssign() {
+        randomOperations(new MinCombiner(), new AssignUpdater(), 22);
+        randomOperations(new MinCombiner(), new FastAssignUpdater(), 23);
+    }
+}
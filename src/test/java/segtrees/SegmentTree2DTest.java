@@ -0,0 +1,154 @@
+package segtrees;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SegmentTree2DTest {
+
+    private static class SumCombiner implements Combiner<Long> {
+        @Override
+        public Long combine(Long left, Long right) {
+            return left + right;
+        }
+
+        @Override
+        public Long neutral() {
+            return 0L;
+        }
+    }
+
+    private static class AddUpdater implements Updater<Long, Long> {
+        @Override
+        public Long applyUpdate(Long value, Long update, int rangeSize) {
+            return value + update * rangeSize;
+        }
+
+        @Override
+        public Long composeUpdates(Long current, Long next) {
+            return current + next;
+        }
+
+        @Override
+        public Long neutralUpdate() {
+            return 0L;
+        }
+
+        @Override
+        public boolean isAdditive() {
+            return true;
+        }
+    }
+
+    private static class AssignUpdater implements Updater<Long, Long> {
+        @Override
+        public Long applyUpdate(Long value, Long update, int rangeSize) {
+            return update == Long.MIN_VALUE ? value : update;
+        }
+
+        @Override
+        public Long composeUpdates(Long current, Long next) {
+            return next == Long.MIN_VALUE ? current : next;
+        }
+
+        @Override
+        public Long neutralUpdate() {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    private static void randomOperations(SegmentTree2D<Long, Long> st, long[][] naive, Random rnd, int steps) {
+        int rows = naive.length;
+        int cols = naive[0].length;
+        for (int step = 0; step < steps; step++) {
+            int x1 = rnd.nextInt(rows);
+            int x2 = x1 + 1 + rnd.nextInt(rows - x1);
+            int y1 = rnd.nextInt(cols);
+            int y2 = y1 + 1 + rnd.nextInt(cols - y1);
+            if (rnd.nextBoolean()) {
+                long update = rnd.nextInt(200) - 100;
+                st.update(x1, x2, y1, y2, update);
+                for (int i = x1; i < x2; i++) {
+                    for (int j = y1; j < y2; j++) {
+                        naive[i][j] += update;
+                    }
+                }
+            } else {
+                long expected = 0;
+                for (int i = x1; i < x2; i++) {
+                    for (int j = y1; j < y2; j++) {
+                        expected += naive[i][j];
+                    }
+                }
+                assertEquals(expected, st.query(x1, x2, y1, y2));
+            }
+        }
+    }
+
+    @Test
+    void smallFixedScenario() {
+        Long[][] grid = {
+                {1L, 2L, 3L},
+                {4L, 5L, 6L},
+                {7L, 8L, 9L},
+        };
+        SegmentTree2D<Long, Long> st = new SegmentTree2D<>(grid, new SumCombiner(), new AddUpdater());
+        assertEquals(45, st.query(0, 3, 0, 3)); // everything
+        assertEquals(28, st.query(1, 3, 1, 3)); // 5+6+8+9
+        st.update(0, 2, 1, 3, 10L); // +10 to 2, 3, 5 and 6
+        assertEquals(85, st.query(0, 3, 0, 3)); // 45+40
+        assertEquals(48, st.query(1, 3, 1, 3)); // 15+16+8+9
+        assertEquals(12, st.query(0, 1, 1, 2)); // just 2+10
+        assertEquals(0, st.query(2, 2, 0, 3));
+    }
+
+    @Test
+    void randomDense() {
+        Random rnd = new Random(18);
+        int rows = 37;
+        int cols = 23;
+        Long[][] grid = new Long[rows][cols];
+        long[][] naive = new long[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                grid[i][j] = (long) rnd.nextInt(1000);
+                naive[i][j] = grid[i][j];
+            }
+        }
+        SegmentTree2D<Long, Long> st = new SegmentTree2D<>(grid, new SumCombiner(), new AddUpdater());
+        randomOperations(st, naive, rnd, 3000);
+    }
+
+    @Test
+    void randomSparse() {
+        Random rnd = new Random(19);
+        int rows = 20;
+        int cols = 50;
+        SegmentTree2D<Long, Long> st = new SegmentTree2D<>(rows, cols, SegmentTree2D.Mode.SPARSE,
+                new SumCombiner(), new AddUpdater());
+        randomOperations(st, new long[rows][cols], rnd, 3000);
+    }
+
+    @Test
+    void sparseModeAllocatesOnlyTouchedNodes() {
+        SegmentTree2D<Long, Long> st = new SegmentTree2D<>(1 << 10, 1 << 20, SegmentTree2D.Mode.SPARSE,
+                new SumCombiner(), new AddUpdater());
+        assertEquals(0, st.nodeCount());
+        assertEquals(0, st.query(0, 1 << 10, 0, 1 << 20));
+        st.update(5, 6, 1000, 1001, 7L); // a single cell
+        assertEquals(7, st.query(0, 1 << 10, 0, 1 << 20));
+        assertEquals(7, st.query(5, 6, 1000, 1001));
+        assertEquals(0, st.query(5, 6, 1001, 1 << 20));
+        assertTrue(st.nodeCount() <= 11 * 21); // one column path per row node on the path
+    }
+
+    @Test
+    void rejectsNonAdditiveUpdater() {
+        assertThrows(IllegalArgumentException.class, () -> new SegmentTree2D<>(2, 2, SegmentTree2D.Mode.DENSE,
+                new SumCombiner(), new AssignUpdater()));
+    }
+}
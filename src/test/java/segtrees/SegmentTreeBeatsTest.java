@@ -0,0 +1,199 @@
+package segtrees;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SegmentTreeBeatsTest {
+
+    @Test
+    void smallFixedScenario() {
+        SegmentTreeBeats st = new SegmentTreeBeats(new long[]{5, 1, 8, 3, 9});
+        assertEquals(26, st.querySum(0, 5)); // 5+1+8+3+9
+        st.chmin(0, 5, 4); // 4, 1, 4, 3, 4
+        assertEquals(16, st.querySum(0, 5));
+        assertEquals(4, st.queryMax(0, 5));
+        st.chmax(1, 4, 3); // 4, 3, 4, 3, 4
+        assertEquals(10, st.querySum(1, 4)); // 3+4+3
+        assertEquals(3, st.queryMin(0, 5));
+        st.add(2, 5, 10); // 4, 3, 14, 13, 14
+        assertEquals(48, st.querySum(0, 5));
+        st.chmin(0, 4, 13); // 4, 3, 13, 13, 14
+        assertEquals(47, st.querySum(0, 5));
+        assertEquals(14, st.queryMax(0, 5));
+        assertEquals(13, st.queryMax(0, 4));
+        assertEquals(3, st.queryMin(1, 4));
+    }
+
+    @Test
+    void emptyRanges() {
+        SegmentTreeBeats st = new SegmentTreeBeats(3);
+        st.chmin(1, 1, -5);
+        st.add(2, 2, 5);
+        assertEquals(0, st.querySum(0, 3));
+        assertEquals(0, st.querySum(2, 2));
+        assertThrows(IllegalArgumentException.class, () -> st.queryMin(2, 2));
+        assertThrows(IllegalArgumentException.class, () -> st.queryMax(2, 2));
+        assertEquals(0, new SegmentTreeBeats(0).querySum(0, 0));
+    }
+
+    @Test
+    void boundaryValues() {
+        long[] naive = {Long.MIN_VALUE, 0, Long.MAX_VALUE, 5, Long.MIN_VALUE + 1, Long.MAX_VALUE - 1, -7};
+        SegmentTreeBeats st = new SegmentTreeBeats(naive);
+        st.chmax(0, 7, Long.MAX_VALUE); // every value becomes MAX
+        assertEquals(Long.MAX_VALUE, st.queryMin(0, 7));
+        assertEquals(Long.MAX_VALUE * 7, st.querySum(0, 7)); // wraps like the naive sum
+        st.chmin(2, 5, Long.MIN_VALUE); // MAX, MAX, MIN, MIN, MIN, MAX, MAX
+        assertEquals(Long.MIN_VALUE, st.queryMin(0, 7));
+        assertEquals(Long.MIN_VALUE, st.queryMax(2, 5));
+        assertEquals(Long.MAX_VALUE, st.queryMax(0, 7));
+        st.chmin(0, 7, Long.MIN_VALUE); // all MIN
+        assertEquals(Long.MIN_VALUE, st.queryMax(0, 7));
+        assertEquals(Long.MIN_VALUE * 7, st.querySum(0, 7));
+        st.add(0, 3, 1); // MIN + 1, MIN + 1, MIN + 1, MIN, MIN, MIN, MIN
+        assertEquals(Long.MIN_VALUE + 1, st.queryMax(0, 7));
+        assertEquals(Long.MIN_VALUE, st.queryMin(0, 7));
+        st.chmax(0, 7, Long.MIN_VALUE + 1); // all MIN + 1
+        assertEquals(Long.MIN_VALUE + 1, st.queryMin(0, 7));
+        assertEquals((Long.MIN_VALUE + 1) * 7, st.querySum(0, 7));
+
+        SegmentTreeBeats single = new SegmentTreeBeats(new long[]{3});
+        single.chmin(0, 1, Long.MIN_VALUE);
+        assertEquals(Long.MIN_VALUE, single.querySum(0, 1));
+        single.chmax(0, 1, Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, single.querySum(0, 1));
+    }
+
+    @Test
+    void secondExtremaEqualToTheBounds() {
+        SegmentTreeBeats st = new SegmentTreeBeats(new long[]{Long.MIN_VALUE, 0});
+        st.add(0, 2, 5); // MIN + 5, 5
+        st.chmin(0, 2, Long.MIN_VALUE + 2); // MIN + 2, MIN + 2
+        assertEquals((Long.MIN_VALUE + 2) * 2, st.querySum(0, 2));
+        assertEquals(Long.MIN_VALUE + 2, st.queryMax(0, 2));
+        assertEquals(Long.MIN_VALUE + 2, st.queryMin(0, 2));
+
+        st = new SegmentTreeBeats(new long[]{3, 7});
+        st.chmin(0, 1, Long.MIN_VALUE); // MIN, 7
+        st.add(0, 2, 5); // MIN + 5, 12
+        st.chmin(0, 2, Long.MIN_VALUE + 2); // MIN + 2, MIN + 2
+        assertEquals(Long.MIN_VALUE + 2, st.querySum(0, 1));
+        assertEquals(Long.MIN_VALUE + 2, st.queryMax(0, 2));
+
+        st = new SegmentTreeBeats(new long[]{Long.MAX_VALUE, 0});
+        st.add(0, 2, -5); // MAX - 5, -5
+        st.chmax(0, 2, Long.MAX_VALUE - 2); // MAX - 2, MAX - 2
+        assertEquals(Long.MAX_VALUE - 2, st.queryMin(0, 2));
+        assertEquals(Long.MAX_VALUE - 2, st.queryMax(1, 2));
+    }
+
+    @Test
+    void randomOperationsWithExtremeBounds() {
+        Random rnd = new Random(456);
+        long[] extremes = {Long.MIN_VALUE, Long.MIN_VALUE + 1, Long.MAX_VALUE - 1, Long.MAX_VALUE};
+        int n = 50;
+        long[] naive = new long[n];
+        for (int i = 0; i < n; i++) {
+            naive[i] = rnd.nextBoolean() ? extremes[rnd.nextInt(4)] : rnd.nextInt(21) - 10;
+        }
+        SegmentTreeBeats st = new SegmentTreeBeats(naive);
+        for (int step = 0; step < 3000; step++) {
+            int l = rnd.nextInt(n);
+            int r = l + 1 + rnd.nextInt(n - l);
+            long x = rnd.nextBoolean() ? extremes[rnd.nextInt(4)] : rnd.nextInt(21) - 10;
+            switch (rnd.nextInt(4)) {
+                case 0:
+                    st.chmin(l, r, x);
+                    for (int i = l; i < r; i++) {
+                        naive[i] = Math.min(naive[i], x);
+                    }
+                    break;
+                case 1:
+                    st.chmax(l, r, x);
+                    for (int i = l; i < r; i++) {
+                        naive[i] = Math.max(naive[i], x);
+                    }
+                    break;
+                case 2:
+                    // Small adds next to the bounds, skipped where a value would overflow.
+                    long delta = rnd.nextInt(11) - 5;
+                    boolean fits = true;
+                    for (int i = l; i < r; i++) {
+                        fits &= delta >= 0 ? naive[i] <= Long.MAX_VALUE - delta : naive[i] >= Long.MIN_VALUE - delta;
+                    }
+                    if (fits) {
+                        st.add(l, r, delta);
+                        for (int i = l; i < r; i++) {
+                            naive[i] += delta;
+                        }
+                    }
+                    break;
+                default:
+                    long sum = 0;
+                    long min = Long.MAX_VALUE;
+                    long max = Long.MIN_VALUE;
+                    for (int i = l; i < r; i++) {
+                        sum += naive[i];
+                        min = Math.min(min, naive[i]);
+                        max = Math.max(max, naive[i]);
+                    }
+                    assertEquals(sum, st.querySum(l, r));
+                    assertEquals(min, st.queryMin(l, r));
+                    assertEquals(max, st.queryMax(l, r));
+            }
+        }
+    }
+
+    @Test
+    void randomOperations() {
+        Random rnd = new Random(123);
+        for (int n : new int[]{1, 2, 7, 64, 300}) {
+            long[] naive = new long[n];
+            for (int i = 0; i < n; i++) {
+                naive[i] = rnd.nextInt(2001) - 1000;
+            }
+            SegmentTreeBeats st = new SegmentTreeBeats(naive);
+            for (int step = 0; step < 5000; step++) {
+                int l = rnd.nextInt(n);
+                int r = l + 1 + rnd.nextInt(n - l);
+                long x = rnd.nextInt(2001) - 1000;
+                switch (rnd.nextInt(6)) {
+                    case 0:
+                        st.chmin(l, r, x);
+                        for (int i = l; i < r; i++) {
+                            naive[i] = Math.min(naive[i], x);
+                        }
+                        break;
+                    case 1:
+                        st.chmax(l, r, x);
+                        for (int i = l; i < r; i++) {
+                            naive[i] = Math.max(naive[i], x);
+                        }
+                        break;
+                    case 2:
+                        st.add(l, r, x / 10);
+                        for (int i = l; i < r; i++) {
+                            naive[i] += x / 10;
+                        }
+                        break;
+                    default:
+                        long sum = 0;
+                        long min = Long.MAX_VALUE;
+                        long max = Long.MIN_VALUE;
+                        for (int i = l; i < r; i++) {
+                            sum += naive[i];
+                            min = Math.min(min, naive[i]);
+                            max = Math.max(max, naive[i]);
+                        }
+                        assertEquals(sum, st.querySum(l, r));
+                        assertEquals(min, st.queryMin(l, r));
+                        assertEquals(max, st.queryMax(l, r));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package segtrees;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SegmentTreeMetricsTest {
+
+    private static class SumCombiner implements Combiner<Long> {
+        @Override
+        public Long combine(Long left, Long right) {
+            return left + right;
+        }
+
+        @Override
+        public Long neutral() {
+            return 0L;
+        }
+    }
+
+    private static class AddUpdater implements Updater<Long, Long> {
+        @Override
+        public Long applyUpdate(Long value, Long update, int rangeSize) {
+            return value + update * rangeSize;
+        }
+
+        @Override
+        public Long composeUpdates(Long current, Long next) {
+            return current + next;
+        }
+
+        @Override
+        public Long neutralUpdate() {
+            return 0L;
+        }
+    }
+
+    @Test
+    void listenerReceivesOperationCounters() {
+        Long[] a = {1L, 2L, 3L, 4L, 5L};
+        SegmentTree<Long, Long> st = new SegmentTree<>(a, new SumCombiner(), new AddUpdater());
+        List<long[]> calls = new ArrayList<>();
+        List<SegmentTreeListener.Operation> operations = new ArrayList<>();
+        st.setListener((operation, l, r, nanos, nodesVisited, pushDowns, composeCalls, combineCalls) -> {
+            operations.add(operation);
+            calls.add(new long[]{l, r, nodesVisited, pushDowns, composeCalls, combineCalls});
+        });
+        st.update(0, 5, 1L); // +1 to all, pending in the children of the root
+        st.update(0, 5, 2L); // +2 to all, composed with the pending +1
+        assertEquals(26, st.query(1, 5)); // 5+6+7+8
+        assertEquals(List.of(SegmentTreeListener.Operation.UPDATE, SegmentTreeListener.Operation.UPDATE,
+                SegmentTreeListener.Operation.QUERY), operations);
+        long[] first = calls.get(0);
+        assertEquals(1, first[2]); // only the root is visited
+        assertEquals(1, first[3]); // the update is pushed down at the root
+        assertEquals(0, first[4]); // the children had no pending update to compose with
+        long[] second = calls.get(1);
+        assertEquals(1, second[2]);
+        assertEquals(1, second[3]);
+        assertEquals(2, second[4]); // composed into both children
+        long[] query = calls.get(2);
+        assertEquals(1, query[0]);
+        assertEquals(5, query[1]);
+        assertTrue(query[2] > 1);
+        assertTrue(query[3] > 0);
+        assertTrue(query[5] > 0);
+    }
+
+    @Test
+    void detachedListenerIsNotCalled() {
+        Long[] a = {1L, 2L, 3L};
+        SegmentTree<Long, Long> st = new SegmentTree<>(a, new SumCombiner(), new AddUpdater());
+        SegmentTreeMetrics metrics = new SegmentTreeMetrics();
+        st.setListener(metrics);
+        st.query(0, 3);
+        st.setListener(null);
+        st.query(0, 3);
+        st.update(0, 3, 1L);
+        assertEquals(1, metrics.getQueryCount());
+        assertEquals(0, metrics.getUpdateCount());
+        assertEquals(9, st.query(0, 3));
+    }
+
+    @Test
+    void metricsAreExposedThroughJmx() throws JMException {
+        Long[] a = {1L, 2L, 3L, 4L, 5L};
+        SegmentTree<Long, Long> st = new SegmentTree<>(a, new SumCombiner(), new AddUpdater());
+        SegmentTreeMetrics metrics = new SegmentTreeMetrics();
+        st.setListener(metrics);
+        for (int i = 0; i < 10; i++) {
+            st.update(i % 5, 5, 1L);
+            st.query(0, i % 5 + 1);
+        }
+        ObjectName name = metrics.register("metricsAreExposedThroughJmx");
+        try {
+            assertEquals(10L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "QueryCount"));
+            assertEquals(10L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "UpdateCount"));
+            assertEquals(20, Arrays.stream(metrics.getLatencyHistogram()).sum());
+            assertEquals(20, Arrays.stream(metrics.getNodesVisitedHistogram()).sum());
+            assertTrue(metrics.getCombineCalls() > 0);
+            metrics.reset();
+            assertEquals(0L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "QueryCount"));
+        } finally {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        }
+    }
+}
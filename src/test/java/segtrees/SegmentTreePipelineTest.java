@@ -0,0 +1,366 @@
+package segtrees;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SegmentTreePipelineTest {
+
+    private static class SumCombiner implements Combiner<Long> {
+        @Override
+        public Long combine(Long left, Long right) {
+            return left + right;
+        }
+
+        @Override
+        public Long neutral() {
+            return 0L;
+        }
+    }
+
+    private static class AddUpdater implements Updater<Long, Long> {
+        @Override
+        public Long applyUpdate(Long value, Long update, int rangeSize) {
+            return value + update * rangeSize;
+        }
+
+        @Override
+        public Long composeUpdates(Long current, Long next) {
+            return current + next;
+        }
+
+        @Override
+        public Long neutralUpdate() {
+            return 0L;
+        }
+    }
+
+    private static class CommutativeAddUpdater extends AddUpdater {
+        @Override
+        public boolean isCommutative() {
+            return true;
+        }
+    }
+
+    private static class MinCombiner implements Combiner<Long> {
+        @Override
+        public Long combine(Long left, Long right) {
+            return Math.min(left, right);
+        }
+
+        @Override
+        public Long neutral() {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static class AssignUpdater implements Updater<Long, Long> {
+        @Override
+        public Long applyUpdate(Long value, Long update, int rangeSize) {
+            return update == Long.MIN_VALUE ? value : update;
+        }
+
+        @Override
+        public Long composeUpdates(Long current, Long next) {
+            return next == Long.MIN_VALUE ? current : next;
+        }
+
+        @Override
+        public Long neutralUpdate() {
+            return Long.MIN_VALUE;
+        }
+
+        @Override
+        public boolean isAssignment() {
+            return true;
+        }
+    }
+
+    private static class FailingUpdater extends AddUpdater {
+        @Override
+        public Long applyUpdate(Long value, Long update, int rangeSize) {
+            if (update < 0) {
+                throw new IllegalArgumentException("Negative update: " + update);
+            }
+            return super.applyUpdate(value, update, rangeSize);
+        }
+    }
+
+    @Test
+    void smallFixedScenario() throws InterruptedException {
+        Long[] a = {1L, 2L, 3L, 4L, 5L};
+        try (SegmentTreePipeline<Long, Long> p = new SegmentTreePipeline<>(a, 16, new SumCombiner(), new AddUpdater())) {
+            assertEquals(0, p.epoch());
+            assertEquals(9, p.query(1, 4)); // 2+3+4
+            PersistentSegmentTree.Snapshot<Long, Long> before = p.snapshot();
+            p.submit(0, 5, 3L); // +3 to all
+            p.submit(2, 4, 2L); // +2 to indices 2 and 3
+            long epoch = p.flush();
+            assertTrue(epoch >= 1);
+            assertEquals(30, p.query(1, 5)); // 5+8+9+8
+            assertEquals(9, before.query(1, 4)); // the old view is unchanged
+            assertArrayEquals(new Long[]{4L, 5L, 8L, 9L, 8L}, p.snapshot().toArray());
+        }
+    }
+
+    @Test
+    void coalescesIdenticalRanges() throws InterruptedException {
+        Long[] a = new Long[8];
+        Arrays.fill(a, 0L);
+        try (SegmentTreePipeline<Long, Long> p = new SegmentTreePipeline<>(a, 16, new SumCombiner(), new CommutativeAddUpdater())) {
+            // Whether or not these land in one batch, the result is the same; only the coalesced count varies.
+            for (int i = 0; i < 5; i++) {
+                p.submit(0, 4, 1L);
+                p.submit(4, 8, 2L);
+            }
+            p.flush();
+            assertEquals(4 * 5 + 4 * 10, p.query(0, 8)); // 4 positions +5 and 4 positions +10
+            SegmentTreePipeline.Stats stats = p.stats();
+            assertEquals(10, stats.getSubmitted());
+            assertEquals(10, stats.getApplied());
+            assertTrue(stats.getCoalesced() <= 8);
+            assertTrue(stats.getMaxLatencyNanos() >= 0);
+        }
+    }
+
+    @Test
+    void dropsOverwrittenAssignments() throws InterruptedException {
+        Long[] a = {5L, 6L, 7L, 8L};
+        try (SegmentTreePipeline<Long, Long> p = new SegmentTreePipeline<>(a, 16, new MinCombiner(), new AssignUpdater())) {
+            p.submit(1, 2, 1L); // hidden by the next assignment if drained together
+            p.submit(0, 3, 4L);
+            p.submit(2, 4, 3L);
+            p.flush();
+            assertArrayEquals(new Long[]{4L, 4L, 3L, 3L}, p.snapshot().toArray());
+            assertEquals(3, p.query(0, 4));
+        }
+    }
+
+    @Test
+    void neutralAssignmentKeepsEarlierOnes() throws InterruptedException {
+        Long[] a = {5L, 6L, 7L, 8L};
+        CountDownLatch release = new CountDownLatch(1);
+        SegmentTreePipeline<Long, Long> p = new SegmentTreePipeline<>(a, 16, task -> new Thread(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                return;
+            }
+            task.run();
+        }), new MinCombiner(), new AssignUpdater());
+        p.submit(1, 3, 1L);
+        p.submit(2, 3, 2L);
+        p.submit(0, 4, Long.MIN_VALUE); // neutral: encloses both, but must not hide them
+        p.submit(3, 4, 0L);
+        release.countDown(); // the writer drains all four in one batch
+        p.flush();
+        assertArrayEquals(new Long[]{5L, 1L, 2L, 0L}, p.snapshot().toArray());
+        assertEquals(1, p.stats().getCoalesced());
+        p.close();
+    }
+
+    @Test
+    void closeWhenInterrupted() throws InterruptedException {
+        Long[] a = {0L, 0L};
+        SegmentTreePipeline<Long, Long> p = new SegmentTreePipeline<>(a, 4, new SumCombiner(), new AddUpdater());
+        p.submit(0, 2, 1L);
+        Thread.currentThread().interrupt();
+        p.close();
+        assertTrue(Thread.interrupted()); // the interrupt status is restored
+        assertThrows(IllegalStateException.class, () -> p.submit(0, 1, 1L));
+        assertThrows(IllegalStateException.class, () -> p.awaitEpoch(Long.MAX_VALUE));
+        assertEquals(2, p.query(0, 2)); // the writer still published the queued update
+    }
+
+    private static void randomOperations(Combiner<Long> combiner, Updater<Long, Long> updater, int capacity, long seed)
+            throws InterruptedException {
+        Random rnd = new Random(seed);
+        int n = 200;
+        Long[] a = new Long[n];
+        for (int i = 0; i < n; i++) {
+            a[i] = (long) rnd.nextInt(1000);
+        }
+        Long[] naive = a.clone();
+        try (SegmentTreePipeline<Long, Long> p = new SegmentTreePipeline<>(a, capacity, combiner, updater)) {
+            for (int step = 0; step < 3000; step++) {
+                int l = rnd.nextInt(n);
+                int r = l + 1 + rnd.nextInt(n - l);
+                if (rnd.nextInt(4) != 0) {
+                    // Repeat a few ranges so that batches contain identical and nested ranges.
+                    if (rnd.nextInt(3) == 0) {
+                        l = 10;
+                        r = 50;
+                    }
+                    long update = rnd.nextInt(10) == 0 ? updater.neutralUpdate() : rnd.nextInt(100);
+                    p.submit(l, r, update);
+                    for (int i = l; i < r; i++) {
+                        naive[i] = updater.applyUpdate(naive[i], update, 1);
+                    }
+                } else {
+                    p.flush();
+                    Long expected = combiner.neutral();
+                    for (int i = l; i < r; i++) {
+                        expected = combiner.combine(expected, naive[i]);
+                    }
+                    assertEquals(expected, p.query(l, r));
+                }
+            }
+            p.flush();
+            assertArrayEquals(naive, p.snapshot().toArray());
+        }
+    }
+
+    @Test
+    void randomOperations() throws InterruptedException {
+        for (int capacity : new int[]{1, 7, 64}) {
+            randomOperations(new SumCombiner(), new AddUpdater(), capacity, capacity);
+            randomOperations(new SumCombiner(), new CommutativeAddUpdater(), capacity, capacity + 100);
+            randomOperations(new MinCombiner(), new AssignUpdater(), capacity, capacity + 200);
+        }
+    }
+
+    @Test
+    void compactsWithoutChangingValues() throws InterruptedException {
+        Long[] a = new Long[16];
+        Arrays.fill(a, 0L);
+        try (SegmentTreePipeline<Long, Long> p = new SegmentTreePipeline<>(a, 4, new SumCombiner(), new AddUpdater())) {
+            PersistentSegmentTree.Snapshot<Long, Long> first = p.snapshot();
+            // Enough single-update batches to exceed the node threshold several times.
+            for (int step = 0; step < 20000; step++) {
+                p.submit(step % 16, 16, 1L);
+            }
+            p.flush();
+            long expected = 0;
+            for (int i = 0; i < 16; i++) {
+                expected += (long) 1250 * (i + 1); // position i receives the updates starting at 0 to i
+            }
+            assertEquals(expected, p.query(0, 16));
+            assertEquals(0, first.query(0, 16));
+        }
+    }
+
+    @Test
+    void concurrentProducersAndReaders() throws InterruptedException {
+        int n = 1000;
+        Long[] a = new Long[n];
+        Arrays.fill(a, 0L);
+        try (SegmentTreePipeline<Long, Long> p = new SegmentTreePipeline<>(a, 32, new SumCombiner(), new CommutativeAddUpdater())) {
+            Thread[] producers = new Thread[4];
+            long[] totals = new long[producers.length];
+            for (int t = 0; t < producers.length; t++) {
+                int id = t;
+                producers[t] = new Thread(() -> {
+                    Random rnd = new Random(id);
+                    try {
+                        for (int step = 0; step < 2000; step++) {
+                            int l = rnd.nextInt(n);
+                            int r = l + 1 + rnd.nextInt(n - l);
+                            p.submit(l, r, 1L);
+                            totals[id] += r - l;
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+                producers[t].start();
+            }
+            AtomicBoolean monotonic = new AtomicBoolean(true);
+            Thread reader = new Thread(() -> {
+                long last = 0;
+                for (int step = 0; step < 10000; step++) {
+                    long total = p.query(0, n);
+                    if (total < last) {
+                        monotonic.set(false); // published epochs only ever add
+                    }
+                    last = total;
+                }
+            });
+            reader.start();
+            for (Thread producer : producers) {
+                producer.join();
+            }
+            long epoch = p.flush();
+            p.awaitEpoch(epoch);
+            reader.join();
+            assertTrue(monotonic.get());
+            assertEquals(Arrays.stream(totals).sum(), p.query(0, n));
+            assertEquals(8000, p.stats().getApplied());
+        }
+    }
+
+    @Test
+    void offerRejectsWhenFull() throws InterruptedException {
+        Long[] a = {0L, 0L};
+        CountDownLatch release = new CountDownLatch(1);
+        SegmentTreePipeline<Long, Long> p = new SegmentTreePipeline<>(a, 1, task -> new Thread(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                return;
+            }
+            task.run();
+        }), new SumCombiner(), new AddUpdater());
+        assertTrue(p.offer(0, 2, 1L));
+        assertFalse(p.offer(0, 2, 1L)); // the writer has not started draining yet
+        release.countDown();
+        p.flush();
+        assertEquals(2, p.query(0, 2));
+        p.close();
+        assertThrows(IllegalStateException.class, () -> p.submit(0, 1, 1L));
+    }
+
+    @Test
+    void writerFailureFailsFlushInsteadOfHanging() throws InterruptedException {
+        Long[] a = {0L, 0L, 0L};
+        SegmentTreePipeline<Long, Long> p = new SegmentTreePipeline<>(a, 2, new SumCombiner(), new FailingUpdater());
+        p.submit(0, 3, 1L);
+        assertTrue(p.flush() >= 1);
+        assertEquals(3, p.query(0, 3)); // 1+1+1
+        p.submit(0, 2, -1L); // the writer fails on this update
+        IllegalStateException failed = assertThrows(IllegalStateException.class, p::flush);
+        assertTrue(failed.getCause() instanceof IllegalArgumentException);
+        assertThrows(IllegalStateException.class, () -> p.submit(0, 1, 1L));
+        assertThrows(IllegalStateException.class, () -> p.offer(0, 1, 1L));
+        assertThrows(IllegalStateException.class, () -> p.awaitEpoch(Long.MAX_VALUE));
+        assertEquals(3, p.query(0, 3)); // the last published epoch stays readable
+        p.close();
+    }
+
+    @Test
+    void closeRacingWithProducers() throws InterruptedException {
+        Long[] a = new Long[16];
+        Arrays.fill(a, 0L);
+        for (int round = 0; round < 20; round++) {
+            SegmentTreePipeline<Long, Long> p = new SegmentTreePipeline<>(a, 4, new SumCombiner(), new AddUpdater());
+            Thread[] producers = new Thread[3];
+            for (int t = 0; t < producers.length; t++) {
+                producers[t] = new Thread(() -> {
+                    try {
+                        while (true) {
+                            p.submit(0, 16, 1L);
+                            p.flush();
+                        }
+                    } catch (IllegalStateException | InterruptedException e) {
+                        // closed: every producer must get here instead of hanging
+                    }
+                });
+                producers[t].start();
+            }
+            p.close();
+            for (Thread producer : producers) {
+                producer.join(10_000);
+                assertFalse(producer.isAlive());
+            }
+            assertEquals(16 * p.stats().getSubmitted(), p.query(0, 16));
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package segtrees;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ShardedSegmentTreeTest {
+
+    private static class SumCombiner implements Combiner<Long> {
+        @Override
+        public Long combine(Long left, Long right) {
+            return left + right;
+        }
+
+        @Override
+        public Long neutral() {
+            return 0L;
+        }
+    }
+
+    private static class AddUpdater implements Updater<Long, Long> {
+        @Override
+        public Long applyUpdate(Long value, Long update, int rangeSize) {
+            return value + update * rangeSize;
+        }
+
+        @Override
+        public Long composeUpdates(Long current, Long next) {
+            return current + next;
+        }
+
+        @Override
+        public Long neutralUpdate() {
+            return 0L;
+        }
+    }
+
+    private static class MinCombiner implements Combiner<Long> {
+        @Override
+        public Long combine(Long left, Long right) {
+            return Math.min(left, right);
+        }
+
+        @Override
+        public Long neutral() {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static class AssignUpdater implements Updater<Long, Long> {
+        @Override
+        public Long applyUpdate(Long value, Long update, int rangeSize) {
+            return update == Long.MIN_VALUE ? value : update;
+        }
+
+        @Override
+        public Long composeUpdates(Long current, Long next) {
+            return next == Long.MIN_VALUE ? current : next;
+        }
+
+        @Override
+        public Long neutralUpdate() {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    @Test
+    void smallFixedScenario() {
+        Long[] a = {1L, 2L, 3L, 4L, 5L};
+        try (ShardedSegmentTree<Long, Long> st = new ShardedSegmentTree<>(a, 2, new SumCombiner(), new AddUpdater())) {
+            assertEquals(2, st.shardCount());
+            assertEquals(9, st.query(1, 4)); // 2+3+4
+            st.update(0, 5, 3L); // +3 to all
+            assertEquals(26, st.query(1, 5)); // 5+6+7+8
+            st.update(2, 4, 2L); // +2 to indices 2 and 3
+            assertEquals(30, st.query(1, 5)); // 5+8+9+8
+            assertEquals(9, st.query(0, 2)); // 4+5
+        }
+    }
+
+    @Test
+    void moreShardsThanValues() {
+        Long[] a = {1L, 2L, 3L};
+        try (ShardedSegmentTree<Long, Long> st = new ShardedSegmentTree<>(a, 8, new SumCombiner(), new AddUpdater())) {
+            assertEquals(3, st.shardCount());
+            st.update(0, 3, 1L); // +1 to all
+            assertEquals(9, st.query(0, 3)); // 2+3+4
+        }
+    }
+
+    @Test
+    void emptyInput() {
+        try (ShardedSegmentTree<Long, Long> st =
+                     new ShardedSegmentTree<>(new Long[0], 4, new SumCombiner(), new AddUpdater())) {
+            assertEquals(0, st.shardCount());
+            st.update(0, 0, 1L);
+            assertEquals(0, st.query(0, 0));
+        }
+    }
+
+    private static void randomOperations(Combiner<Long> combiner, Updater<Long, Long> updater, int shards, long seed) {
+        Random rnd = new Random(seed);
+        int n = 500;
+        Long[] a = new Long[n];
+        for (int i = 0; i < n; i++) {
+            a[i] = (long) rnd.nextInt(1000);
+        }
+        Long[] naive = a.clone();
+        try (ShardedSegmentTree<Long, Long> st = new ShardedSegmentTree<>(a, shards, combiner, updater)) {
+            for (int step = 0; step < 2000; step++) {
+                int l = rnd.nextInt(n);
+                int r = l + 1 + rnd.nextInt(n - l);
+                if (rnd.nextBoolean()) {
+                    long update = rnd.nextInt(100);
+                    st.update(l, r, update);
+                    for (int i = l; i < r; i++) {
+                        naive[i] = updater.applyUpdate(naive[i], update, 1);
+                    }
+                } else {
+                    Long expected = combiner.neutral();
+                    for (int i = l; i < r; i++) {
+                        expected = combiner.combine(expected, naive[i]);
+                    }
+                    assertEquals(expected, st.query(l, r));
+                }
+            }
+        }
+    }
+
+    @Test
+    void randomOperations() {
+        for (int shards : new int[]{1, 3, 7, 16}) {
+            randomOperations(new SumCombiner(), new AddUpdater(), shards, shards);
+            randomOperations(new MinCombiner(), new AssignUpdater(), shards, shards + 100);
+        }
+    }
+
+    @Test
+    void concurrentClients() throws InterruptedException {
+        int n = 1000;
+        Long[] a = new Long[n];
+        Arrays.fill(a, 0L);
+        AtomicLongArray expected = new AtomicLongArray(n);
+        try (ShardedSegmentTree<Long, Long> st = new ShardedSegmentTree<>(a, 16, new SumCombiner(), new AddUpdater())) {
+            Thread[] clients = new Thread[4];
+            for (int t = 0; t < clients.length; t++) {
+                long seed = t;
+                clients[t] = new Thread(() -> {
+                    Random rnd = new Random(seed);
+                    for (int step = 0; step < 500; step++) {
+                        int l = rnd.nextInt(n);
+                        int r = l + 1 + rnd.nextInt(n - l);
+                        st.update(l, r, 1L);
+                        for (int i = l; i < r; i++) {
+                            expected.incrementAndGet(i);
+                        }
+                        st.query(l, r);
+                    }
+                });
+                clients[t].start();
+            }
+            for (Thread client : clients) {
+                client.join();
+            }
+            long total = 0;
+            for (int i = 0; i < n; i++) {
+                total += expected.get(i);
+                assertEquals(expected.get(i), st.query(i, i + 1));
+            }
+            assertEquals(total, st.query(0, n));
+        }
+    }
+
+    @Test
+    void rejectsNonPositiveShardCount() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new ShardedSegmentTree<>(new Long[]{1L}, 0, new SumCombiner(), new AddUpdater()));
+    }
+}
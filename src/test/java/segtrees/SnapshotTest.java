@@ -0,0 +1,325 @@
+package segtrees;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SnapshotTest {
+
+    private static class SumCombiner implements Combiner<Long> {
+        @Override
+        public Long combine(Long left, Long right) {
+            return left + right;
+        }
+
+        @Override
+        public Long neutral() {
+            return 0L;
+        }
+    }
+
+    private static class AddUpdater implements Updater<Long, Long> {
+        @Override
+        public Long applyUpdate(Long value, Long update, int rangeSize) {
+            return value + update * rangeSize;
+        }
+
+        @Override
+        public Long composeUpdates(Long current, Long next) {
+            return current + next;
+        }
+
+        @Override
+        public Long neutralUpdate() {
+            return 0L;
+        }
+    }
+
+    private static class LongCodec implements Codec<Long> {
+        @Override
+        public void write(DataOutput out, Long value) throws IOException {
+            out.writeLong(value);
+        }
+
+        @Override
+        public Long read(DataInput in) throws IOException {
+            return in.readLong();
+        }
+    }
+
+    private static class LongSumCombiner implements LongCombiner {
+        @Override
+        public long combine(long left, long right) {
+            return left + right;
+        }
+
+        @Override
+        public long neutral() {
+            return 0L;
+        }
+    }
+
+    private static class LongAddUpdater implements LongUpdater {
+        @Override
+        public long applyUpdate(long value, long update, int rangeSize) {
+            return value + update * rangeSize;
+        }
+
+        @Override
+        public long composeUpdates(long current, long next) {
+            return current + next;
+        }
+
+        @Override
+        public long neutralUpdate() {
+            return 0L;
+        }
+    }
+
+    private static class LongMinCombiner implements LongCombiner {
+        @Override
+        public long combine(long left, long right) {
+            return Math.min(left, right);
+        }
+
+        @Override
+        public long neutral() {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static class IntSumCombiner implements IntCombiner {
+        @Override
+        public int combine(int left, int right) {
+            return left + right;
+        }
+
+        @Override
+        public int neutral() {
+            return 0;
+        }
+    }
+
+    private static class IntAddUpdater implements IntUpdater {
+        @Override
+        public int applyUpdate(int value, int update, int rangeSize) {
+            return value + update * rangeSize;
+        }
+
+        @Override
+        public int composeUpdates(int current, int next) {
+            return current + next;
+        }
+
+        @Override
+        public int neutralUpdate() {
+            return 0;
+        }
+    }
+
+    private static class DoubleSumCombiner implements DoubleCombiner {
+        @Override
+        public double combine(double left, double right) {
+            return left + right;
+        }
+
+        @Override
+        public double neutral() {
+            return 0.0;
+        }
+    }
+
+    private static class DoubleAddUpdater implements DoubleUpdater {
+        @Override
+        public double applyUpdate(double value, double update, int rangeSize) {
+            return value + update * rangeSize;
+        }
+
+        @Override
+        public double composeUpdates(double current, double next) {
+            return current + next;
+        }
+
+        @Override
+        public double neutralUpdate() {
+            return 0.0;
+        }
+    }
+
+    @Test
+    void genericTreeKeepsPendingUpdates(@TempDir Path dir) throws IOException {
+        Long[] a = {1L, 2L, 3L, 4L, 5L};
+        SegmentTree<Long, Long> st = new SegmentTree<>(a, new SumCombiner(), new AddUpdater());
+        st.update(0, 5, 3L); // +3 to all, pending below the root
+        st.update(2, 4, 2L); // +2 to indices 2 and 3
+        Path file = dir.resolve("tree.bin");
+        st.save(file, new LongCodec(), new LongCodec());
+        SegmentTree<Long, Long> loaded = SegmentTree.load(file, new SumCombiner(), new AddUpdater(),
+                new LongCodec(), new LongCodec());
+        assertEquals(30, loaded.query(1, 5)); // 5+8+9+8
+        assertEquals(4, loaded.query(0, 1)); // 1+3
+        loaded.update(0, 1, 1L); // +1 to index 0
+        assertEquals(10, loaded.query(0, 2)); // 5+5
+    }
+
+    @Test
+    void genericTreeMatchesOriginalAfterRandomOperations(@TempDir Path dir) throws IOException {
+        Random rnd = new Random(15);
+        int n = 1000;
+        Long[] a = new Long[n];
+        for (int i = 0; i < n; i++) {
+            a[i] = (long) rnd.nextInt(1000);
+        }
+        SegmentTree<Long, Long> st = new SegmentTree<>(a, new SumCombiner(), new AddUpdater());
+        for (int i = 0; i < 500; i++) {
+            int l = rnd.nextInt(n);
+            int r = l + 1 + rnd.nextInt(n - l);
+            st.update(l, r, (long) rnd.nextInt(100));
+        }
+        Path file = dir.resolve("tree.bin");
+        st.save(file, new LongCodec(), new LongCodec());
+        SegmentTree<Long, Long> loaded = SegmentTree.load(file, new SumCombiner(), new AddUpdater(),
+                new LongCodec(), new LongCodec());
+        for (int i = 0; i < 1000; i++) {
+            int l = rnd.nextInt(n);
+            int r = l + 1 + rnd.nextInt(n - l);
+            if (rnd.nextBoolean()) {
+                long update = rnd.nextInt(100);
+                st.update(l, r, update);
+                loaded.update(l, r, update);
+            } else {
+                assertEquals(st.query(l, r), loaded.query(l, r));
+            }
+        }
+    }
+
+    @Test
+    void longTreeLargerThanBuffer(@TempDir Path dir) throws IOException {
+        Random rnd = new Random(16);
+        int n = 50_000;
+        long[] a = new long[n];
+        for (int i = 0; i < n; i++) {
+            a[i] = rnd.nextInt(1000);
+        }
+        LongSegmentTree st = new LongSegmentTree(a, new LongSumCombiner(), new LongAddUpdater());
+        for (int i = 0; i < 200; i++) {
+            int l = rnd.nextInt(n);
+            int r = l + 1 + rnd.nextInt(n - l);
+            st.update(l, r, rnd.nextInt(100));
+        }
+        Path file = dir.resolve("tree.bin");
+        st.save(file);
+        // Header, neutral elements, a value and an update for each of the 2n - 1 nodes in use, and the checksum.
+        assertEquals(13 + 2 * 8 + (2L * n - 1) * 2 * 8 + 4, Files.size(file));
+        LongSegmentTree loaded = LongSegmentTree.load(file, new LongSumCombiner(), new LongAddUpdater());
+        for (int i = 0; i < 1000; i++) {
+            int l = rnd.nextInt(n);
+            int r = l + 1 + rnd.nextInt(n - l);
+            if (rnd.nextBoolean()) {
+                long update = rnd.nextInt(100);
+                st.update(l, r, update);
+                loaded.update(l, r, update);
+            } else {
+                assertEquals(st.query(l, r), loaded.query(l, r));
+            }
+        }
+    }
+
+    @Test
+    void intAndDoubleTrees(@TempDir Path dir) throws IOException {
+        IntSegmentTree ints = new IntSegmentTree(new int[]{1, 2, 3, 4, 5}, new IntSumCombiner(), new IntAddUpdater());
+        ints.update(0, 5, 3); // +3 to all
+        ints.save(dir.resolve("ints.bin"));
+        IntSegmentTree loadedInts = IntSegmentTree.load(dir.resolve("ints.bin"), new IntSumCombiner(), new IntAddUpdater());
+        assertEquals(26, loadedInts.query(1, 5)); // 5+6+7+8
+        assertEquals(13 + 2 * 4 + 9 * 2 * 4 + 4, Files.size(dir.resolve("ints.bin")));
+
+        DoubleSegmentTree doubles = new DoubleSegmentTree(new double[]{0.5, 1.5, 2.5}, new DoubleSumCombiner(),
+                new DoubleAddUpdater());
+        doubles.update(1, 3, 0.25); // +0.25 to indices 1 and 2
+        doubles.save(dir.resolve("doubles.bin"));
+        DoubleSegmentTree loadedDoubles = DoubleSegmentTree.load(dir.resolve("doubles.bin"), new DoubleSumCombiner(),
+                new DoubleAddUpdater());
+        assertEquals(5.0, loadedDoubles.query(0, 3), 1e-9); // 0.5+1.75+2.75
+        assertEquals(13 + 2 * 8 + 5 * 2 * 8 + 4, Files.size(dir.resolve("doubles.bin")));
+    }
+
+    @Test
+    void emptyTree(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("tree.bin");
+        new SegmentTree<>(0, new SumCombiner(), new AddUpdater()).save(file, new LongCodec(), new LongCodec());
+        SegmentTree<Long, Long> loaded = SegmentTree.load(file, new SumCombiner(), new AddUpdater(),
+                new LongCodec(), new LongCodec());
+        Path copy = dir.resolve("copy.bin");
+        loaded.save(copy, new LongCodec(), new LongCodec());
+        assertArrayEquals(Files.readAllBytes(file), Files.readAllBytes(copy));
+    }
+
+    @Test
+    void rejectsCorruptedSnapshot(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("tree.bin");
+        new LongSegmentTree(new long[]{1L, 2L, 3L}, new LongSumCombiner(), new LongAddUpdater()).save(file);
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[40] ^= 1;
+        Files.write(file, bytes);
+        assertThrows(IOException.class, () -> LongSegmentTree.load(file, new LongSumCombiner(), new LongAddUpdater()));
+        Files.write(file, new byte[]{1, 2, 3});
+        assertThrows(IOException.class, () -> LongSegmentTree.load(file, new LongSumCombiner(), new LongAddUpdater()));
+    }
+
+    /**
+     * Overwrites the size stored in the header, which starts after the magic number, the version and the kind.
+     */
+    private static void corruptSize(Path file, int n) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer.wrap(bytes).putInt(9, n);
+        Files.write(file, bytes);
+    }
+
+    @Test
+    void rejectsCorruptedSizeBeforeAllocating(@TempDir Path dir) throws IOException {
+        Path longs = dir.resolve("longs.bin");
+        Path ints = dir.resolve("ints.bin");
+        Path doubles = dir.resolve("doubles.bin");
+        Path generic = dir.resolve("generic.bin");
+        for (int n : new int[]{Integer.MAX_VALUE, 0x20000000, Integer.MIN_VALUE, -1, 4}) {
+            new LongSegmentTree(new long[]{1L, 2L, 3L}, new LongSumCombiner(), new LongAddUpdater()).save(longs);
+            corruptSize(longs, n);
+            assertThrows(IOException.class, () -> LongSegmentTree.load(longs, new LongSumCombiner(), new LongAddUpdater()));
+            new IntSegmentTree(new int[]{1, 2, 3}, new IntSumCombiner(), new IntAddUpdater()).save(ints);
+            corruptSize(ints, n);
+            assertThrows(IOException.class, () -> IntSegmentTree.load(ints, new IntSumCombiner(), new IntAddUpdater()));
+            new DoubleSegmentTree(new double[]{1, 2, 3}, new DoubleSumCombiner(), new DoubleAddUpdater()).save(doubles);
+            corruptSize(doubles, n);
+            assertThrows(IOException.class,
+                    () -> DoubleSegmentTree.load(doubles, new DoubleSumCombiner(), new DoubleAddUpdater()));
+            new SegmentTree<>(new Long[]{1L, 2L, 3L}, new SumCombiner(), new AddUpdater())
+                    .save(generic, new LongCodec(), new LongCodec());
+            corruptSize(generic, n);
+            assertThrows(IOException.class, () -> SegmentTree.load(generic, new SumCombiner(), new AddUpdater(),
+                    new LongCodec(), new LongCodec()));
+        }
+    }
+
+    @Test
+    void rejectsDifferentTreeKindAndNeutrals(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("tree.bin");
+        new LongSegmentTree(new long[]{1L, 2L, 3L}, new LongSumCombiner(), new LongAddUpdater()).save(file);
+        assertThrows(IOException.class, () -> IntSegmentTree.load(file, new IntSumCombiner(), new IntAddUpdater()));
+        assertThrows(IOException.class, () -> SegmentTree.load(file, new SumCombiner(), new AddUpdater(),
+                new LongCodec(), new LongCodec()));
+        assertThrows(IllegalArgumentException.class,
+                () -> LongSegmentTree.load(file, new LongMinCombiner(), new LongAddUpdater()));
+    }
+}
@@ -0,0 +1,127 @@
+package segtrees;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SparseTableTreeTest {
+
+    private static class MinCombiner implements Combiner<Long> {
+        @Override
+        public Long combine(Long left, Long right) {
+            return Math.min(left, right);
+        }
+
+        @Override
+        public Long neutral() {
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public boolean isIdempotent() {
+            return true;
+        }
+    }
+
+    private static class SumCombiner implements Combiner<Long> {
+        @Override
+        public Long combine(Long left, Long right) {
+            return left + right;
+        }
+
+        @Override
+        public Long neutral() {
+            return 0L;
+        }
+    }
+
+    private static class AssignUpdater implements Updater<Long, Long> {
+        @Override
+        public Long applyUpdate(Long value, Long update, int rangeSize) {
+            return update == Long.MAX_VALUE ? value : update;
+        }
+
+        @Override
+        public Long composeUpdates(Long current, Long next) {
+            return next == Long.MAX_VALUE ? current : next;
+        }
+
+        @Override
+        public Long neutralUpdate() {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    @Test
+    void smallFixedScenario() {
+        Long[] a = {1L, 2L, 3L, 4L, 5L};
+        SparseTableTree<Long, Long> st = new SparseTableTree<>(a, new MinCombiner(), new AssignUpdater());
+        assertEquals(2, st.query(1, 4)); // min of 2,3,4
+        st.update(0, 5, 3L); // assign 3 to all
+        assertEquals(3, st.query(0, 5)); // min is 3
+        st.update(2, 4, 1L); // assign 1 to indices 2 and 3
+        assertEquals(1, st.query(1, 5)); // min of 3,1,1,3
+        assertEquals(3, st.query(0, 2)); // min of 3,3
+    }
+
+    @Test
+    void rejectsNonIdempotentCombiner() {
+        Long[] a = {1L, 2L, 3L};
+        assertThrows(IllegalArgumentException.class, () -> new SparseTableTree<>(a, new SumCombiner(), new AssignUpdater()));
+    }
+
+    @Test
+    void randomOperations() {
+        Random rnd = new Random(12345);
+        for (int n : new int[]{1, 31, 32, 33, 100, 5000}) {
+            Long[] a = new Long[n];
+            for (int i = 0; i < n; i++) {
+                a[i] = (long) rnd.nextInt(1000);
+            }
+            MinCombiner minCombiner = new MinCombiner();
+            AssignUpdater assignUpdater = new AssignUpdater();
+            SparseTableTree<Long, Long> st = new SparseTableTree<>(a, minCombiner, assignUpdater);
+            NaiveArray<Long, Long> naive = new NaiveArray<>(a, minCombiner, assignUpdater);
+            for (int i = 0; i < 2000; i++) {
+                int l = rnd.nextInt(n);
+                int r = rnd.nextInt(n - l) + l + 1;
+                if (rnd.nextInt(10) == 0) {
+                    long update = rnd.nextLong(1000);
+                    st.update(l, r, update);
+                    naive.update(l, r, update);
+                } else {
+                    assertEquals(naive.query(l, r), st.query(l, r));
+                }
+            }
+        }
+    }
+
+    private static class NaiveArray<T, U> {
+        private final T[] a;
+        private final Updater<T, U> updater;
+        private final Combiner<T> combiner;
+
+        NaiveArray(T[] arr, Combiner<T> combiner, Updater<T, U> updater) {
+            this.a = arr.clone();
+            this.updater = updater;
+            this.combiner = combiner;
+        }
+
+        void update(int l, int r, U update) {
+            for (int i = l; i < r; i++) {
+                a[i] = updater.applyUpdate(a[i], update, 1);
+            }
+        }
+
+        T query(int l, int r) {
+            T result = a[l];
+            for (int i = l + 1; i < r; i++) {
+                result = combiner.combine(result, a[i]);
+            }
+            return result;
+        }
+    }
+} 
\ No newline at end of file
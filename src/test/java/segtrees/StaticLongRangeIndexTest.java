@@ -0,0 +1,125 @@
+package segtrees;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class StaticLongRangeIndexTest {
+
+    private static class SumCombiner implements LongCombiner {
+        @Override
+        public long combine(long left, long right) {
+            return left + right;
+        }
+
+        @Override
+        public long neutral() {
+            return 0L;
+        }
+    }
+
+    private static class MinCombiner implements LongCombiner {
+        @Override
+        public long combine(long left, long right) {
+            return Math.min(left, right);
+        }
+
+        @Override
+        public long neutral() {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Not commutative, so it checks that the left parts of a range are combined in order.
+     */
+    private static class FirstCombiner implements LongCombiner {
+        @Override
+        public long combine(long left, long right) {
+            return left == -1 ? right : left;
+        }
+
+        @Override
+        public long neutral() {
+            return -1;
+        }
+    }
+
+    /**
+     * Not commutative, so it checks that the right parts of a range are combined in order.
+     */
+    private static class LastCombiner implements LongCombiner {
+        @Override
+        public long combine(long left, long right) {
+            return right == -1 ? left : right;
+        }
+
+        @Override
+        public long neutral() {
+            return -1;
+        }
+    }
+
+    @Test
+    void smallFixedScenario() {
+        long[] a = {1L, 2L, 3L, 4L, 5L};
+        StaticLongRangeIndex index = new StaticLongRangeIndex(a, new SumCombiner());
+        assertEquals(9, index.query(1, 4)); // 2+3+4
+        assertEquals(15, index.query(0, 5));
+        assertEquals(0, index.query(2, 2));
+    }
+
+    @Test
+    void combinesInOrder() {
+        long[] a = new long[100];
+        for (int i = 0; i < a.length; i++) {
+            a[i] = i;
+        }
+        StaticLongRangeIndex index = new StaticLongRangeIndex(a, new FirstCombiner());
+        assertEquals(5, index.query(5, 15));
+        assertEquals(27, index.query(27, 93));
+        assertEquals(-1, index.query(40, 40));
+    }
+
+    @Test
+    void randomSum() {
+        randomQueries(new SumCombiner());
+    }
+
+    @Test
+    void randomMin() {
+        randomQueries(new MinCombiner());
+    }
+
+    @Test
+    void randomFirst() {
+        randomQueries(new FirstCombiner());
+    }
+
+    @Test
+    void randomLast() {
+        randomQueries(new LastCombiner());
+    }
+
+    private void randomQueries(LongCombiner combiner) {
+        Random rnd = new Random(12345);
+        for (int n : new int[]{1, 7, 8, 9, 64, 65, 511, 4097}) {
+            long[] a = new long[n];
+            for (int i = 0; i < n; i++) {
+                a[i] = rnd.nextInt(1000);
+            }
+            StaticLongRangeIndex index = new StaticLongRangeIndex(a, combiner);
+            for (int i = 0; i < 2000; i++) {
+                int l = rnd.nextInt(n);
+                int r = rnd.nextInt(n - l) + l + 1;
+                long expected = a[l];
+                for (int j = l + 1; j < r; j++) {
+                    expected = combiner.combine(expected, a[j]);
+                }
+                assertEquals(expected, index.query(l, r));
+            }
+        }
+    }
+}
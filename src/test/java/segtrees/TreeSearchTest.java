@@ -0,0 +1,189 @@
+package segtrees;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TreeSearchTest {
+
+    private static class SumCombiner implements Combiner<Long> {
+        @Override
+        public Long combine(Long left, Long right) {
+            return left + right;
+        }
+
+        @Override
+        public Long neutral() {
+            return 0L;
+        }
+    }
+
+    private static class AddUpdater implements Updater<Long, Long> {
+        @Override
+        public Long applyUpdate(Long value, Long update, int rangeSize) {
+            return value + update * rangeSize;
+        }
+
+        @Override
+        public Long composeUpdates(Long current, Long next) {
+            return current + next;
+        }
+
+        @Override
+        public Long neutralUpdate() {
+            return 0L;
+        }
+    }
+
+    private static class MinCombiner implements Combiner<Long> {
+        @Override
+        public Long combine(Long left, Long right) {
+            return Math.min(left, right);
+        }
+
+        @Override
+        public Long neutral() {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static class AssignUpdater implements Updater<Long, Long> {
+        @Override
+        public Long applyUpdate(Long value, Long update, int rangeSize) {
+            return update == Long.MAX_VALUE ? value : update;
+        }
+
+        @Override
+        public Long composeUpdates(Long current, Long next) {
+            return next == Long.MAX_VALUE ? current : next;
+        }
+
+        @Override
+        public Long neutralUpdate() {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static class NaiveArray<T, U> {
+        private final T[] a;
+        private final Updater<T, U> updater;
+        private final Combiner<T> combiner;
+
+        NaiveArray(T[] arr, Combiner<T> combiner, Updater<T, U> updater) {
+            this.a = arr.clone();
+            this.updater = updater;
+            this.combiner = combiner;
+        }
+
+        void update(int l, int r, U update) {
+            for (int i = l; i < r; i++) {
+                a[i] = updater.applyUpdate(a[i], update, 1);
+            }
+        }
+
+        T query(int l, int r) {
+            T result = a[l];
+            for (int i = l + 1; i < r; i++) {
+                result = combiner.combine(result, a[i]);
+            }
+            return result;
+        }
+    }
+
+    @Test
+    void prefixSumSearch() {
+        Long[] a = {1L, 2L, 3L, 4L, 5L};
+        SegmentTree<Long, Long> st = new SegmentTree<>(a, new SumCombiner(), new AddUpdater());
+        assertEquals(3, st.maxRight(0, s -> s <= 6)); // 1+2+3
+        assertEquals(2, st.maxRight(1, s -> s <= 4)); // 2
+        assertEquals(5, st.maxRight(0, s -> s <= 100));
+        assertEquals(1, st.maxRight(1, s -> s < 2)); // nothing fits
+        assertEquals(3, st.minLeft(5, s -> s <= 9)); // 4+5
+        assertEquals(0, st.minLeft(5, s -> s <= 100));
+        st.update(0, 5, 1L); // +1 to all
+        assertEquals(2, st.maxRight(0, s -> s <= 6)); // 2+3
+        assertEquals(4, st.minLeft(5, s -> s <= 9)); // 6
+    }
+
+    @Test
+    void firstBelowThreshold() {
+        Long[] a = {5L, 7L, 3L, 8L, 2L};
+        SegmentTree<Long, Long> st = new SegmentTree<>(a, new MinCombiner(), new AssignUpdater());
+        assertEquals(2, st.findFirst(0, 5, m -> m < 4));
+        assertEquals(4, st.findFirst(3, 5, m -> m < 4));
+        assertEquals(-1, st.findFirst(0, 2, m -> m < 4));
+        st.update(0, 3, 9L); // assign 9 to indices 0, 1 and 2
+        assertEquals(4, st.findFirst(0, 5, m -> m < 4));
+        st.update(1, 2, 1L); // assign 1 to index 1
+        assertEquals(1, st.findFirst(0, 5, m -> m < 4));
+    }
+
+    @Test
+    void stressSumAdd() {
+        Random rnd = new Random(12345);
+        int n = 1000;
+        Long[] a = new Long[n];
+        for (int i = 0; i < n; i++) {
+            a[i] = (long) rnd.nextInt(100);
+        }
+        SumCombiner sumCombiner = new SumCombiner();
+        AddUpdater addUpdater = new AddUpdater();
+        SegmentTree<Long, Long> st = new SegmentTree<>(a, sumCombiner, addUpdater);
+        NaiveArray<Long, Long> naive = new NaiveArray<>(a, sumCombiner, addUpdater);
+        for (int i = 0; i < 2000; i++) {
+            int l = rnd.nextInt(n);
+            int r = rnd.nextInt(n - l) + l + 1;
+            if (rnd.nextBoolean()) {
+                long update = rnd.nextLong(100);
+                st.update(l, r, update);
+                naive.update(l, r, update);
+            } else {
+                long limit = rnd.nextInt(5000);
+                int expectedRight = l;
+                while (expectedRight < n && naive.query(l, expectedRight + 1) <= limit) {
+                    expectedRight++;
+                }
+                assertEquals(expectedRight, st.maxRight(l, s -> s <= limit));
+                int expectedLeft = r;
+                while (expectedLeft > 0 && naive.query(expectedLeft - 1, r) <= limit) {
+                    expectedLeft--;
+                }
+                assertEquals(expectedLeft, st.minLeft(r, s -> s <= limit));
+            }
+        }
+    }
+
+    @Test
+    void stressMinAssign() {
+        Random rnd = new Random(12345);
+        int n = 1000;
+        Long[] a = new Long[n];
+        for (int i = 0; i < n; i++) {
+            a[i] = (long) rnd.nextInt(100);
+        }
+        MinCombiner minCombiner = new MinCombiner();
+        AssignUpdater assignUpdater = new AssignUpdater();
+        SegmentTree<Long, Long> st = new SegmentTree<>(a, minCombiner, assignUpdater);
+        NaiveArray<Long, Long> naive = new NaiveArray<>(a, minCombiner, assignUpdater);
+        for (int i = 0; i < 5000; i++) {
+            int l = rnd.nextInt(n);
+            int r = rnd.nextInt(n - l) + l + 1;
+            if (rnd.nextBoolean()) {
+                long update = rnd.nextLong(100);
+                st.update(l, r, update);
+                naive.update(l, r, update);
+            } else {
+                long threshold = rnd.nextInt(20);
+                int expected = -1;
+                for (int j = l; j < r && expected == -1; j++) {
+                    if (naive.query(j, j + 1) < threshold) {
+                        expected = j;
+                    }
+                }
+                assertEquals(expected, st.findFirst(l, r, m -> m < threshold));
+            }
+        }
+    }
+}
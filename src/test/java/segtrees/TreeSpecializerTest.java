@@ -0,0 +1,219 @@
+package segtrees;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TreeSpecializerTest {
+
+    private static class SumCombiner implements Combiner<Long> {
+        @Override
+        public Long combine(Long left, Long right) {
+            return left + right;
+        }
+
+        @Override
+        public Long neutral() {
+            return 0L;
+        }
+    }
+
+    private static class AddUpdater implements Updater<Long, Long> {
+        @Override
+        public Long applyUpdate(Long value, Long update, int rangeSize) {
+            return value + update * rangeSize;
+        }
+
+        @Override
+        public Long composeUpdates(Long current, Long next) {
+            return current + next;
+        }
+
+        @Override
+        public Long neutralUpdate() {
+            return 0L;
+        }
+    }
+
+    private static class MinCombiner implements Combiner<Long> {
+        @Override
+        public Long combine(Long left, Long right) {
+            return Math.min(left, right);
+        }
+
+        @Override
+        public Long neutral() {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static class AssignUpdater implements Updater<Long, Long> {
+        @Override
+        public Long applyUpdate(Long value, Long update, int rangeSize) {
+            return update == Long.MIN_VALUE ? value : update;
+        }
+
+        @Override
+        public Long composeUpdates(Long current, Long next) {
+            return next == Long.MIN_VALUE ? current : next;
+        }
+
+        @Override
+        public Long neutralUpdate() {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    private static class LongSumCombiner implements LongCombiner {
+        @Override
+        public long combine(long left, long right) {
+            return left + right;
+        }
+
+        @Override
+        public long neutral() {
+            return 0L;
+        }
+    }
+
+    private static class LongAddUpdater implements LongUpdater {
+        @Override
+        public long applyUpdate(long value, long update, int rangeSize) {
+            return value + update * rangeSize;
+        }
+
+        @Override
+        public long composeUpdates(long current, long next) {
+            return current + next;
+        }
+
+        @Override
+        public long neutralUpdate() {
+            return 0L;
+        }
+    }
+
+    private static class LongMinCombiner implements LongCombiner {
+        @Override
+        public long combine(long left, long right) {
+            return Math.min(left, right);
+        }
+
+        @Override
+        public long neutral() {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static class LongAssignUpdater implements LongUpdater {
+        @Override
+        public long applyUpdate(long value, long update, int rangeSize) {
+            return update == Long.MAX_VALUE ? value : update;
+        }
+
+        @Override
+        public long composeUpdates(long current, long next) {
+            return next == Long.MAX_VALUE ? current : next;
+        }
+
+        @Override
+        public long neutralUpdate() {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    @Test
+    void smallFixedScenario() {
+        Long[] a = {1L, 2L, 3L, 4L, 5L};
+        RangeStructure<Long, Long> st = TreeSpecializer.create(a, new SumCombiner(), new AddUpdater());
+        assertEquals(9, st.query(1, 4)); // 2+3+4
+        st.update(0, 5, 3L); // +3 to all
+        assertEquals(26, st.query(1, 5)); // 5+6+7+8
+        st.update(2, 4, 2L); // +2 to indices 2 and 3
+        assertEquals(30, st.query(1, 5)); // 5+8+9+8
+        assertEquals(0, st.query(2, 2));
+    }
+
+    @Test
+    void smallFixedScenarioLong() {
+        long[] a = {1, 2, 3, 4, 5};
+        LongRangeStructure st = TreeSpecializer.create(a, new LongMinCombiner(), new LongAssignUpdater());
+        assertEquals(2, st.query(1, 4)); // min(2, 3, 4)
+        st.update(0, 3, 7); // 7, 7, 7, 4, 5
+        assertEquals(4, st.query(0, 5));
+        assertEquals(7, st.query(0, 3));
+        assertEquals(Long.MAX_VALUE, st.query(3, 3));
+    }
+
+    @Test
+    void oneHiddenClassPerPair() {
+        Long[] a = {1L, 2L};
+        RangeStructure<Long, Long> sum = TreeSpecializer.create(a, new SumCombiner(), new AddUpdater());
+        RangeStructure<Long, Long> sumAgain = TreeSpecializer.create(a, new SumCombiner(), new AddUpdater());
+        RangeStructure<Long, Long> min = TreeSpecializer.create(a, new MinCombiner(), new AssignUpdater());
+        assertTrue(sum.getClass().isHidden());
+        assertSame(sum.getClass(), sumAgain.getClass());
+        assertNotSame(sum.getClass(), min.getClass());
+        LongRangeStructure longSum = TreeSpecializer.create(new long[2], new LongSumCombiner(), new LongAddUpdater());
+        assertTrue(longSum.getClass().isHidden());
+    }
+
+    private static void compareWithSegmentTree(Combiner<Long> combiner, Updater<Long, Long> updater, long seed) {
+        Random rnd = new Random(seed);
+        int n = 300;
+        Long[] a = new Long[n];
+        for (int i = 0; i < n; i++) {
+            a[i] = (long) rnd.nextInt(1000);
+        }
+        RangeStructure<Long, Long> specialized = TreeSpecializer.create(a, combiner, updater);
+        SegmentTree<Long, Long> generic = new SegmentTree<>(a, combiner, updater);
+        for (int step = 0; step < 3000; step++) {
+            int l = rnd.nextInt(n);
+            int r = l + 1 + rnd.nextInt(n - l);
+            if (rnd.nextBoolean()) {
+                long update = rnd.nextInt(100);
+                specialized.update(l, r, update);
+                generic.update(l, r, update);
+            } else {
+                assertEquals(generic.query(l, r), specialized.query(l, r));
+            }
+        }
+    }
+
+    private static void compareWithLongSegmentTree(LongCombiner combiner, LongUpdater updater, long seed) {
+        Random rnd = new Random(seed);
+        int n = 300;
+        long[] a = new long[n];
+        for (int i = 0; i < n; i++) {
+            a[i] = rnd.nextInt(1000);
+        }
+        LongRangeStructure specialized = TreeSpecializer.create(a, combiner, updater);
+        LongSegmentTree generic = new LongSegmentTree(a, combiner, updater);
+        for (int step = 0; step < 3000; step++) {
+            int l = rnd.nextInt(n);
+            int r = l + 1 + rnd.nextInt(n - l);
+            if (rnd.nextBoolean()) {
+                long update = rnd.nextInt(100);
+                specialized.update(l, r, update);
+                generic.update(l, r, update);
+            } else {
+                assertEquals(generic.query(l, r), specialized.query(l, r));
+            }
+        }
+    }
+
+    @Test
+    void randomOperations() {
+        for (long seed = 0; seed < 3; seed++) {
+            compareWithSegmentTree(new SumCombiner(), new AddUpdater(), seed);
+            compareWithSegmentTree(new MinCombiner(), new AssignUpdater(), seed);
+            compareWithLongSegmentTree(new LongSumCombiner(), new LongAddUpdater(), seed);
+            compareWithLongSegmentTree(new LongMinCombiner(), new LongAssignUpdater(), seed);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package segtrees;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class UpdaterCapabilitiesTest {
+
+    private static class SumCombiner implements Combiner<Long> {
+        @Override
+        public Long combine(Long left, Long right) {
+            return left + right;
+        }
+
+        @Override
+        public Long neutral() {
+            return 0L;
+        }
+    }
+
+    private static class CommutativeAddUpdater implements Updater<Long, Long> {
+        @Override
+        public Long applyUpdate(Long value, Long update, int rangeSize) {
+            return value + update * rangeSize;
+        }
+
+        @Override
+        public Long composeUpdates(Long current, Long next) {
+            return current + next;
+        }
+
+        @Override
+        public Long neutralUpdate() {
+            return 0L;
+        }
+
+        @Override
+        public boolean isCommutative() {
+            return true;
+        }
+    }
+
+    private static class MinCombiner implements Combiner<Long> {
+        @Override
+        public Long combine(Long left, Long right) {
+            return Math.min(left, right);
+        }
+
+        @Override
+        public Long neutral() {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static class FastAssignUpdater implements Updater<Long, Long> {
+        private static final Long NONE = Long.MAX_VALUE;
+
+        @Override
+        public Long applyUpdate(Long value, Long update, int rangeSize) {
+            return update == Long.MAX_VALUE ? value : update;
+        }
+
+        @Override
+        public Long composeUpdates(Long current, Long next) {
+            return next == Long.MAX_VALUE ? current : next;
+        }
+
+        @Override
+        public Long neutralUpdate() {
+            return NONE;
+        }
+
+        @Override
+        public boolean isAssignment() {
+            return true;
+        }
+
+        @Override
+        public boolean isNeutralByReference() {
+            return true;
+        }
+    }
+
+    private static class EqualsAssignUpdater extends FastAssignUpdater {
+        @Override
+        public boolean isNeutralByReference() {
+            return false;
+        }
+    }
+
+    private static class NaiveArray<T, U> {
+        private final T[] a;
+        private final Updater<T, U> updater;
+        private final Combiner<T> combiner;
+
+        NaiveArray(T[] arr, Combiner<T> combiner, Updater<T, U> updater) {
+            this.a = arr.clone();
+            this.updater = updater;
+            this.combiner = combiner;
+        }
+
+        void update(int l, int r, U update) {
+            for (int i = l; i < r; i++) {
+                a[i] = updater.applyUpdate(a[i], update, 1);
+            }
+        }
+
+        T query(int l, int r) {
+            T result = a[l];
+            for (int i = l + 1; i < r; i++) {
+                result = combiner.combine(result, a[i]);
+            }
+            return result;
+        }
+    }
+
+    @Test
+    void commutativeFixedScenario() {
+        Long[] a = {1L, 2L, 3L, 4L, 5L};
+        SegmentTree<Long, Long> st = new SegmentTree<>(a, new SumCombiner(), new CommutativeAddUpdater());
+        assertEquals(9, st.query(1, 4)); // 2+3+4
+        st.update(0, 5, 3L); // +3 to all
+        assertEquals(26, st.query(1, 5)); // 5+6+7+8
+        st.update(2, 4, 2L); // +2 to indices 2 and 3
+        assertEquals(30, st.query(1, 5)); // 5+8+9+8
+        assertEquals(9, st.query(0, 2)); // 4+5
+    }
+
+    @Test
+    void assignmentIgnoresNeutralUpdate() {
+        Long[] a = {1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L};
+        FastAssignUpdater updater = new FastAssignUpdater();
+        SegmentTree<Long, Long> st = new SegmentTree<>(a, new MinCombiner(), updater);
+        st.update(0, 8, 7L); // assign 7 to all
+        st.update(0, 4, updater.neutralUpdate()); // the neutral instance itself
+        assertEquals(7, st.query(0, 8));
+        assertEquals(7, st.query(0, 1));
+    }
+
+    @Test
+    void assignmentIgnoresEqualNeutralUpdateWhenComparedByEquals() {
+        Long[] a = {1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L};
+        SegmentTree<Long, Long> st = new SegmentTree<>(a, new MinCombiner(), new EqualsAssignUpdater());
+        st.update(0, 8, 7L); // assign 7 to all
+        st.update(0, 4, Long.valueOf(Long.MAX_VALUE)); // equal to the neutral update, but another instance
+        assertEquals(7, st.query(0, 8));
+        assertEquals(7, st.query(0, 1));
+    }
+
+    @Test
+    void stressCommutativeAdd() {
+        stress(new SumCombiner(), new CommutativeAddUpdater());
+    }
+
+    @Test
+    void stressFastAssign() {
+        stress(new MinCombiner(), new FastAssignUpdater());
+    }
+
+    private void stress(Combiner<Long> combiner, Updater<Long, Long> updater) {
+        Random rnd = new Random(12345);
+        int n = 1000;
+        Long[] a = new Long[n];
+        for (int i = 0; i < n; i++) {
+            a[i] = (long) rnd.nextInt(100);
+        }
+        SegmentTree<Long, Long> st = new SegmentTree<>(a, combiner, updater);
+        NaiveArray<Long, Long> naive = new NaiveArray<>(a, combiner, updater);
+        for (int i = 0; i < 10000; i++) {
+            int l = rnd.nextInt(n);
+            int r = rnd.nextInt(n - l) + l + 1;
+            switch (rnd.nextInt(3)) {
+                case 0:
+                    long update = rnd.nextLong(100);
+                    st.update(l, r, update);
+                    naive.update(l, r, update);
+                    break;
+                case 1:
+                    assertEquals(naive.query(l, r), st.query(l, r));
+                    break;
+                default:
+                    // Batch queries push pending updates down, so they are mixed in.
+                    Long[] out = new Long[1];
+                    st.queryBatch(new int[]{l}, new int[]{r}, out);
+                    assertEquals(naive.query(l, r), out[0]);
+                    break;
+            }
+        }
+    }
+}
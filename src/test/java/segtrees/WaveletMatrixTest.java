@@ -0,0 +1,85 @@
+package segtrees;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class WaveletMatrixTest {
+
+    @Test
+    void smallFixedScenario() {
+        Integer[] a = {5, 1, 4, 1, 3, 9, 2};
+        WaveletMatrix<Integer> wm = new WaveletMatrix<>(a, Comparator.naturalOrder());
+        assertEquals(1, wm.kth(0, 7, 0)); // smallest of everything
+        assertEquals(3, wm.kth(0, 7, 3)); // 1, 1, 2, 3
+        assertEquals(9, wm.kth(0, 7, 6)); // largest
+        assertEquals(4, wm.kth(1, 4, 2)); // 1, 1, 4
+        assertEquals(3, wm.countLess(0, 5, 4)); // 1, 1, 3
+        assertEquals(0, wm.countLess(0, 7, 1));
+        assertEquals(7, wm.countLess(0, 7, 100));
+        assertEquals(2, wm.countLess(4, 7, 4)); // 3, 2
+        assertEquals(3, wm.rangeFrequency(0, 7, 2, 5)); // 4, 3, 2
+        assertEquals(2, wm.rangeFrequency(0, 7, 1, 2)); // 1, 1
+        assertEquals(0, wm.rangeFrequency(0, 7, 6, 9));
+    }
+
+    @Test
+    void stringsInReverseOrder() {
+        String[] a = {"pear", "apple", "fig", "kiwi"};
+        WaveletMatrix<String> wm = new WaveletMatrix<>(a, Comparator.reverseOrder());
+        assertEquals("pear", wm.kth(0, 4, 0));
+        assertEquals("fig", wm.kth(1, 4, 1)); // kiwi, fig, apple
+        assertEquals(1, wm.countLess(0, 4, "mango")); // only pear comes before mango
+    }
+
+    @Test
+    void singleDistinctValue() {
+        Integer[] a = {7, 7, 7};
+        WaveletMatrix<Integer> wm = new WaveletMatrix<>(a, Comparator.naturalOrder());
+        assertEquals(7, wm.kth(0, 3, 2));
+        assertEquals(0, wm.countLess(0, 3, 7));
+        assertEquals(3, wm.countLess(0, 3, 8));
+        assertThrows(IndexOutOfBoundsException.class, () -> wm.kth(0, 3, 3));
+    }
+
+    @Test
+    void randomQueries() {
+        Random rnd = new Random(19);
+        for (int sigma : new int[]{2, 10, 1000, 1 << 20}) {
+            int n = 500;
+            Integer[] a = new Integer[n];
+            for (int i = 0; i < n; i++) {
+                a[i] = rnd.nextInt(sigma) - sigma / 2;
+            }
+            WaveletMatrix<Integer> wm = new WaveletMatrix<>(a, Comparator.naturalOrder());
+            for (int step = 0; step < 1000; step++) {
+                int l = rnd.nextInt(n);
+                int r = l + 1 + rnd.nextInt(n - l);
+                Integer[] sorted = Arrays.copyOfRange(a, l, r);
+                Arrays.sort(sorted);
+                int k = rnd.nextInt(r - l);
+                assertEquals(sorted[k], wm.kth(l, r, k));
+                int x = rnd.nextInt(sigma + 2) - sigma / 2 - 1;
+                int lo = Math.min(x, sorted[k]);
+                int hi = Math.max(x, sorted[k]);
+                int less = 0;
+                int within = 0;
+                for (int v : sorted) {
+                    if (v < x) {
+                        less++;
+                    }
+                    if (lo <= v && v < hi) {
+                        within++;
+                    }
+                }
+                assertEquals(less, wm.countLess(l, r, x));
+                assertEquals(within, wm.rangeFrequency(l, r, lo, hi));
+            }
+        }
+    }
+}